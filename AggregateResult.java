@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+/**
+ * The results of running some aggregators over the data points of a query, in
+ * the order the aggregators were given. An AggregateResult cannot be changed.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public final class AggregateResult
+{
+    private final Aggregator[] aggregators;
+    private final double[] values;
+    private final long dataPoints;
+
+    /**
+     * Constructor for objects of class AggregateResult
+     *
+     * @param aggregators the aggregators that were run
+     * @param values the result of every aggregator, in the same order
+     * @param dataPoints the number of data points the aggregators saw
+     */
+    public AggregateResult(Aggregator[] aggregators, double[] values, long dataPoints)
+    {
+        if (aggregators.length != values.length) {
+            throw new IllegalArgumentException("There must be one value per aggregator");
+        }
+        this.aggregators = aggregators.clone();
+        this.values = values.clone();
+        this.dataPoints = dataPoints;
+    }
+
+    /**
+     * Return the result of the aggregator at the given position.
+     */
+    public double get(int index)
+    {
+        return values[index];
+    }
+
+    /**
+     * Return the result of the given aggregator, which must be one of the aggregators that were run.
+     *
+     * @throws IllegalArgumentException if the aggregator was not run
+     */
+    public double get(Aggregator aggregator)
+    {
+        for (int i = 0; i < aggregators.length; i++) {
+            if (aggregators[i] == aggregator) {
+                return values[i];
+            }
+        }
+        throw new IllegalArgumentException("The aggregator was not part of this run");
+    }
+
+    /**
+     * Return the number of results.
+     */
+    public int size()
+    {
+        return values.length;
+    }
+
+    /**
+     * Return the number of data points the aggregators saw.
+     */
+    public long getDataPoints()
+    {
+        return dataPoints;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AggregateResult" + Arrays.toString(values) + " over " + dataPoints + " data points";
+    }
+}
@@ -0,0 +1,192 @@
+
+/**
+ * An Aggregator folds the values of data points into a single number, such as
+ * their count, sum or mean, one data point at a time.
+ *
+ * DataFiles.aggregate runs any number of aggregators in one pass over the data
+ * points. Each run gets a fresh Accumulator, which keeps its running totals in
+ * primitive fields, so no list of data points is ever built.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface Aggregator
+{
+    /**
+     * Return a new accumulator for one run of this aggregator.
+     */
+    Accumulator start();
+
+    /**
+     * Collects the data points of one run and works out the result.
+     */
+    interface Accumulator extends DataPointVisitor
+    {
+        /**
+         * Return the result for the data points visited so far.
+         */
+        double result();
+    }
+
+    /**
+     * Count the data points.
+     */
+    static Aggregator count()
+    {
+        return () -> new Accumulator()
+        {
+            private long count;
+
+            public void visit(int gridCode, int x, int y, double value)
+            {
+                count++;
+            }
+
+            public double result()
+            {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Add up the values, in data point order.
+     */
+    static Aggregator sum()
+    {
+        return () -> new Accumulator()
+        {
+            private double sum;
+
+            public void visit(int gridCode, int x, int y, double value)
+            {
+                sum += value;
+            }
+
+            public double result()
+            {
+                return sum;
+            }
+        };
+    }
+
+    /**
+     * Average the values: the sum divided by the count, so NaN if there are no data points.
+     */
+    static Aggregator mean()
+    {
+        return () -> new Accumulator()
+        {
+            private long count;
+            private double sum;
+
+            public void visit(int gridCode, int x, int y, double value)
+            {
+                count++;
+                sum += value;
+            }
+
+            public double result()
+            {
+                return sum / count;
+            }
+        };
+    }
+
+    /**
+     * Find the lowest value, or NaN if there are no data points.
+     */
+    static Aggregator min()
+    {
+        return () -> new Accumulator()
+        {
+            private double min = Double.NaN;
+
+            public void visit(int gridCode, int x, int y, double value)
+            {
+                if (Double.isNaN(min) || value < min) {
+                    min = value;
+                }
+            }
+
+            public double result()
+            {
+                return min;
+            }
+        };
+    }
+
+    /**
+     * Find the highest value, or NaN if there are no data points.
+     */
+    static Aggregator max()
+    {
+        return () -> new Accumulator()
+        {
+            private double max = Double.NaN;
+
+            public void visit(int gridCode, int x, int y, double value)
+            {
+                if (Double.isNaN(max) || value > max) {
+                    max = value;
+                }
+            }
+
+            public double result()
+            {
+                return max;
+            }
+        };
+    }
+
+    /**
+     * Work out the population variance of the values with Welford's method,
+     * or NaN if there are no data points.
+     */
+    static Aggregator variance()
+    {
+        return () -> new Accumulator()
+        {
+            private long count;
+            private double mean;
+            private double m2;
+
+            public void visit(int gridCode, int x, int y, double value)
+            {
+                count++;
+                double delta = value - mean;
+                mean += delta / count;
+                m2 += delta * (value - mean);
+            }
+
+            public double result()
+            {
+                return count == 0 ? Double.NaN : m2 / count;
+            }
+        };
+    }
+
+    /**
+     * Count the data points with a value above a threshold.
+     */
+    static Aggregator countAbove(double threshold)
+    {
+        return () -> new Accumulator()
+        {
+            private long count;
+
+            public void visit(int gridCode, int x, int y, double value)
+            {
+                if (value > threshold) {
+                    count++;
+                }
+            }
+
+            public double result()
+            {
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for Aggregator.
+ * This class verifies the result of every aggregator over a few values and over
+ * no values, and that a result can be read back by its aggregator.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class AggregatorTest
+{
+    private static final double[] VALUES = {2, 4, 4, 4, 5, 5, 7, 9};
+
+    /**
+     * Default constructor for test class AggregatorTest
+     */
+    public AggregatorTest()
+    {
+    }
+
+    private static double run(Aggregator aggregator, double... values)
+    {
+        Aggregator.Accumulator accumulator = aggregator.start();
+        for (int i = 0; i < values.length; i++) {
+            accumulator.visit(i, 0, 0, values[i]);
+        }
+        return accumulator.result();
+    }
+
+    /**
+     * Tests the result of every aggregator over some values.
+     */
+    @Test
+    public void testResults()
+    {
+        assertEquals(8.0, run(Aggregator.count(), VALUES));
+        assertEquals(40.0, run(Aggregator.sum(), VALUES));
+        assertEquals(5.0, run(Aggregator.mean(), VALUES));
+        assertEquals(2.0, run(Aggregator.min(), VALUES));
+        assertEquals(9.0, run(Aggregator.max(), VALUES));
+        assertEquals(4.0, run(Aggregator.variance(), VALUES), 1e-9);
+        assertEquals(4.0, run(Aggregator.countAbove(4.5), VALUES));
+    }
+
+    /**
+     * Tests the result of every aggregator over no values.
+     */
+    @Test
+    public void testNoValues()
+    {
+        assertEquals(0.0, run(Aggregator.count()));
+        assertEquals(0.0, run(Aggregator.sum()));
+        assertTrue(Double.isNaN(run(Aggregator.mean())));
+        assertTrue(Double.isNaN(run(Aggregator.min())));
+        assertTrue(Double.isNaN(run(Aggregator.max())));
+        assertTrue(Double.isNaN(run(Aggregator.variance())));
+        assertEquals(0.0, run(Aggregator.countAbove(1)));
+    }
+
+    /**
+     * Tests that every run starts from scratch.
+     */
+    @Test
+    public void testFreshAccumulator()
+    {
+        Aggregator sum = Aggregator.sum();
+        assertEquals(40.0, run(sum, VALUES));
+        assertEquals(3.0, run(sum, 1, 2));
+    }
+
+    /**
+     * Tests that results are read back by position or by aggregator.
+     */
+    @Test
+    public void testAggregateResult()
+    {
+        Aggregator mean = Aggregator.mean();
+        Aggregator max = Aggregator.max();
+        AggregateResult result = new AggregateResult(new Aggregator[] {mean, max}, new double[] {5, 9}, 8);
+        assertEquals(2, result.size());
+        assertEquals(5.0, result.get(mean));
+        assertEquals(9.0, result.get(1));
+        assertEquals(8, result.getDataPoints());
+        assertThrows(IllegalArgumentException.class, () -> result.get(Aggregator.min()));
+    }
+}
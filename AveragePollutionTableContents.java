@@ -3,20 +3,37 @@
  * Contains all the information that the average pollution level tables should contain.
  *
  * @author Maria Plesinska
- * @version 1.0
+ * @version 1.1
  */
 public class AveragePollutionTableContents
 {
     private String pollutionType;
     private double pollutionLevel;
+    // percentiles of the pollution levels, NaN if the table does not show them
+    private double p50;
+    private double p90;
+    private double p95;
+    private double p99;
 
     /**
      * Constructor for objects of class AveragePollutionTableContents
      */
     public AveragePollutionTableContents(String pollutionType, double pollutionLevel)
+    {
+        this(pollutionType, pollutionLevel, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+    }
+    
+    /**
+     * Constructor for objects of class AveragePollutionTableContents with percentiles
+     */
+    public AveragePollutionTableContents(String pollutionType, double pollutionLevel, double p50, double p90, double p95, double p99)
     {
         this.pollutionType = pollutionType;
         this.pollutionLevel = pollutionLevel;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p95 = p95;
+        this.p99 = p99;
     }
 
     // Getters
@@ -28,6 +45,22 @@ public class AveragePollutionTableContents
         return pollutionLevel;
     }
     
+    public double getP50(){
+        return p50;
+    }
+    
+    public double getP90(){
+        return p90;
+    }
+    
+    public double getP95(){
+        return p95;
+    }
+    
+    public double getP99(){
+        return p99;
+    }
+    
     // Setters
     public void setPollutionType(String pollutionType){
         this.pollutionType = pollutionType;
@@ -36,4 +69,20 @@ public class AveragePollutionTableContents
     public void setPollutionLevel(double pollutionLevel){
         this.pollutionLevel = pollutionLevel;
     }
+    
+    public void setP50(double p50){
+        this.p50 = p50;
+    }
+    
+    public void setP90(double p90){
+        this.p90 = p90;
+    }
+    
+    public void setP95(double p95){
+        this.p95 = p95;
+    }
+    
+    public void setP99(double p99){
+        this.p99 = p99;
+    }
 }
@@ -0,0 +1,22 @@
+
+/**
+ * A CatalogEntry describes one pollution data file without loading its data:
+ * the information from its header, and the size, age and approximate number
+ * of data rows of the file.
+ *
+ * @param fileName the name of the file, as passed to DataLoader
+ * @param pollutant the pollutant from the file header
+ * @param year the year from the file header
+ * @param metric the metric from the file header
+ * @param units the units from the file header
+ * @param size the size of the file in bytes
+ * @param estimatedRows the approximate number of data rows in the file
+ * @param lastModified the time the file was last modified, in milliseconds
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public record CatalogEntry(String fileName, String pollutant, String year, String metric, String units,
+                           long size, long estimatedRows, long lastModified)
+{
+}
@@ -0,0 +1,94 @@
+
+/**
+ * The cities the application shows, each with the bounding box of its map in
+ * British National Grid coordinates. A point is in a city if it lies strictly
+ * inside the box.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public enum CityRegion
+{
+    LONDON("London", 510394, 553297, 168504, 193305),
+    LEEDS("Leeds", 408304, 451385, 420952, 447012),
+    OXFORD("Oxford", 449416, 458115, 201110, 211085);
+
+    private final String name;
+    private final int minX;
+    private final int maxX;
+    private final int minY;
+    private final int maxY;
+
+    CityRegion(String name, int minX, int maxX, int minY, int maxY)
+    {
+        this.name = name;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Return true if the coordinates are inside this city.
+     */
+    public boolean contains(int x, int y)
+    {
+        return x > minX && x < maxX && y > minY && y < maxY;
+    }
+
+    /**
+     * Return true if the coordinates are inside any of the given cities.
+     */
+    public static boolean containsAny(CityRegion[] regions, int x, int y)
+    {
+        for (CityRegion region : regions) {
+            if (region.contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the city with the given name, ignoring case.
+     *
+     * @return the city, or null if there is no city with that name
+     */
+    public static CityRegion forName(String name)
+    {
+        for (CityRegion region : values()) {
+            if (region.name.equalsIgnoreCase(name)) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the name of the city as shown in the application, such as "London".
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    public int getMinX()
+    {
+        return minX;
+    }
+
+    public int getMaxX()
+    {
+        return maxX;
+    }
+
+    public int getMinY()
+    {
+        return minY;
+    }
+
+    public int getMaxY()
+    {
+        return maxY;
+    }
+}
@@ -0,0 +1,420 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A ColumnarDataSet holds data points as parallel primitive arrays instead of a
+ * list of DataPoint objects: one array each for the gridcodes, x coordinates,
+ * y coordinates and values. The data point at index i is made up of the i-th
+ * entry of every column.
+ *
+ * Datasets are built with a growable Builder and cannot be changed once built.
+ * A slice of a dataset shares its columns, so cutting a dataset into parts does
+ * not copy any data. The data can be read by index, with a Cursor or with a DataPointVisitor, none of
+ * which create DataPoint objects. getData() offers a List view for older code.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class ColumnarDataSet
+{
+    public static final ColumnarDataSet EMPTY = new ColumnarDataSet(new int[0], new int[0], new int[0], new double[0], 0, 0);
+
+    private final int[] gridCodes;
+    private final int[] xs;
+    private final int[] ys;
+    private final double[] values;
+    // the index in the columns of the first data point, not 0 for a slice
+    private final int offset;
+    private final int size;
+
+    /**
+     * Constructor for objects of class ColumnarDataSet.
+     * The arrays are used as they are and must not be changed afterwards.
+     */
+    private ColumnarDataSet(int[] gridCodes, int[] xs, int[] ys, double[] values, int offset, int size)
+    {
+        this.gridCodes = gridCodes;
+        this.xs = xs;
+        this.ys = ys;
+        this.values = values;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Create a dataset from existing columns. The arrays are not copied, so they
+     * must not be changed after calling this method.
+     *
+     * @throws IllegalArgumentException if the columns are not all the same length
+     */
+    public static ColumnarDataSet of(int[] gridCodes, int[] xs, int[] ys, double[] values)
+    {
+        int size = values.length;
+        if (gridCodes.length != size || xs.length != size || ys.length != size) {
+            throw new IllegalArgumentException("Columns must all have the same length");
+        }
+        return new ColumnarDataSet(gridCodes, xs, ys, values, 0, size);
+    }
+
+    /**
+     * Return the data points from index from up to, but not including, index to.
+     * The slice shares the columns of this dataset, so no data is copied.
+     *
+     * @throws IndexOutOfBoundsException if the range is not inside this dataset
+     */
+    public ColumnarDataSet slice(int from, int to)
+    {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + " to " + to + " out of bounds for size " + size);
+        }
+        if (from == to) {
+            return EMPTY;
+        }
+        if (from == 0 && to == size) {
+            return this;
+        }
+        return new ColumnarDataSet(gridCodes, xs, ys, values, offset + from, to - from);
+    }
+
+    /**
+     * Return the number of data points in this dataset.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Return true if this dataset holds no data points.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Return roughly how many bytes of heap the columns of this dataset use:
+     * three int columns and one double column, plus the array headers.
+     */
+    public long estimateBytes()
+    {
+        return (long) size * (3 * Integer.BYTES + Double.BYTES) + 4 * 16;
+    }
+
+    /**
+     * Return the gridcode of the data point at the given index.
+     */
+    public int getGridCode(int index)
+    {
+        checkIndex(index);
+        return gridCodes[offset + index];
+    }
+
+    /**
+     * Return the x coordinate of the data point at the given index.
+     */
+    public int getX(int index)
+    {
+        checkIndex(index);
+        return xs[offset + index];
+    }
+
+    /**
+     * Return the y coordinate of the data point at the given index.
+     */
+    public int getY(int index)
+    {
+        checkIndex(index);
+        return ys[offset + index];
+    }
+
+    /**
+     * Return the value of the data point at the given index.
+     */
+    public double getValue(int index)
+    {
+        checkIndex(index);
+        return values[offset + index];
+    }
+
+    /**
+     * Create a DataPoint object for the data point at the given index.
+     */
+    public DataPoint getDataPoint(int index)
+    {
+        checkIndex(index);
+        int i = offset + index;
+        return new DataPoint(gridCodes[i], xs[i], ys[i], values[i]);
+    }
+
+    /**
+     * Call the visitor once for every data point, in order.
+     *
+     * @param visitor the visitor to be called
+     */
+    public void forEach(DataPointVisitor visitor)
+    {
+        for (int i = offset; i < offset + size; i++) {
+            visitor.visit(gridCodes[i], xs[i], ys[i], values[i]);
+        }
+    }
+
+    /**
+     * Return a new cursor positioned before the first data point.
+     */
+    public Cursor cursor()
+    {
+        return new Cursor();
+    }
+
+    /**
+     * Return a read only List view of this dataset. DataPoint objects are only
+     * created when elements of the list are read.
+     */
+    public List<DataPoint> getData()
+    {
+        return new DataPointList();
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * A Cursor moves over the data points of the dataset one at a time.
+     * Call next() before reading the first data point.
+     */
+    public class Cursor
+    {
+        private int index = -1;
+
+        /**
+         * Move to the next data point.
+         * @return true if there is a next data point, false at the end of the dataset
+         */
+        public boolean next()
+        {
+            if (index < size) {
+                index++;
+            }
+            return index < size;
+        }
+
+        /**
+         * Return the index of the current data point.
+         */
+        public int index()
+        {
+            return index;
+        }
+
+        public int gridCode()
+        {
+            return gridCodes[offset + index];
+        }
+
+        public int x()
+        {
+            return xs[offset + index];
+        }
+
+        public int y()
+        {
+            return ys[offset + index];
+        }
+
+        public double value()
+        {
+            return values[offset + index];
+        }
+    }
+
+    /**
+     * The List view returned by getData().
+     */
+    private class DataPointList extends AbstractList<DataPoint> implements RandomAccess
+    {
+        @Override
+        public DataPoint get(int index)
+        {
+            return getDataPoint(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+
+    /**
+     * A Builder collects data points into growable columns and then freezes them
+     * into a ColumnarDataSet.
+     */
+    public static class Builder
+    {
+        private static final int DEFAULT_CAPACITY = 64;
+
+        private int[] gridCodes;
+        private int[] xs;
+        private int[] ys;
+        private double[] values;
+        private int size;
+        // true while the columns are shared with a built dataset
+        private boolean shared;
+
+        /**
+         * Create a builder with a default starting capacity.
+         */
+        public Builder()
+        {
+            this(DEFAULT_CAPACITY);
+        }
+
+        /**
+         * Create a builder with room for the given number of data points.
+         * The columns grow automatically if more are added.
+         */
+        public Builder(int capacity)
+        {
+            capacity = Math.max(capacity, 1);
+            gridCodes = new int[capacity];
+            xs = new int[capacity];
+            ys = new int[capacity];
+            values = new double[capacity];
+        }
+
+        /**
+         * Create a builder that starts out with the data points of an existing
+         * dataset. The columns are shared until more data points are added,
+         * unless the dataset is a slice, whose data points are copied.
+         */
+        public Builder(ColumnarDataSet dataSet)
+        {
+            if (dataSet.offset == 0) {
+                gridCodes = dataSet.gridCodes;
+                xs = dataSet.xs;
+                ys = dataSet.ys;
+                values = dataSet.values;
+                shared = true;
+            } else {
+                int end = dataSet.offset + dataSet.size;
+                gridCodes = Arrays.copyOfRange(dataSet.gridCodes, dataSet.offset, end);
+                xs = Arrays.copyOfRange(dataSet.xs, dataSet.offset, end);
+                ys = Arrays.copyOfRange(dataSet.ys, dataSet.offset, end);
+                values = Arrays.copyOfRange(dataSet.values, dataSet.offset, end);
+            }
+            size = dataSet.size;
+        }
+
+        /**
+         * Add a data point to the columns.
+         */
+        public void add(int gridCode, int x, int y, double value)
+        {
+            if (size == values.length || shared) {
+                grow(size + 1);
+            }
+            gridCodes[size] = gridCode;
+            xs[size] = x;
+            ys[size] = y;
+            values[size] = value;
+            size++;
+        }
+
+        /**
+         * Add a DataPoint object to the columns.
+         */
+        public void add(DataPoint dataPoint)
+        {
+            add(dataPoint.gridCode(), dataPoint.x(), dataPoint.y(), dataPoint.value());
+        }
+
+        /**
+         * Add one data point of an existing dataset to the columns.
+         */
+        public void add(ColumnarDataSet dataSet, int index)
+        {
+            dataSet.checkIndex(index);
+            int i = dataSet.offset + index;
+            add(dataSet.gridCodes[i], dataSet.xs[i], dataSet.ys[i], dataSet.values[i]);
+        }
+
+        /**
+         * Append all the data points of an existing dataset, copying its columns in one go.
+         */
+        public void addAll(ColumnarDataSet dataSet)
+        {
+            if (size + dataSet.size > values.length || shared) {
+                grow(size + dataSet.size);
+            }
+            System.arraycopy(dataSet.gridCodes, dataSet.offset, gridCodes, size, dataSet.size);
+            System.arraycopy(dataSet.xs, dataSet.offset, xs, size, dataSet.size);
+            System.arraycopy(dataSet.ys, dataSet.offset, ys, size, dataSet.size);
+            System.arraycopy(dataSet.values, dataSet.offset, values, size, dataSet.size);
+            size += dataSet.size;
+        }
+
+        /**
+         * Append all the data points collected by another builder.
+         */
+        public void addAll(Builder other)
+        {
+            if (size + other.size > values.length || shared) {
+                grow(size + other.size);
+            }
+            System.arraycopy(other.gridCodes, 0, gridCodes, size, other.size);
+            System.arraycopy(other.xs, 0, xs, size, other.size);
+            System.arraycopy(other.ys, 0, ys, size, other.size);
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        /**
+         * Return the number of data points added so far.
+         */
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         * Freeze the columns into a dataset. The columns are trimmed and handed
+         * to the dataset without another copy. The builder can still be used
+         * afterwards; later additions do not change the dataset returned here.
+         */
+        public ColumnarDataSet build()
+        {
+            if (size == 0) {
+                return EMPTY;
+            }
+            if (size < values.length) {
+                gridCodes = Arrays.copyOf(gridCodes, size);
+                xs = Arrays.copyOf(xs, size);
+                ys = Arrays.copyOf(ys, size);
+                values = Arrays.copyOf(values, size);
+            }
+            shared = true;
+            return new ColumnarDataSet(gridCodes, xs, ys, values, 0, size);
+        }
+
+        /**
+         * Make room for at least minCapacity data points. The columns are
+         * always copied, so a dataset sharing them is never changed.
+         */
+        private void grow(int minCapacity)
+        {
+            int capacity = Math.max(minCapacity, values.length + (values.length >> 1));
+            gridCodes = Arrays.copyOf(gridCodes, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            shared = false;
+        }
+    }
+}
@@ -33,7 +33,7 @@ import javafx.scene.control.DialogPane;
  * and highest pollution levels of, displayed in tables.
  *
  * @author Maria Plesinska
- * @version 1.0
+ * @version 1.1
  */
 public class ComparisonPage
 {
@@ -187,6 +187,7 @@ public class ComparisonPage
         // table contents
         leftTable.setItems(leftTableContents);
         leftTable.getColumns().addAll(pollutionType, averagePollutionLevel, highestPollutionLevel);
+        addPercentileColumns(leftTable);
         
         leftTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         leftTable.setPrefWidth(Region.USE_COMPUTED_SIZE);
@@ -210,9 +211,9 @@ public class ComparisonPage
         
             leftTableContents=
             FXCollections.observableArrayList(
-            new ComparisonTableContents("NO2", no2LeftAverage,no2LeftHighest),
-            new ComparisonTableContents("pm2.5", pm25LeftAverage,pm25LeftHighest),
-            new ComparisonTableContents("pm10", pm10LeftAverage,pm10LeftHighest)
+            comparisonRow("NO2", no2LeftAverage,no2LeftHighest, dataFiles.getQuantiles(leftChosenYear, "no2", "London")),
+            comparisonRow("pm2.5", pm25LeftAverage,pm25LeftHighest, dataFiles.getQuantiles(leftChosenYear, "pm2.5", "London")),
+            comparisonRow("pm10", pm10LeftAverage,pm10LeftHighest, dataFiles.getQuantiles(leftChosenYear, "pm10", "London"))
             ); 
         }
         return leftTableContents;
@@ -241,6 +242,7 @@ public class ComparisonPage
         // table contents
         rightTable.setItems(rightTableContents);
         rightTable.getColumns().addAll(pollutionType, averagePollutionLevel, highestPollutionLevel);
+        addPercentileColumns(rightTable);
         
         rightTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         rightTable.setPrefWidth(Region.USE_COMPUTED_SIZE);
@@ -264,9 +266,9 @@ public class ComparisonPage
         
             rightTableContents=
             FXCollections.observableArrayList(
-            new ComparisonTableContents("NO2", no2RightAverage,no2RightHighest),
-            new ComparisonTableContents("pm2.5", pm25RightAverage,pm25RightHighest),
-            new ComparisonTableContents("pm10", pm10RightAverage,pm10RightHighest)
+            comparisonRow("NO2", no2RightAverage,no2RightHighest, dataFiles.getQuantiles(rightChosenYear, "no2", "London")),
+            comparisonRow("pm2.5", pm25RightAverage,pm25RightHighest, dataFiles.getQuantiles(rightChosenYear, "pm2.5", "London")),
+            comparisonRow("pm10", pm10RightAverage,pm10RightHighest, dataFiles.getQuantiles(rightChosenYear, "pm10", "London"))
             ); 
         }
         return rightTableContents;
@@ -295,6 +297,7 @@ public class ComparisonPage
         // table contents
         differenceTable.setItems(rightTableContents);
         differenceTable.getColumns().addAll(pollutionType, averagePollutionLevel, highestPollutionLevel);
+        addPercentileColumns(differenceTable);
         
         differenceTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         differenceTable.setPrefWidth(Region.USE_COMPUTED_SIZE);
@@ -318,15 +321,56 @@ public class ComparisonPage
         
             differenceTableContents=
             FXCollections.observableArrayList(
-            new ComparisonTableContents("NO2", no2AverageDifference,no2HighestDifference),
-            new ComparisonTableContents("pm2.5", pm25AverageDifference,pm25HighestDifference),
-            new ComparisonTableContents("pm10", pm10AverageDifference,pm10HighestDifference)
+            differenceRow(leftTableContents.get(0), rightTableContents.get(0), no2AverageDifference,no2HighestDifference),
+            differenceRow(leftTableContents.get(1), rightTableContents.get(1), pm25AverageDifference,pm25HighestDifference),
+            differenceRow(leftTableContents.get(2), rightTableContents.get(2), pm10AverageDifference,pm10HighestDifference)
             ); 
         }
         return differenceTableContents;
     }
     
     
+    /**
+     * Adds a column for each percentile shown, which read the p50, p90, p95 and p99 properties of the rows.
+     * @param table the table to add the columns to
+     */
+    private void addPercentileColumns(TableView<ComparisonTableContents> table){
+        for (String percentile : new String[] {"p50", "p90", "p95", "p99"}){
+            TableColumn<ComparisonTableContents, Double> percentileColumn = new TableColumn<>(percentile.toUpperCase());
+            percentileColumn.setCellValueFactory(new PropertyValueFactory<>(percentile));
+            percentileColumn.setMinWidth(60);
+            table.getColumns().add(percentileColumn);
+        }
+    }
+    
+    /**
+     * Returns a row of a year table.
+     * @param pollutionType the name of the pollutant shown in the table
+     * @param average the average pollution level
+     * @param highest the highest pollution level
+     * @param quantiles the sketch of the pollution levels of the year, for the percentiles
+     * @return the row
+     */
+    private ComparisonTableContents comparisonRow(String pollutionType, double average, double highest, QuantileSketch quantiles){
+        return new ComparisonTableContents(pollutionType, average, highest, quantiles.percentile(50), quantiles.percentile(90),
+                                           quantiles.percentile(95), quantiles.percentile(99));
+    }
+    
+    /**
+     * Returns a row of the difference table, with the differences between the percentiles of two rows of the year tables.
+     * @param left the row of the left table
+     * @param right the row of the right table
+     * @param averageDifference the difference between the average pollution levels
+     * @param highestDifference the difference between the highest pollution levels
+     * @return the row
+     */
+    private ComparisonTableContents differenceRow(ComparisonTableContents left, ComparisonTableContents right,
+                                                  double averageDifference, double highestDifference){
+        return new ComparisonTableContents(left.getPollutionType(), averageDifference, highestDifference,
+                                           Math.abs(left.getP50() - right.getP50()), Math.abs(left.getP90() - right.getP90()),
+                                           Math.abs(left.getP95() - right.getP95()), Math.abs(left.getP99() - right.getP99()));
+    }
+    
     /**
      * Returns the DataPoint with the highest pollution level of a given year and pollutant
      * @param year the year you want to find at the data for
@@ -334,19 +378,13 @@ public class ComparisonPage
      * @return the DataPoint with the highest pollution level for the given year and pollutant
      */
     private double getHighestPollution(String year, String pollutant){
-        List<DataPoint> filteredDataPoints = new ArrayList<>();
-        filteredDataPoints = dataFiles.getFilteredDataPoints(year, pollutant,"London");
+        RankIndex ranks = dataFiles.getRankIndex(year, pollutant,"London");
         
-        DataPoint highestPollutionDp = null;
-        double highestPollutionLevel = 0;
-        for (DataPoint dataPoint : filteredDataPoints){
-            if (dataPoint.value() > highestPollutionLevel){
-                highestPollutionDp = dataPoint;
-                highestPollutionLevel = dataPoint.value();
-            }
+        // only pollution levels above zero count
+        if (ranks.isEmpty()){
+            return 0;
         }
-        
-        return highestPollutionLevel;
+        return Math.max(0, ranks.getValue(0));
     }
     
     /**
@@ -356,15 +394,7 @@ public class ComparisonPage
      * @return the average pollution level for the given year and pollutant
      */
     private double getAverageYearPollution(String year, String pollutant){
-        List<DataPoint> filteredDataPoints = new ArrayList<>();
-        filteredDataPoints = dataFiles.getFilteredDataPoints(year, pollutant,"London");
-        
-        double totalPollution = 0;
-        for (DataPoint dataPoint : filteredDataPoints){
-            totalPollution = totalPollution + dataPoint.value();
-        }
-        double averagePollution = totalPollution / filteredDataPoints.size();
-        return averagePollution;
+        return dataFiles.getStatistics(year, pollutant,"London").mean();
     }
     
     /**
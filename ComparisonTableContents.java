@@ -3,22 +3,40 @@
  * Contains all the information that the comparison tables should contain.
  *
  * @author Maria Plesinska
- * @version 1.0
+ * @version 1.1
  */
 public class ComparisonTableContents
 {
     private String pollutionType;
     private double averagePollution;
     private double highestPollution;
+    // percentiles of the pollution levels, NaN if the table does not show them
+    private double p50;
+    private double p90;
+    private double p95;
+    private double p99;
 
     /**
      * Constructor for objects of class ComparisonTableContents
      */
     public ComparisonTableContents(String pollutionType, double averagePollution, double highestPollution)
+    {
+        this(pollutionType, averagePollution, highestPollution, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+    }
+    
+    /**
+     * Constructor for objects of class ComparisonTableContents with percentiles
+     */
+    public ComparisonTableContents(String pollutionType, double averagePollution, double highestPollution,
+                                   double p50, double p90, double p95, double p99)
     {
         this.pollutionType = pollutionType;
         this.averagePollution = averagePollution;
         this.highestPollution = highestPollution;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p95 = p95;
+        this.p99 = p99;
     }
 
     // Getters
@@ -34,6 +52,22 @@ public class ComparisonTableContents
         return highestPollution;
     }
     
+    public double getP50(){
+        return p50;
+    }
+    
+    public double getP90(){
+        return p90;
+    }
+    
+    public double getP95(){
+        return p95;
+    }
+    
+    public double getP99(){
+        return p99;
+    }
+    
     // Setters
     public void setPollutionType(String pollutionType){
         this.pollutionType = pollutionType;
@@ -46,4 +80,20 @@ public class ComparisonTableContents
     public void setHighestPollution(double highestPollution){
         this.highestPollution = highestPollution;
     }
+    
+    public void setP50(double p50){
+        this.p50 = p50;
+    }
+    
+    public void setP90(double p90){
+        this.p90 = p90;
+    }
+    
+    public void setP95(double p95){
+        this.p95 = p95;
+    }
+    
+    public void setP99(double p99){
+        this.p99 = p99;
+    }
 }
@@ -0,0 +1,255 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The DataCatalog knows which pollution data files there are and what is in them,
+ * without loading their data.
+ *
+ * Only the first few kilobytes of each file are read: the four header lines
+ * (pollutant, year, metric and units, the same ones DataLoader reads) and a
+ * few data rows to estimate the number of rows in the file. The entries are kept
+ * in a manifest keyed by pollutant, year and metric, so finding the file for a
+ * pollutant and year does not depend on the file name. They are also indexed by
+ * pollutant and year, and by pollutant, so no lookup goes through all the entries.
+ * A second file with the same pollutant, year and metric as an earlier one is
+ * left out of the catalog and reported as a duplicate.
+ *
+ * @author Sara Ajdini
+ * @version 1.1
+ */
+public class DataCatalog
+{
+    // enough for the header lines and a sample of data rows
+    private static final int SAMPLE_BYTES = 8 * 1024;
+
+    private List<CatalogEntry> entries;
+    private Map<String, CatalogEntry> manifest;
+    // the entries of each pollutant and year, and of each pollutant ordered by year
+    private Map<String, List<CatalogEntry>> byPollutantYear;
+    private Map<String, List<CatalogEntry>> byPollutant;
+    private List<CatalogEntry> duplicates;
+    private long scanNanos;
+
+    /**
+     * Build a catalog of all the files in a directory and its subfolders.
+     *
+     * @param directory the directory holding the pollution data files
+     */
+    public DataCatalog(File directory)
+    {
+        long start = System.nanoTime();
+        entries = new ArrayList<>();
+        manifest = new HashMap<>();
+        byPollutantYear = new HashMap<>();
+        byPollutant = new HashMap<>();
+        duplicates = new ArrayList<>();
+        scanDirectory(directory, directory.getPath());
+        entries = Collections.unmodifiableList(entries);
+        duplicates = Collections.unmodifiableList(duplicates);
+        for (List<CatalogEntry> pollutantEntries : byPollutant.values()) {
+            pollutantEntries.sort(Comparator.comparing(CatalogEntry::year));
+        }
+        scanNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Return the normalised form of a pollutant, year or metric, as used in the
+     * manifest keys: without surrounding spaces and in lower case.
+     */
+    public static String normalise(String value)
+    {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Return the entry for the given pollutant, year and metric.
+     *
+     * @return the catalog entry, or null if there is no such file
+     */
+    public CatalogEntry find(String pollutant, String year, String metric)
+    {
+        return manifest.get(key(pollutant, year, metric));
+    }
+
+    /**
+     * Return the entries for the given pollutant and year, whatever their metric.
+     */
+    public List<CatalogEntry> find(String pollutant, String year)
+    {
+        return unmodifiable(byPollutantYear.get(normalise(pollutant) + "|" + normalise(year)));
+    }
+
+    /**
+     * Return the entries for the given pollutant, ordered by year.
+     */
+    public List<CatalogEntry> findByPollutant(String pollutant)
+    {
+        return unmodifiable(byPollutant.get(normalise(pollutant)));
+    }
+
+    /**
+     * Return all the entries, in the order of the file names.
+     */
+    public List<CatalogEntry> getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * Return the files that were left out because an earlier file has the same
+     * pollutant, year and metric.
+     */
+    public List<CatalogEntry> getDuplicates()
+    {
+        return duplicates;
+    }
+
+    /**
+     * Return the names of all the files in the catalog, in alphabetical order.
+     */
+    public List<String> getFileNames()
+    {
+        List<String> fileNames = new ArrayList<>(entries.size());
+        for (CatalogEntry entry : entries) {
+            fileNames.add(entry.fileName());
+        }
+        return fileNames;
+    }
+
+    /**
+     * Return how long building the catalog took, in nanoseconds.
+     */
+    public long getScanNanos()
+    {
+        return scanNanos;
+    }
+
+    /**
+     * Add all the csv files in a directory and its subfolders to the catalog,
+     * leaving out hidden folders, such as the one the snapshots of the files are
+     * kept in.
+     */
+    private void scanDirectory(File directory, String path)
+    {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String fileName = path + "/" + file.getName();
+            if (file.isDirectory()) {
+                if (!file.isHidden() && !file.getName().startsWith(".")
+                        && !file.getName().equals(DataSnapshot.CACHE_DIRECTORY)) {
+                    scanDirectory(file, fileName);
+                }
+            } else if (file.getName().endsWith(".csv")) {
+                try {
+                    add(readEntry(file, fileName));
+                }
+                catch (IOException e) {
+                    System.err.println("Could not read the header of " + fileName + ": " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add an entry to the manifest and the indexes, unless there already is an
+     * entry with the same pollutant, year and metric.
+     */
+    private void add(CatalogEntry entry)
+    {
+        CatalogEntry existing = manifest.putIfAbsent(key(entry.pollutant(), entry.year(), entry.metric()), entry);
+        if (existing != null) {
+            duplicates.add(entry);
+            System.err.println("Left out " + entry.fileName() + ": it has the same pollutant, year and metric as "
+                               + existing.fileName());
+            return;
+        }
+        entries.add(entry);
+        String pollutant = normalise(entry.pollutant());
+        byPollutantYear.computeIfAbsent(pollutant + "|" + normalise(entry.year()), k -> new ArrayList<>()).add(entry);
+        byPollutant.computeIfAbsent(pollutant, k -> new ArrayList<>()).add(entry);
+    }
+
+    /**
+     * Read the header of one file and estimate its number of data rows.
+     */
+    private CatalogEntry readEntry(File file, String fileName)
+        throws IOException
+    {
+        ByteBuffer sample = ByteBuffer.allocate(SAMPLE_BYTES);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (sample.hasRemaining()) {
+                if (channel.read(sample) < 0) {
+                    break;
+                }
+            }
+        }
+        sample.flip();
+
+        DataFileParser parser = new DataFileParser(sample);
+        String pollutant = parser.readDataHeader();
+        String year = parser.readDataHeader();
+        String metric = parser.readDataHeader();
+        String units = parser.readDataHeader();
+        // the empty line and the column labels
+        parser.readDataHeader();
+        parser.readDataHeader();
+
+        long size = file.length();
+        int dataStart = parser.getPosition();
+        return new CatalogEntry(fileName, pollutant, year, metric, units, size,
+                                estimateRows(sample, dataStart, size), file.lastModified());
+    }
+
+    /**
+     * Estimate the number of data rows in a file from the average length of
+     * the complete rows in the sample.
+     */
+    private long estimateRows(ByteBuffer sample, int dataStart, long size)
+    {
+        int rows = 0;
+        int lastLineEnd = dataStart;
+        for (int i = dataStart; i < sample.limit(); i++) {
+            if (sample.get(i) == '\n') {
+                rows++;
+                lastLineEnd = i + 1;
+            }
+        }
+        if (sample.limit() == size) {
+            // the whole file fits in the sample, so count the last row too
+            return lastLineEnd < size ? rows + 1 : rows;
+        }
+        if (rows == 0) {
+            return 0;
+        }
+        double averageRowBytes = (double) (lastLineEnd - dataStart) / rows;
+        return Math.round((size - dataStart) / averageRowBytes);
+    }
+
+    private static List<CatalogEntry> unmodifiable(List<CatalogEntry> found)
+    {
+        return found == null ? Collections.emptyList() : Collections.unmodifiableList(found);
+    }
+
+    /**
+     * Return the manifest key for a pollutant, year and metric.
+     */
+    private static String key(String pollutant, String year, String metric)
+    {
+        return normalise(pollutant) + "|" + normalise(year) + "|" + normalise(metric);
+    }
+}
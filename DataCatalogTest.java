@@ -0,0 +1,162 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Test class for DataCatalog.
+ * This class verifies that entries are found by pollutant and year, and by
+ * pollutant in year order, that a duplicate file is left out and reported, and
+ * that the snapshot cache next to the files is not scanned.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class DataCatalogTest
+{
+    @TempDir
+    File folder;
+
+    private DataCatalog catalog;
+
+    /**
+     * Default constructor for test class DataCatalogTest
+     */
+    public DataCatalogTest()
+    {
+    }
+
+    /**
+     * Writes a few small data files and builds a catalog of them.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        write("a_no2_2019.csv", "NO2", "2019", "annual mean");
+        write("b_no2_2018.csv", "NO2", "2018", "annual mean");
+        write("c_no2_2018_max.csv", "NO2", "2018", "max");
+        write("d_pm10_2018.csv", "PM10", "2018", "annual mean");
+        File subfolder = new File(folder, "more");
+        assertTrue(subfolder.mkdir());
+        write("more/e_no2_2019_copy.csv", " no2 ", "2019", "Annual Mean");
+        catalog = new DataCatalog(folder);
+    }
+
+    private void write(String fileName, String pollutant, String year, String metric) throws IOException
+    {
+        String contents = pollutant + ",,,\n" + year + ",,,\n" + metric + ",,,\nugm-3,,,\n,,,\ngridcode,x,y,value\n"
+                          + "1,530500,180500,20.5\n2,420500,430500,12.25\n";
+        Files.write(new File(folder, fileName).toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String name(CatalogEntry entry)
+    {
+        return new File(entry.fileName()).getName();
+    }
+
+    /**
+     * Tests that the snapshots a run leaves next to the data files, and files that
+     * are not csv files, are not taken for data files by the next run.
+     */
+    @Test
+    public void testSkipsSnapshots() throws IOException
+    {
+        File csvFile = new File(folder, "a_no2_2019.csv");
+        DataSet dataSet = new DataSet("NO2", "2019", "annual mean", "ugm-3");
+        dataSet.addData(1, 530500, 180500, 20.5);
+        File snapshotFile = DataSnapshot.getSnapshotFile(csvFile, CityRegion.values());
+        DataSnapshot.write(dataSet, csvFile, 0, snapshotFile, CityRegion.values());
+        assertTrue(snapshotFile.isFile());
+        Files.write(new File(folder, "notes.txt").toPath(), "NO2,,,\n2020,,,\n".getBytes(StandardCharsets.UTF_8));
+
+        for (int run = 0; run < 3; run++) {
+            DataCatalog again = new DataCatalog(folder);
+            assertEquals(4, again.getEntries().size());
+            assertEquals(1, again.getDuplicates().size());
+            for (String fileName : again.getFileNames()) {
+                assertTrue(fileName.endsWith(".csv"), fileName);
+                assertFalse(fileName.contains(DataSnapshot.CACHE_DIRECTORY), fileName);
+            }
+        }
+    }
+
+    /**
+     * Tests that csv files in hidden folders are left out.
+     */
+    @Test
+    public void testSkipsHiddenFolders() throws IOException
+    {
+        assertTrue(new File(folder, ".backup").mkdir());
+        write(".backup/f_pm25_2020.csv", "PM2.5", "2020", "annual mean");
+        DataCatalog again = new DataCatalog(folder);
+        assertEquals(4, again.getEntries().size());
+        assertTrue(again.findByPollutant("pm2.5").isEmpty());
+    }
+
+    /**
+     * Tests that the entries of a pollutant and year are found whatever their metric.
+     */
+    @Test
+    public void testFindByPollutantAndYear()
+    {
+        List<CatalogEntry> found = catalog.find("NO2", "2018");
+        assertEquals(2, found.size());
+        assertEquals("b_no2_2018.csv", name(found.get(0)));
+        assertEquals("c_no2_2018_max.csv", name(found.get(1)));
+        assertEquals(1, catalog.find(" no2", "2019").size());
+        assertTrue(catalog.find("NO2", "2020").isEmpty());
+        assertTrue(catalog.find("SO2", "2018").isEmpty());
+    }
+
+    /**
+     * Tests that the entries of a pollutant come ordered by year.
+     */
+    @Test
+    public void testFindByPollutant()
+    {
+        List<CatalogEntry> found = catalog.findByPollutant("no2");
+        assertEquals(3, found.size());
+        assertEquals("2018", found.get(0).year());
+        assertEquals("2018", found.get(1).year());
+        assertEquals("2019", found.get(2).year());
+        assertEquals(1, catalog.findByPollutant("PM10").size());
+        assertTrue(catalog.findByPollutant("SO2").isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> found.clear());
+    }
+
+    /**
+     * Tests that a file with the same pollutant, year and metric as an earlier one
+     * is left out of the catalog and reported.
+     */
+    @Test
+    public void testDuplicate()
+    {
+        assertEquals(4, catalog.getEntries().size());
+        assertEquals(1, catalog.getDuplicates().size());
+        assertEquals("e_no2_2019_copy.csv", name(catalog.getDuplicates().get(0)));
+        assertEquals("a_no2_2019.csv", name(catalog.find("NO2", "2019", "annual mean")));
+        assertFalse(catalog.getFileNames().contains(catalog.getDuplicates().get(0).fileName()));
+    }
+
+    /**
+     * Tests that the header and the row count of a small file are read.
+     */
+    @Test
+    public void testEntry()
+    {
+        CatalogEntry entry = catalog.find("PM10", "2018", "ANNUAL MEAN");
+        assertNotNull(entry);
+        assertEquals("ugm-3", entry.units());
+        assertEquals(2, entry.estimatedRows());
+        assertNull(catalog.find("PM10", "2018", "max"));
+    }
+}
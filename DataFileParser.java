@@ -0,0 +1,418 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a DEFRA air pollution csv file straight from its bytes.
+ *
+ * Unlike the line based reading in DataLoader, no Strings or String arrays are
+ * created for the data rows: the gridcode, x, y and value columns are read from
+ * the buffer directly into primitives. The header is handled exactly like
+ * DataLoader.readDataHeader does, and fields that are not readable numbers are
+ * stored as -1 (or -1.0), the same as DataSet.toInt and DataSet.toDouble.
+ *
+ * The parser can be given a set of city regions. Rows whose x and y coordinates
+ * are outside all of them are dropped as soon as the coordinates are read, before
+ * the gridcode and value are parsed, so they cost only a few byte comparisons.
+ *
+ * Large files can also be parsed in parallel: the data rows are split into byte
+ * ranges that start at line boundaries, each range is parsed on its own core into
+ * its own columns, and the columns are joined in file order afterwards.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class DataFileParser
+{
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    // powers of ten that are exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // largest mantissa that can be converted to a double without rounding (2^53)
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    // rough size of one data row, used to size the columns up front
+    private static final int ESTIMATED_ROW_BYTES = 32;
+
+    private ByteBuffer buffer;
+    private int position;
+    private int limit;
+    // rows outside all of these are dropped, an empty array keeps every row
+    private CityRegion[] regions;
+
+    /**
+     * Constructor for objects of class DataFileParser
+     *
+     * @param buffer the complete contents of a DEFRA csv file
+     * @param regions only rows inside one of these cities are kept; if there are none, all rows are kept
+     */
+    public DataFileParser(ByteBuffer buffer, CityRegion... regions)
+    {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+        this.regions = regions.clone();
+    }
+
+    /**
+     * Parse the whole file, header and data rows, into a DataSet.
+     *
+     * @return A DataSet object holding the complete dataset
+     */
+    public DataSet parse()
+    {
+        return parse(1);
+    }
+
+    /**
+     * Parse the whole file, header and data rows, into a DataSet, splitting the
+     * data rows into the given number of chunks that are parsed in parallel.
+     * The data points are in the same order as when parsing on a single core.
+     *
+     * @param chunks the number of chunks to split the data rows into
+     * @return A DataSet object holding the complete dataset
+     */
+    public DataSet parse(int chunks)
+    {
+        String pollutant = readDataHeader();
+        String year = readDataHeader();
+        String metric = readDataHeader();
+        String units = readDataHeader();
+
+        // discard the empty line and the column labels
+        skipLine();
+        skipLine();
+
+        ColumnarDataSet.Builder columns;
+        if (chunks <= 1) {
+            columns = new ColumnarDataSet.Builder((limit - position) / ESTIMATED_ROW_BYTES);
+            parseRows(position, limit, columns);
+        } else {
+            columns = parseChunks(chunks);
+        }
+        position = limit;
+        return new DataSet(pollutant, year, metric, units, columns.build());
+    }
+
+    /**
+     * Parse the rest of the buffer in parallel chunks that each start at a line boundary.
+     * The chunks run on the current fork/join pool, or on the common pool if this
+     * is not called from one.
+     */
+    private ColumnarDataSet.Builder parseChunks(int chunks)
+    {
+        List<ChunkTask> tasks = new ArrayList<>(chunks);
+        long chunkSize = Math.max(1, (long) (limit - position) / chunks);
+        int chunkStart = position;
+        for (int i = 1; i <= chunks && chunkStart < limit; i++) {
+            int chunkEnd = limit;
+            if (i < chunks) {
+                long target = Math.min(limit, position + i * chunkSize);
+                chunkEnd = Math.max(chunkStart, nextLineStart(findLineEnd((int) target, limit), limit));
+            }
+            if (chunkEnd > chunkStart) {
+                tasks.add(new ChunkTask(chunkStart, chunkEnd));
+            }
+            chunkStart = chunkEnd;
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        int size = 0;
+        for (ChunkTask task : tasks) {
+            size += task.join().size();
+        }
+        ColumnarDataSet.Builder columns = new ColumnarDataSet.Builder(size);
+        for (ChunkTask task : tasks) {
+            columns.addAll(task.join());
+        }
+        return columns;
+    }
+
+    /**
+     * Parse all the data rows between two byte offsets of the buffer into columns.
+     * The start offset must be at the beginning of a line. Empty lines are skipped.
+     *
+     * @param start the offset of the first byte to parse
+     * @param end the offset after the last byte to parse
+     * @param columns the columns the rows are added to
+     */
+    public void parseRows(int start, int end, ColumnarDataSet.Builder columns)
+    {
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = findLineEnd(lineStart, end);
+            if (lineEnd > lineStart) {
+                parseRow(lineStart, lineEnd, columns);
+            }
+            lineStart = nextLineStart(lineEnd, end);
+        }
+    }
+
+    /**
+     * Parse one data row of the format gridcode,x,y,value.
+     * Missing fields are stored as -1, just like unreadable ones.
+     * The coordinates are read first, so rows outside the regions are skipped
+     * without parsing the gridcode or value.
+     */
+    private void parseRow(int start, int end, ColumnarDataSet.Builder columns)
+    {
+        int gridCodeStart = start;
+        int gridCodeEnd = findFieldEnd(start, end);
+
+        start = Math.min(gridCodeEnd + 1, end);
+        int fieldEnd = findFieldEnd(start, end);
+        int x = parseInt(start, fieldEnd);
+
+        start = Math.min(fieldEnd + 1, end);
+        fieldEnd = findFieldEnd(start, end);
+        int y = parseInt(start, fieldEnd);
+
+        if (regions.length > 0 && !CityRegion.containsAny(regions, x, y)) {
+            return;
+        }
+        int gridCode = parseInt(gridCodeStart, gridCodeEnd);
+
+        start = Math.min(fieldEnd + 1, end);
+        fieldEnd = findFieldEnd(start, end);
+        double value = parseDouble(start, fieldEnd);
+
+        columns.add(gridCode, x, y, value);
+    }
+
+    /**
+     * Read one piece of information out of the header of the data file.
+     * Like DataLoader.readDataHeader, only the data in the first column is returned.
+     *
+     * @return The data from the next header line of the file
+     */
+    public String readDataHeader()
+    {
+        int lineEnd = findLineEnd(position, limit);
+        int fieldEnd = findFieldEnd(position, lineEnd);
+        String header = decode(position, fieldEnd);
+        position = nextLineStart(lineEnd, limit);
+        return header;
+    }
+
+    /**
+     * Return the offset of the next byte that will be read, for example the start
+     * of the data rows after all the header lines have been read.
+     */
+    public int getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * Skip to the start of the next line.
+     */
+    private void skipLine()
+    {
+        position = nextLineStart(findLineEnd(position, limit), limit);
+    }
+
+    /**
+     * Return the offset of the first line break at or after start, or end if there is none.
+     */
+    private int findLineEnd(int start, int end)
+    {
+        int i = start;
+        while (i < end) {
+            byte b = buffer.get(i);
+            if (b == LF || b == CR) {
+                return i;
+            }
+            i++;
+        }
+        return end;
+    }
+
+    /**
+     * Return the offset at which the line after a line break starts.
+     * Handles \n, \r\n and \r endings the same way BufferedReader.readLine does.
+     */
+    private int nextLineStart(int lineEnd, int end)
+    {
+        if (lineEnd >= end) {
+            return end;
+        }
+        if (buffer.get(lineEnd) == CR && lineEnd + 1 < end && buffer.get(lineEnd + 1) == LF) {
+            return lineEnd + 2;
+        }
+        return lineEnd + 1;
+    }
+
+    /**
+     * Return the offset of the next comma at or after start, or end if there is none.
+     */
+    private int findFieldEnd(int start, int end)
+    {
+        int i = start;
+        while (i < end && buffer.get(i) != COMMA) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Convert the bytes of a field to int.
+     * Accepts the same input as Integer.parseInt for ascii digits.
+     *
+     * @return The int value, or -1 if the field is not a readable number
+     */
+    private int parseInt(int start, int end)
+    {
+        if (start >= end) {
+            return -1;
+        }
+        boolean negative = false;
+        int i = start;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (i == end) {
+                return -1;
+            }
+        }
+        long result = 0;
+        while (i < end) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return fallbackParseInt(start, end);
+            }
+            result = result * 10 + digit;
+            if (result > (long) Integer.MAX_VALUE + 1) {
+                return -1;
+            }
+            i++;
+        }
+        result = negative ? -result : result;
+        if (result > Integer.MAX_VALUE || result < Integer.MIN_VALUE) {
+            return -1;
+        }
+        return (int) result;
+    }
+
+    /**
+     * Convert the bytes of a field to double.
+     * Plain decimals such as 12.3456 are converted directly from the bytes. Anything
+     * else (exponents, whitespace, words like MISSING) is handed to Double.parseDouble
+     * so the result is always the same as DataSet.toDouble.
+     *
+     * @return The double value, or -1.0 if the field is not a readable number
+     */
+    private double parseDouble(int start, int end)
+    {
+        if (start >= end) {
+            return -1.0;
+        }
+        boolean negative = false;
+        int i = start;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        while (i < end) {
+            byte b = buffer.get(i);
+            if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            }
+            else if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return fallbackParseDouble(start, end);
+                }
+            }
+            else {
+                return fallbackParseDouble(start, end);
+            }
+            i++;
+        }
+        if (digits == 0 || fractionDigits >= POWERS_OF_TEN.length) {
+            return fallbackParseDouble(start, end);
+        }
+        // both operands are exact, so the division is correctly rounded just like parseDouble
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse an int field the slow way, for input the fast path does not handle.
+     */
+    private int fallbackParseInt(int start, int end)
+    {
+        try {
+            return Integer.parseInt(decode(start, end));
+        }
+        catch (NumberFormatException exc) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parse a double field the slow way, for input the fast path does not handle.
+     */
+    private double fallbackParseDouble(int start, int end)
+    {
+        try {
+            return Double.parseDouble(decode(start, end));
+        }
+        catch (NumberFormatException exc) {
+            return -1.0;
+        }
+    }
+
+    /**
+     * Decode a range of the buffer into a String, using the same charset as FileReader.
+     */
+    private String decode(int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+    /**
+     * Parses one chunk of data rows into its own columns.
+     */
+    private class ChunkTask extends RecursiveTask<ColumnarDataSet.Builder>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        ChunkTask(int start, int end)
+        {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected ColumnarDataSet.Builder compute()
+        {
+            ColumnarDataSet.Builder columns = new ColumnarDataSet.Builder((end - start) / ESTIMATED_ROW_BYTES);
+            parseRows(start, end, columns);
+            return columns;
+        }
+    }
+}
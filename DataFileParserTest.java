@@ -0,0 +1,167 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Test class for DataFileParser.
+ * This class verifies that parsing a file from its bytes gives the same
+ * header and data points as the line based parsing in DataSet.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class DataFileParserTest
+{
+    private static final String HEADER = "NO2,,,\n2019,,,\nannual mean,,,\nugm-3,,,\n,,,\ngridcode,x,y,no22019\n";
+
+    private DataSet expected;
+
+    /**
+     * Default constructor for test class DataFileParserTest
+     */
+    public DataFileParserTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp()
+    {
+        expected = new DataSet("NO2", "2019", "annual mean", "ugm-3");
+    }
+
+    /**
+     * Parses a file held in a String.
+     */
+    private DataSet parse(String contents)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8));
+        return new DataFileParser(buffer).parse();
+    }
+
+    /**
+     * Tests that the header lines are read the same way as DataLoader does.
+     */
+    @Test
+    public void testHeader()
+    {
+        DataSet dataSet = parse(HEADER);
+        assertEquals("NO2", dataSet.getPollutant());
+        assertEquals("2019", dataSet.getYear());
+        assertEquals("annual mean", dataSet.getMetric());
+        assertEquals("ugm-3", dataSet.getUnits());
+        assertTrue(dataSet.getData().isEmpty());
+    }
+
+    /**
+     * Tests that plain rows give exactly the same values as DataSet.addData.
+     */
+    @Test
+    public void testRowsMatchStringParsing()
+    {
+        String[] rows = {
+            "771285,530500,180500,35.1234",
+            "771286,531500,180500,0.1",
+            "771287,532500,180500,-2.75",
+            "771288,533500,180500,19.999999999",
+            "771289,534500,180500,1e1",
+            "771290,535500,180500,12"
+        };
+        StringBuilder contents = new StringBuilder(HEADER);
+        for (String row : rows) {
+            contents.append(row).append("\r\n");
+            expected.addData(row.split(","));
+        }
+        assertEquals(expected.getData(), parse(contents.toString()).getData());
+    }
+
+    /**
+     * Tests that unreadable and missing values are stored as -1,
+     * just like DataSet.toInt and DataSet.toDouble.
+     */
+    @Test
+    public void testMissingValues()
+    {
+        List<DataPoint> data = parse(HEADER + "771285,530500,180500,MISSING\nabc,,180500,\n12,99999999999,3").getData();
+        assertEquals(new DataPoint(771285, 530500, 180500, -1.0), data.get(0));
+        assertEquals(new DataPoint(-1, -1, 180500, -1.0), data.get(1));
+        assertEquals(new DataPoint(12, -1, 3, -1.0), data.get(2));
+    }
+
+    /**
+     * Tests that empty lines between rows are skipped.
+     */
+    @Test
+    public void testEmptyLines()
+    {
+        DataSet dataSet = parse(HEADER + "1,2,3,4.5\n\n6,7,8,9.5\n");
+        assertEquals(2, dataSet.getData().size());
+    }
+
+    /**
+     * Tests that parsing in parallel chunks gives the same data points, in the
+     * same order, as parsing on a single core.
+     */
+    @Test
+    public void testParallelChunks()
+    {
+        StringBuilder contents = new StringBuilder(HEADER);
+        for (int i = 0; i < 1000; i++) {
+            String lineEnd = i % 3 == 0 ? "\r\n" : "\n";
+            contents.append(i).append(',').append(500 + i).append(',').append(1000 + i).append(',').append(i / 7.0).append(lineEnd);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(contents.toString().getBytes(StandardCharsets.UTF_8));
+        List<DataPoint> serial = new DataFileParser(buffer).parse(1).getData();
+        for (int chunks = 2; chunks <= 7; chunks++) {
+            assertEquals(serial, new DataFileParser(buffer).parse(chunks).getData(), chunks + " chunks");
+        }
+        assertEquals(1000, serial.size());
+    }
+
+    /**
+     * Tests that only rows inside the given cities are kept, including rows
+     * whose value could not be read, and that rows on the edge of a city are left out.
+     */
+    @Test
+    public void testRegions()
+    {
+        String contents = HEADER
+            + "1,530500,180500,35.1\n"      // London
+            + "2,430500,430500,12.5\n"      // Leeds
+            + "3,453500,205500,MISSING\n"   // Oxford
+            + "4,300500,300500,8.0\n"       // nowhere
+            + "5,510394,180500,9.0\n";      // on the edge of London
+        ByteBuffer buffer = ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8));
+
+        List<DataPoint> london = new DataFileParser(buffer, CityRegion.LONDON).parse().getData();
+        assertEquals(List.of(new DataPoint(1, 530500, 180500, 35.1)), london);
+
+        List<DataPoint> cities = new DataFileParser(buffer, CityRegion.values()).parse(2).getData();
+        assertEquals(List.of(new DataPoint(1, 530500, 180500, 35.1),
+                             new DataPoint(2, 430500, 430500, 12.5),
+                             new DataPoint(3, 453500, 205500, -1.0)), cities);
+
+        assertEquals(5, new DataFileParser(buffer).parse().getData().size());
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @AfterEach
+    public void tearDown()
+    {
+        expected = null;
+    }
+}
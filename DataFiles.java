@@ -1,51 +1,71 @@
 import java.util.List;
 import java.io.File;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Stores and sorts through all the csv files with the pollution statistics.
  *
  * @author Maria Plesinska
- * @version 1.4
+ * @version 1.5
  */
 public class DataFiles
 {
     List<String> pollutionDataFiles;
     List<SimpleDataSet> locationOnlyDataSets;
+    private DataCatalog catalog;
+    private IngestReport ingestReport;
+    private PartitionIndex partitions;
+    private GridSeriesIndex seriesIndex;
+    private StatisticsCube statistics;
+    // only used in lazy mode, null when all files are loaded up front
+    private DataSetCache cache;
+    private DataLoader loader;
        
        
     /**
-     * Constructor for objects of class DataFiles
+     * Constructor for objects of class DataFiles.
+     * All the files are loaded up front.
      */
     public DataFiles()
     {
-        pollutionDataFiles = new LinkedList<>();
         File directory = new File("UKAirPollutionData");
-        pollutionDataFiles = findFiles(directory, pollutionDataFiles);
+        catalog = new DataCatalog(directory);
+        pollutionDataFiles = catalog.getFileNames();
         locationOnlyDataSets = locationOnlyData(pollutionDataFiles);
+        partitions = new PartitionIndex();
+        seriesIndex = new GridSeriesIndex();
+        statistics = new StatisticsCube();
+        for (SimpleDataSet dataSet : locationOnlyDataSets) {
+            dataSetAdded(dataSet);
+        }
     }
     
-
     /**
-     * Searches through a directory including all subfolders
-     * and returns a List of all the file names found.
-     * @param directory the directory and its subfolders you want all the files from
-     * @param files the List in which you want all the file names to be stored in
-     * @return a list of all file names and their directory in a given directory and its subfolders
-     */
-    public List<String> findFiles(File directory, List<String> files){
-        for (File file : directory.listFiles()){
-            if (file.isDirectory()){
-                findFiles(file, files);
-            } else {
-                String fileName = file.getName();
-                files.add(directory + "/" + fileName);
-            }
-        }
-        return files;
+     * Constructor for objects of class DataFiles in lazy mode.
+     * No files are loaded up front: the data set of a pollutant and year is loaded
+     * the first time it is asked for, and the least recently used data sets are
+     * dropped again when they, with the indexes and statistics built from them, take
+     * up more than the heap budget.
+     * @param heapBudgetBytes roughly how many bytes of heap the loaded data sets may use
+     */
+    public DataFiles(long heapBudgetBytes)
+    {
+        File directory = new File("UKAirPollutionData");
+        catalog = new DataCatalog(directory);
+        pollutionDataFiles = catalog.getFileNames();
+        loader = new DataLoader();
+        partitions = new PartitionIndex();
+        seriesIndex = new GridSeriesIndex();
+        statistics = new StatisticsCube();
+        cache = new DataSetCache(heapBudgetBytes, this::estimateBytes, this::dataSetEvicted);
+        ingestReport = IngestReport.EMPTY;
     }
     
+
     /**
      * Return only the data points relevant to the filters you choose
      * @param year the year you want to get the file of
@@ -53,83 +73,439 @@ public class DataFiles
      * @return a list of DataPoints that are in location, and have the specified year and pollutant
      */
     public List<DataPoint> getFilteredDataPoints(String year, String pollutant, String location) {
-        List<DataPoint> filteredDataPoints = new LinkedList<>();
-        pollutant = pollutant.toLowerCase();
+        return getFilteredColumns(year, pollutant, location).getData();
+    }
     
-        for (SimpleDataSet dataSet : locationOnlyDataSets) {
-            if (dataSet.getYear().equals(year) && dataSet.getPollutant().toLowerCase().equals(pollutant)) {
-                dataSet.getData().stream()
-                       .filter(dp -> isInLocation(dp, location))
-                       .forEach(filteredDataPoints::add);
+    /**
+     * Return only the data points relevant to the filters you choose, as primitive columns.
+     * The columns come ready made from the partition index, so this is a single lookup.
+     * They cannot be changed and are shared between callers.
+     * @param year the year you want to get the file of
+     * @param pollutant the pollutant you want to get the file of
+     * @param location the location the data points have to be in
+     * @return the columns of the data points that are in location, and have the specified year and pollutant
+     */
+    public ColumnarDataSet getFilteredColumns(String year, String pollutant, String location) {
+        if (cache != null) {
+            loadDataSet(year, pollutant);
+        }
+        ColumnarDataSet columns = partitions.get(location, pollutant, year);
+        return columns == null ? ColumnarDataSet.EMPTY : columns;
+    }
+
+    
+    /**
+     * Return the statistics of the data points that getFilteredColumns returns for
+     * the same filters. They are collected when the data is loaded, so this is a lookup.
+     * @param year the year you want the statistics of
+     * @param pollutant the pollutant you want the statistics of
+     * @param location the location the data points have to be in
+     * @return the statistics, empty if there is no data for the filters
+     */
+    public PollutionStatistics getStatistics(String year, String pollutant, String location) {
+        if (cache != null) {
+            loadDataSet(year, pollutant);
+        }
+        return statistics.get(location, pollutant, year);
+    }
+    
+    /**
+     * Return a sketch of the values of the data points that getFilteredColumns
+     * returns for the same filters, to find percentiles such as the median.
+     * @param year the year you want the percentiles of
+     * @param pollutant the pollutant you want the percentiles of
+     * @param location the location the data points have to be in
+     * @return the sketch, empty if there is no data for the filters
+     */
+    public QuantileSketch getQuantiles(String year, String pollutant, String location) {
+        if (cache != null) {
+            loadDataSet(year, pollutant);
+        }
+        return statistics.getQuantiles(location, pollutant, year);
+    }
+    
+    /**
+     * Return a histogram of the values of the data points that getFilteredColumns
+     * returns for the same filters. It is counted when the data is loaded, so this is a lookup.
+     * @param year the year you want the histogram of
+     * @param pollutant the pollutant you want the histogram of
+     * @param location the location the data points have to be in
+     * @param scale how the bins of the histogram are spaced
+     * @return the histogram, empty if there is no data for the filters
+     */
+    public ValueHistogram getHistogram(String year, String pollutant, String location, ValueHistogram.Scale scale) {
+        if (cache != null) {
+            loadDataSet(year, pollutant);
+        }
+        return statistics.getHistogram(location, pollutant, year, scale);
+    }
+    
+    /**
+     * Return a sketch of the values of a pollutant over several years and locations
+     * together, made by merging the sketch of every year and location.
+     * @param years the years to include
+     * @param pollutant the pollutant you want the percentiles of
+     * @param locations the locations to include, each city once; use "all" on its own for all the cities together
+     * @return the merged sketch, empty if there is no data for the filters
+     */
+    public QuantileSketch getQuantiles(Collection<String> years, String pollutant, Collection<String> locations) {
+        QuantileSketch merged = QuantileSketch.EMPTY;
+        for (String year : years) {
+            for (String location : locations) {
+                merged = merged.merge(getQuantiles(year, pollutant, location));
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * Run some aggregators over the data points of a query in a single pass.
+     * The data points are read straight from the loaded columns, so no lists or
+     * copies of them are made. Data points with a missing value are left out.
+     * @param query the data points to aggregate
+     * @param aggregators what to work out, such as Aggregator.mean()
+     * @return the result of every aggregator, in the same order
+     */
+    public AggregateResult aggregate(DataQuery query, Aggregator... aggregators) {
+        Aggregator.Accumulator[] accumulators = new Aggregator.Accumulator[aggregators.length];
+        for (int i = 0; i < aggregators.length; i++) {
+            accumulators[i] = aggregators[i].start();
+        }
+        long[] dataPoints = new long[1];
+        DataPointVisitor visitor = (gridCode, x, y, value) -> {
+            //missing values are stored as -1, and are left out like in the statistics cube
+            if (value < 0) {
+                return;
+            }
+            dataPoints[0]++;
+            for (Aggregator.Accumulator accumulator : accumulators) {
+                accumulator.visit(gridCode, x, y, value);
+            }
+        };
+        
+        String location = query.location() == null ? "all" : query.location();
+        if (query.gridCode() >= 0) {
+            List<String> pinned = pinYears(query.pollutant());
+            try {
+                CityRegion region = CityRegion.forName(location.trim());
+                seriesIndex.forEach(query.gridCode(), query.pollutant(), query.year(), (gridCode, x, y, value) -> {
+                    if (region == null || region.contains(x, y)) {
+                        visitor.visit(gridCode, x, y, value);
+                    }
+                });
+            }
+            finally {
+                unpin(pinned);
+            }
+        } else if (query.year() != null) {
+            getFilteredColumns(query.year(), query.pollutant(), location).forEach(visitor);
+        } else {
+            for (String year : getYears(query.pollutant())) {
+                getFilteredColumns(year, query.pollutant(), location).forEach(visitor);
             }
         }
+        
+        double[] values = new double[accumulators.length];
+        for (int i = 0; i < accumulators.length; i++) {
+            values[i] = accumulators[i].result();
+        }
+        return new AggregateResult(aggregators, values, dataPoints[0]);
+    }
     
-        return filteredDataPoints;
+    /**
+     * Return the years there are files for of a pollutant, in order.
+     */
+    private Set<String> getYears(String pollutant) {
+        Set<String> years = new LinkedHashSet<>();
+        for (CatalogEntry entry : catalog.findByPollutant(pollutant)) {
+            years.add(entry.year());
+        }
+        return years;
     }
-
     
     /**
-     * Return only the data points relevant to the filters you choose
+     * Return a spatial index over the data points that getFilteredColumns returns
+     * for the same filters, to find data points by coordinates.
      * @param year the year you want to get the file of
      * @param pollutant the pollutant you want to get the file of
-     * @return a list of DataPoints that are in location, and have the specified year and pollutant
+     * @param location the location the data points have to be in
+     * @return the spatial index; its points are empty if there is no data for the filters
+     */
+    public SpatialIndex getSpatialIndex(String year, String pollutant, String location) {
+        if (cache != null) {
+            loadDataSet(year, pollutant);
+        }
+        SpatialIndex index = partitions.getSpatialIndex(location, pollutant, year);
+        return index == null ? new SpatialIndex(ColumnarDataSet.EMPTY) : index;
+    }
+    
+    /**
+     * Return a raster of the data points that getFilteredColumns returns for the
+     * same filters, to look up values by coordinates or compare years.
+     * @param year the year you want to get the file of
+     * @param pollutant the pollutant you want to get the file of
+     * @param location the location the data points have to be in
+     * @return the raster, or null if there is no data for the year and pollutant
+     */
+    public DataRaster getRaster(String year, String pollutant, String location) {
+        if (cache != null) {
+            loadDataSet(year, pollutant);
+        }
+        return partitions.getRaster(location, pollutant, year);
+    }
+    
+    /**
+     * Return the data points that getFilteredColumns returns for the same filters
+     * in order of their value, to find the most polluted areas or how a value ranks.
+     * @param year the year you want to get the file of
+     * @param pollutant the pollutant you want to get the file of
+     * @param location the location the data points have to be in
+     * @return the rank index; it is empty if there is no data for the filters
+     */
+    public RankIndex getRankIndex(String year, String pollutant, String location) {
+        if (cache != null) {
+            loadDataSet(year, pollutant);
+        }
+        RankIndex index = partitions.getRankIndex(location, pollutant, year);
+        return index == null ? new RankIndex(ColumnarDataSet.EMPTY) : index;
+    }
+    
+    /**
+     * Return only the data points relevant to the filters you choose
+     * @param pollutant the pollutant you want to get the file of
+     * @return a list of DataPoints that have the specified pollutant
      */
     public List<DataPoint> getFilteredDataPoints(String pollutant){
-        List<String> filteredDataFiles = new LinkedList<>();
-        
-        List<DataPoint> filteredDataPoints = new LinkedList<>();
-        pollutant = pollutant.toLowerCase();
-        
-        for (SimpleDataSet dataSet : locationOnlyDataSets){
-            if (dataSet.getPollutant().toLowerCase().equals(pollutant)){
-                for (DataPoint dataPoint : dataSet.getData()){
-                    filteredDataPoints.add(dataPoint);
+        return getFilteredColumns(pollutant).getData();
+    }
+    
+    /**
+     * Return only the data points relevant to the filters you choose, as primitive columns.
+     * The data points of every year come ready made from the partition index. If there is
+     * only one year its block is returned as it is, otherwise the blocks are copied into
+     * one in a single pass.
+     * @param pollutant the pollutant you want to get the file of
+     * @return the columns of the data points that have the specified pollutant, ordered by year
+     */
+    public ColumnarDataSet getFilteredColumns(String pollutant){
+        List<String> pinned = pinYears(pollutant);
+        try {
+            List<ColumnarDataSet> blocks = new ArrayList<>();
+            int size = 0;
+            for (String year : getYears(pollutant)) {
+                ColumnarDataSet block = partitions.get("all", pollutant, year);
+                if (block != null && !block.isEmpty()) {
+                    blocks.add(block);
+                    size += block.size();
                 }
             }
+            if (blocks.isEmpty()) {
+                return ColumnarDataSet.EMPTY;
+            }
+            if (blocks.size() == 1) {
+                return blocks.get(0);
+            }
+            ColumnarDataSet.Builder filteredColumns = new ColumnarDataSet.Builder(size);
+            for (ColumnarDataSet block : blocks) {
+                filteredColumns.addAll(block);
+            }
+            return filteredColumns.build();
+        }
+        finally {
+            unpin(pinned);
         }
-        return filteredDataPoints;
     }
     
     /**
      * Return only the data points relevant to the filters you choose
+     * @param gridCode the location you want the data points of
      * @param pollutant the pollutant you want to get the file of
      * @return a list of DataPoints that are in location, and have the specified pollutant
      */
     public List<DataPoint> getFilteredLocationDataPoints(int gridCode, String pollutant){
-        List<DataPoint> dataPoints = new LinkedList<>();
-        dataPoints = getFilteredDataPoints(pollutant);
-        
-        List<DataPoint> filteredDataPoints = new LinkedList<>();
-        
-        boolean found = false;
-        int i = 0;
-        while (!found && i < dataPoints.size()){
-            if (dataPoints.get(i).gridCode() == gridCode){
-                filteredDataPoints.add(dataPoints.get(i));
+        return getFilteredLocationColumns(gridCode, pollutant).getData();
+    }
+    
+    /**
+     * Return only the data points relevant to the filters you choose, as primitive columns.
+     * The data points come from the gridcode index, so no data sets are scanned.
+     * @param gridCode the location you want the data points of
+     * @param pollutant the pollutant you want to get the file of
+     * @return the columns of the data points that are in location, and have the specified pollutant, ordered by year
+     */
+    public ColumnarDataSet getFilteredLocationColumns(int gridCode, String pollutant){
+        List<String> pinned = pinYears(pollutant);
+        try {
+            return seriesIndex.getDataPoints(gridCode, pollutant);
+        }
+        finally {
+            unpin(pinned);
+        }
+    }
+    
+    /**
+     * Return the pollution values of one location over the years.
+     * @param gridCode the location you want the values of
+     * @param pollutant the pollutant you want the values of
+     * @return the values by year, empty if the location is not in any of the cities
+     */
+    public TreeMap<String, Double> getLocationSeries(int gridCode, String pollutant){
+        List<String> pinned = pinYears(pollutant);
+        try {
+            return seriesIndex.getSeries(gridCode, pollutant);
+        }
+        finally {
+            unpin(pinned);
+        }
+    }
+    
+    /**
+     * Load the data sets of a pollutant for all years and pin them in the cache, so
+     * that loading the later years cannot drop the earlier ones before the query that
+     * needs them all is done. Only does something in lazy mode.
+     * @param pollutant the pollutant of the data sets
+     * @return the pinned keys, to be passed to unpin once the query is done
+     */
+    private List<String> pinYears(String pollutant) {
+        if (cache == null) {
+            return List.of();
+        }
+        Set<String> years = getYears(pollutant);
+        List<String> keys = new ArrayList<>();
+        for (String year : years) {
+            keys.add(cacheKey(year, pollutant));
+        }
+        cache.pin(keys);
+        try {
+            for (String year : years) {
+                loadDataSet(year, pollutant);
             }
-            i++;
         }
-        return filteredDataPoints;
+        catch (RuntimeException e) {
+            cache.unpin(keys);
+            throw e;
+        }
+        return keys;
+    }
+    
+    /**
+     * Release the data sets pinned by pinYears.
+     */
+    private void unpin(List<String> keys) {
+        if (cache != null) {
+            cache.unpin(keys);
+        }
+    }
+    
+    /**
+     * Get the data set of a pollutant and year from the cache, loading it if needed.
+     * All the files with that pollutant and year are loaded into one data set, with
+     * the data points grouped by city so the partition index can share its columns,
+     * and it is added to the indexes. Only used in lazy mode.
+     * @return the data set, or null if there are no files for the pollutant and year
+     */
+    private SimpleDataSet loadDataSet(String year, String pollutant) {
+        return cache.get(cacheKey(year, pollutant), () -> {
+            long start = System.nanoTime();
+            DataSet first = null;
+            List<ColumnarDataSet> columns = new ArrayList<>();
+            int failed = 0;
+            long rows = 0;
+            long bytes = 0;
+            for (CatalogEntry entry : catalog.find(pollutant, year)) {
+                DataSet loaded = loader.loadDataFileCached(entry.fileName(), CityRegion.values());
+                if (loaded != null) {
+                    first = first == null ? loaded : first;
+                    columns.add(loaded.getColumns());
+                    rows += loaded.getColumns().size();
+                    bytes += entry.size();
+                }
+                else {
+                    failed++;
+                }
+            }
+            addToIngestReport(new IngestReport(columns.size(), failed, rows, bytes, System.nanoTime() - start));
+            if (first == null) {
+                return null;
+            }
+            SimpleDataSet dataSet = new SimpleDataSet(first.getPollutant(), first.getYear(), first.getMetric(),
+                                                      PartitionIndex.groupByRegion(columns));
+            dataSetAdded(dataSet);
+            return dataSet;
+        });
+    }
+    
+    /**
+     * Add the figures of loading one data set to the report of all the files loaded so far.
+     */
+    private synchronized void addToIngestReport(IngestReport loaded) {
+        ingestReport = ingestReport.plus(loaded);
+    }
+    
+    /**
+     * Return the key of the data set of a pollutant and year in the cache.
+     */
+    private static String cacheKey(String year, String pollutant) {
+        return DataCatalog.normalise(pollutant) + "|" + DataCatalog.normalise(year);
+    }
+    
+    /**
+     * Return roughly how many bytes of heap a data set uses together with the
+     * partition blocks, indexes and statistics built from it.
+     */
+    private long estimateBytes(SimpleDataSet dataSet) {
+        return dataSet.getColumns().estimateBytes()
+               + partitions.estimateBytes(dataSet.getPollutant(), dataSet.getYear())
+               + seriesIndex.estimateBytes(dataSet)
+               + statistics.estimateBytes(dataSet);
+    }
+    
+    /**
+     * Add a data set that was just loaded to the indexes and the statistics cube.
+     */
+    private void dataSetAdded(SimpleDataSet dataSet) {
+        partitions.add(dataSet);
+        seriesIndex.add(dataSet);
+        statistics.add(dataSet);
+    }
+    
+    /**
+     * Remove a data set that was dropped from the cache from the indexes and the statistics cube.
+     */
+    private void dataSetEvicted(SimpleDataSet dataSet) {
+        partitions.remove(dataSet);
+        seriesIndex.remove(dataSet);
+        statistics.remove(dataSet);
     }
     
     /**
      * Returns a list of simple data sets with only the datapoints of the chosen location.
+     * Rows outside the cities are already dropped while the files are parsed.
+     * The files are loaded in parallel, but the data sets are returned in the same order
+     * as the files. Files that cannot be loaded are left out.
      * @param files The list of all files
      * @return a list of all the simple data sets with only the data points in the chosen location
      */
     public List<SimpleDataSet> locationOnlyData(List<String> files) {
-        DataLoader loader = new DataLoader();
-        List<SimpleDataSet> locationOnlyDataSet = new LinkedList<>();
-    
-        files.parallelStream()
-             .map(file -> loader.loadDataFile(file))
-             .map(dataSet -> filterDataSet(dataSet, "all"))  
-             .forEach(locationOnlyDataSet::add);
-    
+        IngestionPipeline pipeline = new IngestionPipeline();
+        List<SimpleDataSet> locationOnlyDataSet = pipeline.ingest(files, CityRegion.values(), this::toSimpleDataSet);
+        ingestReport = pipeline.getLastReport();
         return locationOnlyDataSet;
     }
 
 
+    /**
+     * Returns a simple data set holding the data points of a data set that was
+     * already limited to the cities when it was loaded, grouped by city so the
+     * partition index can share its columns instead of copying them.
+     * @param dataSet the data set loaded with only the rows inside the cities
+     * @return a simple data set with the data points of the data set
+     */
+    private SimpleDataSet toSimpleDataSet(DataSet dataSet) {
+        return new SimpleDataSet(dataSet.getPollutant(), dataSet.getYear(), dataSet.getMetric(),
+                                 PartitionIndex.groupByRegion(List.of(dataSet.getColumns())));
+    }
+
     /**
      * Returns a simple data set with only the data points in the chosen location.
      * @param dataSet the data set to search through
@@ -137,9 +513,11 @@ public class DataFiles
      */
     public SimpleDataSet filterDataSet(DataSet dataSet, String location) {
         SimpleDataSet locationOnlyDataSet = new SimpleDataSet(dataSet.getPollutant(), dataSet.getYear());
-        dataSet.getData().stream()
-               .filter(dp -> isInLocation(dp, location))
-               .forEach(locationOnlyDataSet::addData);
+        dataSet.getColumns().forEach((gridCode, x, y, value) -> {
+            if (isInLocation(x, y, location)) {
+                locationOnlyDataSet.addData(gridCode, x, y, value);
+            }
+        });
         return locationOnlyDataSet;
     }
 
@@ -150,11 +528,21 @@ public class DataFiles
      * @return true if the dataPoint is in the given location
      */
     protected  boolean isInLocation (DataPoint dp,String location){
+        return isInLocation(dp.x(), dp.y(), location);
+    }
+    
+    /**
+     * Returns true if the coordinates are in the given location
+     * @param x the x coordinate to check
+     * @param y the y coordinate to check
+     * @return true if the coordinates are in the given location
+     */
+    protected  boolean isInLocation (int x, int y, String location){
         return switch (location.toLowerCase()) {
-                    case "london" -> isInLondon(dp);
-                    case "leeds" -> isInLeeds(dp);
-                    case "oxford" -> isInOxford(dp);
-                    default -> isInLondon(dp) || isInLeeds(dp) || isInOxford(dp);  };
+                    case "london" -> isInLondon(x, y);
+                    case "leeds" -> isInLeeds(x, y);
+                    case "oxford" -> isInOxford(x, y);
+                    default -> isInLondon(x, y) || isInLeeds(x, y) || isInOxford(x, y);  };
     }
     
     /**
@@ -165,7 +553,17 @@ public class DataFiles
      */
     protected boolean isInLondon (DataPoint dp)
     {
-        return (dp.x() > 510394 && dp.x() < 553297 && dp.y() > 168504 && dp.y() < 193305);
+        return isInLondon(dp.x(), dp.y());
+    }
+    
+    /**
+     * Checks if coordinates are in London
+     * 
+     * @return true if in London
+     */
+    protected boolean isInLondon (int x, int y)
+    {
+        return CityRegion.LONDON.contains(x, y);
     }
     
     /**
@@ -176,7 +574,17 @@ public class DataFiles
      */
     protected boolean isInLeeds (DataPoint dp)
     {
-        return (dp.x() > 408304 && dp.x() < 451385 && dp.y() > 420952 && dp.y() < 447012);
+        return isInLeeds(dp.x(), dp.y());
+    }
+    
+    /**
+     * Checks if coordinates are in Leeds
+     * 
+     * @return true if in Leeds
+     */
+    protected boolean isInLeeds (int x, int y)
+    {
+        return CityRegion.LEEDS.contains(x, y);
     }
     
     /**
@@ -187,7 +595,17 @@ public class DataFiles
      */
     protected boolean isInOxford (DataPoint dp)
     {
-        return (dp.x() > 449416 && dp.x() < 458115 && dp.y() > 201110 && dp.y() < 211085);
+        return isInOxford(dp.x(), dp.y());
+    }
+    
+    /**
+     * Checks if coordinates are in Oxford
+     * 
+     * @return true if in Oxford 
+     */
+    protected boolean isInOxford (int x, int y)
+    {
+        return CityRegion.OXFORD.contains(x, y);
     }
     
     // Getters
@@ -195,7 +613,37 @@ public class DataFiles
         return pollutionDataFiles;
     }
     
+    /**
+     * Return the loaded data sets. In lazy mode these are only the data sets
+     * that are in memory at the moment.
+     */
     public List<SimpleDataSet> getLocationOnlyDataSets(){
+        if (cache != null) {
+            return cache.getCachedDataSets();
+        }
         return locationOnlyDataSets;
     }
+    
+    public PartitionIndex getPartitions(){
+        return partitions;
+    }
+    
+    public DataCatalog getCatalog(){
+        return catalog;
+    }
+    
+    /**
+     * Return the throughput figures of loading the files: of the one run that loaded them
+     * all up front, or in lazy mode of all the data sets loaded so far added up.
+     */
+    public synchronized IngestReport getIngestReport(){
+        return ingestReport;
+    }
+    
+    /**
+     * Return the cache of loaded data sets, or null if all files are loaded up front.
+     */
+    public DataSetCache getCache(){
+        return cache;
+    }
 }
@@ -1,5 +1,8 @@
 import java.io.*;
 import java.net.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * This class loads a UK DEFRA air pollution file from disk and returns the file data
@@ -14,6 +17,8 @@ import java.net.*;
 public class DataLoader
 {
     private static final String COMMA_DELIMITER = ",";
+    // files at least this big are parsed on all cores at once
+    private static final long PARALLEL_PARSE_THRESHOLD = 64L * 1024 * 1024;
  
     /** 
      * Read a data file from disk. The data must be a csv file, and must be in the
@@ -23,9 +28,7 @@ public class DataLoader
      */
     public DataSet loadDataFile(String fileName) 
     {
-        
-        URL url = getClass().getResource(fileName);
-        try (BufferedReader br = new BufferedReader(new FileReader(new File(url.toURI()).getAbsolutePath()))) {
+        try (BufferedReader br = new BufferedReader(new FileReader(getFile(fileName)))) {
             // the first four lines of the file hold special information; read them in:
             String pollutant = readDataHeader(br);
             String year = readDataHeader(br);
@@ -53,6 +56,114 @@ public class DataLoader
         }
     }
     
+    /** 
+     * Read a data file from disk by memory mapping it and parsing the bytes directly,
+     * without creating a String for every line. The file must be in the DEFRA air 
+     * pollution file format. The result is the same as that of loadDataFile.
+     * 
+     * @return A DataSet object holding the complete dataset
+     */
+    public DataSet loadDataFileMapped(String fileName) 
+    {
+        try (FileChannel channel = FileChannel.open(getFile(fileName).toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new DataFileParser(buffer).parse();
+        }
+        catch(IOException | URISyntaxException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /** 
+     * Read a data file from disk by memory mapping it and parsing it on all cores.
+     * The data rows are split into chunks at line boundaries, each chunk is parsed
+     * on its own core, and the results are joined in file order. This is meant for
+     * very large files; the result is the same as that of loadDataFile.
+     * 
+     * @return A DataSet object holding the complete dataset
+     */
+    public DataSet loadDataFileParallel(String fileName) 
+    {
+        try (FileChannel channel = FileChannel.open(getFile(fileName).toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new DataFileParser(buffer).parse(Runtime.getRuntime().availableProcessors());
+        }
+        catch(IOException | URISyntaxException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /** 
+     * Read a data file, using a binary snapshot of it if there is a valid one.
+     * If there is no snapshot, or the csv file has changed since the snapshot was
+     * written, the csv file is parsed and a new snapshot is written for next time.
+     * Very large csv files are parsed on all cores at once.
+     * The result is the same as that of loadDataFile.
+     * 
+     * If cities are given, only the rows inside them are parsed and kept, and the
+     * snapshot only holds those rows as well.
+     * 
+     * @param regions the cities to keep the rows of, none to keep the whole file
+     * @return A DataSet object holding the complete dataset, or the rows inside the cities
+     */
+    public DataSet loadDataFileCached(String fileName, CityRegion... regions) 
+    {
+        try {
+            File csvFile = getFile(fileName);
+            File snapshotFile = DataSnapshot.getSnapshotFile(csvFile, regions);
+            DataSet dataSet = null;
+            try {
+                dataSet = DataSnapshot.read(snapshotFile, csvFile, regions);
+            }
+            catch(IOException e) {
+                // the snapshot could not be checked, so the csv file is parsed instead
+                e.printStackTrace();
+            }
+            if (dataSet != null) {
+                return dataSet;
+            }
+            
+            try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int chunks = 1;
+                if (buffer.capacity() >= PARALLEL_PARSE_THRESHOLD) {
+                    chunks = Runtime.getRuntime().availableProcessors();
+                }
+                dataSet = new DataFileParser(buffer, regions).parse(chunks);
+                try {
+                    DataSnapshot.write(dataSet, csvFile, DataSnapshot.checksum(buffer), snapshotFile, regions);
+                }
+                catch(IOException e) {
+                    // the data is still usable without a snapshot
+                    e.printStackTrace();
+                }
+                return dataSet;
+            }
+        }
+        catch(IOException | URISyntaxException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Find a data file on disk. The file name is looked up relative to the class path,
+     * the same way as the other resources of this application.
+     * 
+     * @return The data file
+     */
+    private File getFile(String fileName)
+        throws URISyntaxException, FileNotFoundException
+    {
+        URL url = getClass().getResource(fileName);
+        if (url == null) {
+            throw new FileNotFoundException(fileName);
+        }
+        return new File(url.toURI()).getAbsoluteFile();
+    }
+    
     /**
      * Read one piece of information out of the header of the data file.
      * Each line in the header has the format
@@ -0,0 +1,22 @@
+
+/**
+ * A DataPointVisitor is called once for every data point of a columnar dataset.
+ * The values are passed in as primitives, so no DataPoint objects are created
+ * while scanning through the data.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface DataPointVisitor
+{
+    /**
+     * Visit one data point.
+     *
+     * @param gridCode the gridcode of the data point
+     * @param x the x coordinate (easting) of the data point
+     * @param y the y coordinate (northing) of the data point
+     * @param value the pollution value of the data point
+     */
+    void visit(int gridCode, int x, int y, double value);
+}
@@ -0,0 +1,56 @@
+
+/**
+ * A DataQuery describes which data points a question is about: a pollutant, and
+ * optionally a year, a city and a single grid cell.
+ *
+ * @param pollutant the pollutant
+ * @param year the year, or null for all years
+ * @param location the name of a city, or null (or any other name, such as "all") for all the cities together
+ * @param gridCode the grid cell, or -1 for all cells
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public record DataQuery(String pollutant, String year, String location, int gridCode)
+{
+    /**
+     * Return a query for the data points of a year, pollutant and location,
+     * the same ones DataFiles.getFilteredColumns returns.
+     */
+    public static DataQuery of(String year, String pollutant, String location)
+    {
+        return new DataQuery(pollutant, year, location, -1);
+    }
+
+    /**
+     * Return a query for the data points of a pollutant and location in every year.
+     */
+    public static DataQuery allYears(String pollutant, String location)
+    {
+        return new DataQuery(pollutant, null, location, -1);
+    }
+
+    /**
+     * Return a query for the values of one grid cell in every year.
+     */
+    public static DataQuery gridCode(int gridCode, String pollutant)
+    {
+        return new DataQuery(pollutant, null, null, gridCode);
+    }
+
+    /**
+     * Return this query limited to one year.
+     */
+    public DataQuery inYear(String newYear)
+    {
+        return new DataQuery(pollutant, newYear, location, gridCode);
+    }
+
+    /**
+     * Return this query limited to one city.
+     */
+    public DataQuery inLocation(String newLocation)
+    {
+        return new DataQuery(pollutant, year, newLocation, gridCode);
+    }
+}
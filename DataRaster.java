@@ -0,0 +1,213 @@
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A DataRaster holds the values of a dataset as a dense grid of 1 km cells, the
+ * same grid the DEFRA data is published on.
+ *
+ * The values are stored row by row in one double array indexed by
+ * (x - originX) / cellSize and (y - originY) / cellSize, with NaN for cells that
+ * have no data point. Finding the value at any easting and northing is one division
+ * and one array read. Rasters can be combined cell by cell, for example to get the
+ * change between two years.
+ *
+ * A raster built from a dataset also remembers which data point each cell came
+ * from, so the gridcode of a cell can be found as well.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class DataRaster
+{
+    // the size of a DEFRA grid cell in metres
+    public static final int CELL_SIZE = 1000;
+
+    private final int originX;
+    private final int originY;
+    private final int width;
+    private final int height;
+    private final double[] values;
+    // the index of the data point in each cell, or -1; null for rasters made by combining others
+    private final int[] pointIndexes;
+    private final ColumnarDataSet points;
+
+    /**
+     * Build a raster from the data points of a dataset. If two data points fall in
+     * the same cell, the later one is kept.
+     */
+    public DataRaster(ColumnarDataSet points)
+    {
+        int lowX = Integer.MAX_VALUE;
+        int lowY = Integer.MAX_VALUE;
+        int highX = Integer.MIN_VALUE;
+        int highY = Integer.MIN_VALUE;
+        for (int i = 0; i < points.size(); i++) {
+            lowX = Math.min(lowX, points.getX(i));
+            lowY = Math.min(lowY, points.getY(i));
+            highX = Math.max(highX, points.getX(i));
+            highY = Math.max(highY, points.getY(i));
+        }
+        if (points.isEmpty()) {
+            lowX = lowY = highX = highY = 0;
+        }
+        this.points = points;
+        originX = Math.floorDiv(lowX, CELL_SIZE) * CELL_SIZE;
+        originY = Math.floorDiv(lowY, CELL_SIZE) * CELL_SIZE;
+        width = (highX - originX) / CELL_SIZE + 1;
+        height = (highY - originY) / CELL_SIZE + 1;
+
+        values = new double[width * height];
+        pointIndexes = new int[width * height];
+        Arrays.fill(values, Double.NaN);
+        Arrays.fill(pointIndexes, -1);
+        for (int i = 0; i < points.size(); i++) {
+            int cell = cellAt(points.getX(i), points.getY(i));
+            values[cell] = points.getValue(i);
+            pointIndexes[cell] = i;
+        }
+    }
+
+    /**
+     * Constructor for rasters made by combining others.
+     */
+    private DataRaster(int originX, int originY, int width, int height, double[] values)
+    {
+        this.originX = originX;
+        this.originY = originY;
+        this.width = width;
+        this.height = height;
+        this.values = values;
+        this.pointIndexes = null;
+        this.points = null;
+    }
+
+    /**
+     * Return the value of the cell holding the given coordinates.
+     *
+     * @return the value, or NaN if the cell has no data or is outside the raster
+     */
+    public double getValue(int x, int y)
+    {
+        int cell = cellAt(x, y);
+        return cell < 0 ? Double.NaN : values[cell];
+    }
+
+    /**
+     * Return the value of a cell by its column and row.
+     *
+     * @return the value, or NaN if the cell has no data or is outside the raster
+     */
+    public double getCellValue(int column, int row)
+    {
+        if (column < 0 || column >= width || row < 0 || row >= height) {
+            return Double.NaN;
+        }
+        return values[row * width + column];
+    }
+
+    /**
+     * Return the index of the data point in the cell holding the given coordinates.
+     *
+     * @return the index in getPoints(), or -1 if the cell has no data point or the
+     *         raster was made by combining others
+     */
+    public int indexAt(int x, int y)
+    {
+        int cell = cellAt(x, y);
+        return cell < 0 || pointIndexes == null ? -1 : pointIndexes[cell];
+    }
+
+    /**
+     * Combine this raster with another one cell by cell. The result covers the same
+     * cells as this raster; each cell gets the operator applied to the value of this
+     * raster and the value of the other raster at the same place. Cells without data
+     * in either raster are NaN in the result, as long as the operator keeps NaN.
+     *
+     * @param other the raster to combine with
+     * @param operator combines the value of this raster with the value of the other
+     * @return the combined raster
+     */
+    public DataRaster combine(DataRaster other, DoubleBinaryOperator operator)
+    {
+        double[] combined = new double[values.length];
+        for (int row = 0; row < height; row++) {
+            int y = originY + row * CELL_SIZE;
+            int otherRow = Math.floorDiv(y - other.originY, CELL_SIZE);
+            for (int column = 0; column < width; column++) {
+                int x = originX + column * CELL_SIZE;
+                int otherColumn = Math.floorDiv(x - other.originX, CELL_SIZE);
+                int cell = row * width + column;
+                combined[cell] = operator.applyAsDouble(values[cell], other.getCellValue(otherColumn, otherRow));
+            }
+        }
+        return new DataRaster(originX, originY, width, height, combined);
+    }
+
+    /**
+     * Return the change from another raster to this one, such as from last year to this year.
+     */
+    public DataRaster subtract(DataRaster other)
+    {
+        return combine(other, (value, otherValue) -> value - otherValue);
+    }
+
+    /**
+     * Return the data points this raster was built from, or null if it was made by combining others.
+     */
+    public ColumnarDataSet getPoints()
+    {
+        return points;
+    }
+
+    /**
+     * Return roughly how many bytes of heap the cells of the raster use, not
+     * counting the data points it was built from.
+     */
+    public long estimateBytes()
+    {
+        long bytes = (long) values.length * Double.BYTES + 16;
+        if (pointIndexes != null) {
+            bytes += (long) pointIndexes.length * Integer.BYTES + 16;
+        }
+        return bytes;
+    }
+
+    public int getOriginX()
+    {
+        return originX;
+    }
+
+    public int getOriginY()
+    {
+        return originY;
+    }
+
+    /**
+     * Return the number of columns of cells.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Return the number of rows of cells.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Return the cell holding the given coordinates, or -1 if they are outside the raster.
+     */
+    private int cellAt(int x, int y)
+    {
+        long column = Math.floorDiv((long) x - originX, CELL_SIZE);
+        long row = Math.floorDiv((long) y - originY, CELL_SIZE);
+        if (column < 0 || column >= width || row < 0 || row >= height) {
+            return -1;
+        }
+        return (int) (row * width + column);
+    }
+}
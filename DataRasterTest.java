@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for DataRaster.
+ * This class verifies that values are found by coordinates, that the later of two
+ * data points in one cell is kept, and that rasters of two years can be subtracted.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class DataRasterTest
+{
+    /**
+     * Default constructor for test class DataRasterTest
+     */
+    public DataRasterTest()
+    {
+    }
+
+    private static ColumnarDataSet points(double... values)
+    {
+        ColumnarDataSet.Builder builder = new ColumnarDataSet.Builder();
+        for (int i = 0; i < values.length; i++) {
+            builder.add(i, 530500 + i * 1000, 180500, values[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Tests that the value and data point of a cell are found from any coordinates
+     * inside it, and that cells without data are NaN.
+     */
+    @Test
+    public void testLookup()
+    {
+        DataRaster raster = new DataRaster(points(1.5, 2.5, 3.5));
+        assertEquals(530000, raster.getOriginX());
+        assertEquals(180000, raster.getOriginY());
+        assertEquals(3, raster.getWidth());
+        assertEquals(1, raster.getHeight());
+        assertEquals(2.5, raster.getValue(531000, 180000));
+        assertEquals(2.5, raster.getValue(531999, 180999));
+        assertEquals(1, raster.indexAt(531500, 180500));
+        assertEquals(3.5, raster.getCellValue(2, 0));
+        assertTrue(Double.isNaN(raster.getValue(529999, 180500)));
+        assertTrue(Double.isNaN(raster.getCellValue(3, 0)));
+        assertEquals(-1, raster.indexAt(600000, 180500));
+    }
+
+    /**
+     * Tests that when two data points fall in the same cell the later one is kept.
+     */
+    @Test
+    public void testLaterPointWins()
+    {
+        ColumnarDataSet.Builder builder = new ColumnarDataSet.Builder();
+        builder.add(1, 530100, 180100, 1.0);
+        builder.add(2, 530900, 180900, 2.0);
+        DataRaster raster = new DataRaster(builder.build());
+        assertEquals(2.0, raster.getValue(530500, 180500));
+        assertEquals(1, raster.indexAt(530500, 180500));
+    }
+
+    /**
+     * Tests that subtracting another raster works cell by cell over this raster's
+     * cells, with NaN where either has no data.
+     */
+    @Test
+    public void testSubtract()
+    {
+        DataRaster later = new DataRaster(points(5, 7, 9));
+        ColumnarDataSet.Builder builder = new ColumnarDataSet.Builder();
+        builder.add(0, 530500, 180500, 2);
+        builder.add(1, 531500, 180500, 3);
+        DataRaster earlier = new DataRaster(builder.build());
+
+        DataRaster change = later.subtract(earlier);
+        assertEquals(3.0, change.getValue(530500, 180500));
+        assertEquals(4.0, change.getValue(531500, 180500));
+        assertTrue(Double.isNaN(change.getValue(532500, 180500)));
+        assertNull(change.getPoints());
+        assertEquals(-1, change.indexAt(530500, 180500));
+    }
+
+    /**
+     * Tests that a raster of no data points has one empty cell.
+     */
+    @Test
+    public void testEmpty()
+    {
+        DataRaster raster = new DataRaster(ColumnarDataSet.EMPTY);
+        assertTrue(Double.isNaN(raster.getValue(0, 0)));
+        assertEquals(-1, raster.indexAt(0, 0));
+    }
+}
@@ -6,7 +6,7 @@ import java.util.*;
  * https://uk-air.defra.gov.uk/data/pcm-data). 
  * 
  * The data consists of a few bits of information about the nature of the data, and a list
- * of data points.
+ * of data points. The data points are stored in primitive columns (see ColumnarDataSet).
  * 
  * @author Michael Kölling
  * @version 1.0
@@ -18,7 +18,8 @@ public class DataSet
     private String metric;
     private String units;
     
-    private List<DataPoint> data;
+    private ColumnarDataSet.Builder data;
+    private ColumnarDataSet columns;
 
     /**
      * Constructor for objects of class DataSet
@@ -30,7 +31,22 @@ public class DataSet
         this.metric = metric;
         this.units = units;
         
-        data = new ArrayList<DataPoint>();
+        data = new ColumnarDataSet.Builder();
+    }
+    
+    /**
+     * Constructor for objects of class DataSet that already hold data points,
+     * for example when they are read back from a snapshot.
+     */
+    public DataSet(String pollutant, String year, String metric, String units, ColumnarDataSet columns)
+    {
+        this.pollutant = pollutant;
+        this.year = year;
+        this.metric = metric;
+        this.units = units;
+        
+        data = new ColumnarDataSet.Builder(columns);
+        this.columns = columns;
     }
 
     /**
@@ -66,11 +82,22 @@ public class DataSet
     }
     
     /**
-     * Return the data points of this dataset.
+     * Return the data points of this dataset as a read only list.
      */
     public List<DataPoint> getData()
     {
-        return data;
+        return getColumns().getData();
+    }
+    
+    /**
+     * Return the data points of this dataset as primitive columns.
+     */
+    public ColumnarDataSet getColumns()
+    {
+        if (columns == null) {
+            columns = data.build();
+        }
+        return columns;
     }
     
     /**
@@ -86,10 +113,25 @@ public class DataSet
      */
     public void addData(String[] values)
     {
-        data.add(new DataPoint(toInt(values[0]), 
-                               toInt(values[1]), 
-                               toInt(values[2]), 
-                               toDouble(values[3]))); 
+        addData(toInt(values[0]), 
+                toInt(values[1]), 
+                toInt(values[2]), 
+                toDouble(values[3])); 
+    }
+    
+    /**
+     * Add a data point to this dataset from values that have already been parsed.
+     * Invalid or missing values are expected to be passed in as -1.
+     *
+     * @param  gridCode  The gridcode of the data point
+     * @param  x  The x coordinate (easting) of the data point
+     * @param  y  The y coordinate (northing) of the data point
+     * @param  value  The pollution value of the data point
+     */
+    public void addData(int gridCode, int x, int y, double value)
+    {
+        data.add(gridCode, x, y, value);
+        columns = null;
     }
     
     /**
@@ -0,0 +1,272 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A DataSetCache keeps loaded data sets in memory up to a heap budget.
+ *
+ * Data sets are loaded the first time they are asked for. When the estimated size
+ * of all the cached data sets goes over the budget, the least recently used ones
+ * are dropped until it fits again. The size of a data set can include whatever is
+ * built from it, such as indexes, and is measured again every time the cache checks
+ * its budget, because those can grow after the data set was loaded. Data sets can be
+ * pinned while a query needs several of them together; pinned data sets are never
+ * dropped, and the cache is brought back under its budget when they are unpinned.
+ * If several threads ask for the same data set while it is still loading, it is
+ * only loaded once and they all get the result.
+ *
+ * @author Sara Ajdini
+ * @version 1.1
+ */
+public class DataSetCache
+{
+    private final long budgetBytes;
+    private final LinkedHashMap<String, SimpleDataSet> dataSets;
+    private final Map<String, FutureTask<SimpleDataSet>> loading;
+    private final Consumer<SimpleDataSet> evictionListener;
+    private final ToLongFunction<SimpleDataSet> weigher;
+    // how many times each key is pinned
+    private final Map<String, Integer> pins;
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a cache with the given heap budget, counting only the columns of the
+     * data sets against it.
+     *
+     * @param budgetBytes the estimated number of bytes the cached data sets may use
+     * @param evictionListener told about every data set that is dropped from the cache
+     */
+    public DataSetCache(long budgetBytes, Consumer<SimpleDataSet> evictionListener)
+    {
+        this(budgetBytes, dataSet -> dataSet.getColumns().estimateBytes(), evictionListener);
+    }
+
+    /**
+     * Create a cache with the given heap budget.
+     *
+     * @param budgetBytes the estimated number of bytes the cached data sets may use
+     * @param weigher estimates the bytes a data set and everything built from it use
+     * @param evictionListener told about every data set that is dropped from the cache
+     */
+    public DataSetCache(long budgetBytes, ToLongFunction<SimpleDataSet> weigher, Consumer<SimpleDataSet> evictionListener)
+    {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("The heap budget must be positive");
+        }
+        this.budgetBytes = budgetBytes;
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+        dataSets = new LinkedHashMap<>(16, 0.75f, true);
+        loading = new ConcurrentHashMap<>();
+        pins = new HashMap<>();
+    }
+
+    /**
+     * Return the data set with the given key, loading it if it is not in the cache.
+     * Data sets that could not be loaded (null) are not cached.
+     *
+     * @param key the key of the data set, such as its file name
+     * @param loader loads the data set if it is not in the cache
+     * @return the data set, or null if it could not be loaded
+     */
+    public SimpleDataSet get(String key, Supplier<SimpleDataSet> loader)
+    {
+        SimpleDataSet dataSet = getIfPresent(key);
+        if (dataSet != null) {
+            return dataSet;
+        }
+
+        FutureTask<SimpleDataSet> task = new FutureTask<>(loader::get);
+        FutureTask<SimpleDataSet> running = loading.putIfAbsent(key, task);
+        if (running == null) {
+            // another thread may have finished loading it just before we registered
+            dataSet = getIfPresent(key);
+            if (dataSet != null) {
+                loading.remove(key, task);
+                return dataSet;
+            }
+            running = task;
+            try {
+                task.run();
+                dataSet = task.get();
+                if (dataSet != null) {
+                    put(key, dataSet);
+                }
+            }
+            catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+            finally {
+                loading.remove(key, task);
+            }
+            return dataSet;
+        }
+
+        try {
+            return running.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Keep the data sets with the given keys in the cache until they are unpinned,
+     * including those that are only loaded later. Every pin must be matched by an unpin.
+     */
+    public synchronized void pin(Collection<String> keys)
+    {
+        for (String key : keys) {
+            pins.merge(key, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Release the pins of the given keys, and drop the least recently used data sets
+     * if the cache went over its budget while they were pinned.
+     */
+    public void unpin(Collection<String> keys)
+    {
+        List<SimpleDataSet> evicted;
+        synchronized (this) {
+            for (String key : keys) {
+                pins.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+            }
+            evicted = trim(null);
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Return true if the data set with the given key is pinned.
+     */
+    public synchronized boolean isPinned(String key)
+    {
+        return pins.containsKey(key);
+    }
+
+    /**
+     * Return the data set with the given key if it is in the cache, without loading it.
+     */
+    public synchronized SimpleDataSet getIfPresent(String key)
+    {
+        SimpleDataSet dataSet = dataSets.get(key);
+        if (dataSet != null) {
+            hits++;
+        }
+        return dataSet;
+    }
+
+    /**
+     * Return all the data sets that are in the cache, least recently used first.
+     */
+    public synchronized List<SimpleDataSet> getCachedDataSets()
+    {
+        return new ArrayList<>(dataSets.values());
+    }
+
+    /**
+     * Return the estimated number of bytes used by the cached data sets and
+     * everything built from them.
+     */
+    public synchronized long getUsedBytes()
+    {
+        return measure();
+    }
+
+    public long getBudgetBytes()
+    {
+        return budgetBytes;
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Add a freshly loaded data set and drop the least recently used ones if the
+     * cache is over its budget. The new data set itself is always kept.
+     */
+    private void put(String key, SimpleDataSet dataSet)
+    {
+        List<SimpleDataSet> evicted;
+        synchronized (this) {
+            misses++;
+            SimpleDataSet old = dataSets.put(key, dataSet);
+            evicted = trim(dataSet);
+            if (old != null && old != dataSet) {
+                evicted.add(old);
+            }
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Measure the cached data sets again and drop the least recently used ones that
+     * are not pinned until the cache fits its budget.
+     *
+     * @param kept a data set that must not be dropped, or null
+     * @return the data sets that were dropped
+     */
+    private List<SimpleDataSet> trim(SimpleDataSet kept)
+    {
+        List<SimpleDataSet> evicted = new ArrayList<>();
+        long usedBytes = measure();
+        Iterator<Map.Entry<String, SimpleDataSet>> eldest = dataSets.entrySet().iterator();
+        while (usedBytes > budgetBytes && eldest.hasNext()) {
+            Map.Entry<String, SimpleDataSet> entry = eldest.next();
+            if (entry.getValue() == kept || pins.containsKey(entry.getKey())) {
+                continue;
+            }
+            usedBytes -= weigher.applyAsLong(entry.getValue());
+            evicted.add(entry.getValue());
+            eldest.remove();
+        }
+        return evicted;
+    }
+
+    /**
+     * Return the estimated number of bytes of all the cached data sets.
+     */
+    private long measure()
+    {
+        long bytes = 0;
+        for (SimpleDataSet dataSet : dataSets.values()) {
+            bytes += weigher.applyAsLong(dataSet);
+        }
+        return bytes;
+    }
+
+    /**
+     * Tell the eviction listener about dropped data sets, outside the lock of the cache.
+     */
+    private void notifyEvicted(List<SimpleDataSet> evicted)
+    {
+        if (evictionListener != null) {
+            for (SimpleDataSet evictedDataSet : evicted) {
+                evictionListener.accept(evictedDataSet);
+            }
+        }
+    }
+}
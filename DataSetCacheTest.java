@@ -0,0 +1,204 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for DataSetCache.
+ * This class verifies that the least recently used data sets are dropped first,
+ * that the cache keeps to its budget except for pinned data sets, and that a data
+ * set asked for by several threads at once is loaded only once.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class DataSetCacheTest
+{
+    // every test data set weighs this many bytes
+    private static final long SIZE = 100;
+
+    private List<SimpleDataSet> evicted;
+    private Map<SimpleDataSet, Long> extraBytes;
+    private DataSetCache cache;
+
+    /**
+     * Default constructor for test class DataSetCacheTest
+     */
+    public DataSetCacheTest()
+    {
+    }
+
+    /**
+     * Creates a cache with room for three data sets.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp()
+    {
+        evicted = new ArrayList<>();
+        extraBytes = new ConcurrentHashMap<>();
+        cache = new DataSetCache(3 * SIZE, dataSet -> SIZE + extraBytes.getOrDefault(dataSet, 0L), evicted::add);
+    }
+
+    private static SimpleDataSet dataSet(String year)
+    {
+        ColumnarDataSet.Builder columns = new ColumnarDataSet.Builder();
+        columns.add(1, 530500, 180500, 20.5);
+        return new SimpleDataSet("NO2", year, "annual mean", columns.build());
+    }
+
+    private SimpleDataSet load(String year)
+    {
+        return cache.get(year, () -> dataSet(year));
+    }
+
+    private static List<String> years(List<SimpleDataSet> dataSets)
+    {
+        List<String> years = new ArrayList<>();
+        for (SimpleDataSet dataSet : dataSets) {
+            years.add(dataSet.getYear());
+        }
+        return years;
+    }
+
+    /**
+     * Tests that the least recently used data set is dropped first, and that using
+     * a data set again moves it to the back of the queue.
+     */
+    @Test
+    public void testEvictionOrder()
+    {
+        load("2015");
+        load("2016");
+        load("2017");
+        assertTrue(evicted.isEmpty());
+        load("2015");
+        load("2018");
+        load("2019");
+        assertEquals(List.of("2016", "2017"), years(evicted));
+        assertEquals(List.of("2015", "2018", "2019"), years(cache.getCachedDataSets()));
+        assertEquals(1, cache.getHits());
+        assertEquals(5, cache.getMisses());
+    }
+
+    /**
+     * Tests that the cache stays within its budget, counting what is built from a
+     * data set after it was loaded.
+     */
+    @Test
+    public void testBudget()
+    {
+        SimpleDataSet first = load("2015");
+        load("2016");
+        assertEquals(2 * SIZE, cache.getUsedBytes());
+
+        // an index built over the first data set makes it count for two
+        extraBytes.put(first, SIZE);
+        assertEquals(3 * SIZE, cache.getUsedBytes());
+        load("2017");
+        assertEquals(List.of("2015"), years(evicted));
+        assertTrue(cache.getUsedBytes() <= cache.getBudgetBytes());
+    }
+
+    /**
+     * Tests that pinned data sets are not dropped while a query loads more than fit,
+     * and that the cache goes back under its budget once they are unpinned.
+     */
+    @Test
+    public void testPinnedDataSets()
+    {
+        List<String> keys = List.of("2015", "2016", "2017", "2018", "2019");
+        cache.pin(keys);
+        for (String year : keys) {
+            load(year);
+        }
+        assertTrue(evicted.isEmpty());
+        assertEquals(5 * SIZE, cache.getUsedBytes());
+        assertTrue(cache.isPinned("2015"));
+
+        cache.unpin(keys);
+        assertFalse(cache.isPinned("2015"));
+        assertEquals(List.of("2015", "2016"), years(evicted));
+        assertEquals(3 * SIZE, cache.getUsedBytes());
+    }
+
+    /**
+     * Tests that a key pinned twice stays pinned until it is unpinned twice.
+     */
+    @Test
+    public void testNestedPins()
+    {
+        cache.pin(List.of("2015"));
+        cache.pin(List.of("2015"));
+        cache.unpin(List.of("2015"));
+        assertTrue(cache.isPinned("2015"));
+        cache.unpin(List.of("2015"));
+        assertFalse(cache.isPinned("2015"));
+    }
+
+    /**
+     * Tests that a data set asked for by several threads while it is loading is only
+     * loaded once, and every thread gets the same data set.
+     */
+    @Test
+    public void testCoalescedLoads() throws Exception
+    {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<SimpleDataSet>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(threads.submit(() -> cache.get("2019", () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return dataSet("2019");
+                })));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            // give the other threads time to ask for the same data set
+            Thread.sleep(100);
+            release.countDown();
+
+            SimpleDataSet first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<SimpleDataSet> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, cache.getMisses());
+        }
+        finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that a data set that could not be loaded is not cached.
+     */
+    @Test
+    public void testFailedLoad()
+    {
+        assertNull(cache.get("2019", () -> null));
+        assertNull(cache.getIfPresent("2019"));
+        assertNotNull(load("2019"));
+    }
+}
@@ -0,0 +1,282 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes binary snapshots of parsed DEFRA data files.
+ *
+ * A snapshot holds the header information of a DataSet followed by its gridcode,
+ * x, y and value columns as raw primitives, so loading it is a bulk read of four
+ * arrays instead of parsing text. Each snapshot also records the length, last
+ * modified time and a CRC32 checksum of the csv file it was made from, and the
+ * bounds of the cities its rows were limited to. A snapshot is only used while it
+ * still matches its csv file and the current city bounds.
+ *
+ * Snapshots are kept in a folder next to their csv file, so they are found the
+ * same way as the csv file whatever the working directory is.
+ *
+ * Snapshot file layout (little endian):
+ *     magic, version                              (int, int)
+ *     csv length, csv last modified, csv checksum (long, long, long)
+ *     city bounds                                 (int byte length + UTF-8 bytes)
+ *     pollutant, year, metric, units              (int byte length + UTF-8 bytes each)
+ *     number of data points n                     (int)
+ *     gridcodes, x, y                             (n ints each)
+ *     values                                      (n doubles)
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class DataSnapshot
+{
+    // the snapshots of a data file are in this folder next to it, which scans of the data must skip
+    public static final String CACHE_DIRECTORY = ".pollution-cache";
+
+    private static final int MAGIC = 0x504f4c53; // "POLS"
+    private static final int VERSION = 2;
+    // where the last modified time of the csv file is in a snapshot
+    private static final int MODIFIED_OFFSET = 16;
+    private static final String SUFFIX = ".snapshot";
+
+    /**
+     * Return the snapshot file used for a data file. Snapshots of a file that only
+     * hold the rows inside some cities get the names of those cities in their name.
+     *
+     * @param csvFile the data file
+     * @param regions the cities the snapshot is limited to, none for the whole file
+     * @return the snapshot file in the cache directory next to the data file
+     */
+    public static File getSnapshotFile(File csvFile, CityRegion... regions)
+    {
+        StringBuilder name = new StringBuilder(csvFile.getName());
+        if (regions.length > 0) {
+            // the same set of cities always gives the same name, whatever their order
+            EnumSet<CityRegion> regionSet = EnumSet.noneOf(CityRegion.class);
+            regionSet.addAll(Arrays.asList(regions));
+            StringJoiner regionNames = new StringJoiner("-", ".", "");
+            for (CityRegion region : regionSet) {
+                regionNames.add(region.name().toLowerCase(Locale.ROOT));
+            }
+            name.append(regionNames);
+        }
+        return new File(new File(csvFile.getAbsoluteFile().getParentFile(), CACHE_DIRECTORY), name + SUFFIX);
+    }
+
+    /**
+     * Return the bounds of a set of cities as they are stored in a snapshot, so a
+     * snapshot made with other bounds is not used.
+     */
+    static String describeRegions(CityRegion... regions)
+    {
+        EnumSet<CityRegion> regionSet = EnumSet.noneOf(CityRegion.class);
+        regionSet.addAll(Arrays.asList(regions));
+        StringJoiner description = new StringJoiner(";");
+        for (CityRegion region : regionSet) {
+            description.add(region.name() + " " + region.getMinX() + " " + region.getMaxX()
+                            + " " + region.getMinY() + " " + region.getMaxY());
+        }
+        return description.toString();
+    }
+
+    /**
+     * Calculate the checksum of the contents of a csv file.
+     *
+     * @param buffer the contents of the csv file
+     * @return the CRC32 checksum of the contents
+     */
+    public static long checksum(ByteBuffer buffer)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return crc.getValue();
+    }
+
+    /**
+     * Read a snapshot back into a DataSet, if it is still valid for the csv file.
+     * A snapshot is valid if it was made with the same city bounds and the csv file
+     * has the same length and last modified time as when the snapshot was written.
+     * If only the time differs, the checksum of the csv file decides, and if it still
+     * matches the new time is written into the snapshot so the next read is quick.
+     *
+     * @param snapshotFile the snapshot to read
+     * @param csvFile the csv file the snapshot was made from
+     * @param regions the cities the rows should be limited to, none for the whole file
+     * @return the DataSet held in the snapshot, or null if there is no valid snapshot
+     */
+    public static DataSet read(File snapshotFile, File csvFile, CityRegion... regions)
+        throws IOException
+    {
+        if (!snapshotFile.isFile()) {
+            return null;
+        }
+        boolean touched = false;
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 32 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long csvLength = buffer.getLong();
+            long csvModified = buffer.getLong();
+            long csvChecksum = buffer.getLong();
+            if (csvLength != csvFile.length()) {
+                return null;
+            }
+            if (!describeRegions(regions).equals(readString(buffer))) {
+                return null;
+            }
+            if (csvModified != csvFile.lastModified()) {
+                if (csvChecksum != checksum(csvFile)) {
+                    return null;
+                }
+                touched = true;
+            }
+
+            String pollutant = readString(buffer);
+            String year = readString(buffer);
+            String metric = readString(buffer);
+            String units = readString(buffer);
+
+            int size = buffer.getInt();
+            if (size < 0 || buffer.remaining() != size * 20L) {
+                return null;
+            }
+            int[] gridCodes = new int[size];
+            int[] xs = new int[size];
+            int[] ys = new int[size];
+            double[] values = new double[size];
+            buffer.asIntBuffer().get(gridCodes);
+            buffer.position(buffer.position() + size * 4);
+            buffer.asIntBuffer().get(xs);
+            buffer.position(buffer.position() + size * 4);
+            buffer.asIntBuffer().get(ys);
+            buffer.position(buffer.position() + size * 4);
+            buffer.asDoubleBuffer().get(values);
+
+            ColumnarDataSet columns = ColumnarDataSet.of(gridCodes, xs, ys, values);
+            DataSet dataSet = new DataSet(pollutant, year, metric, units, columns);
+            if (touched) {
+                writeModifiedTime(snapshotFile, csvFile.lastModified());
+            }
+            return dataSet;
+        }
+        catch (RuntimeException e) {
+            // a damaged snapshot is treated like a missing one
+            return null;
+        }
+    }
+
+    /**
+     * Write a new last modified time of the csv file into a snapshot.
+     */
+    private static void writeModifiedTime(File snapshotFile, long csvModified)
+        throws IOException
+    {
+        ByteBuffer time = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(csvModified);
+        time.flip();
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.WRITE)) {
+            while (time.hasRemaining()) {
+                channel.write(time, MODIFIED_OFFSET + time.position());
+            }
+        }
+    }
+
+    /**
+     * Write a snapshot of a DataSet. The snapshot is written to a temporary file
+     * first and then moved into place, so a half written snapshot is never read.
+     *
+     * @param dataSet the dataset parsed from the csv file
+     * @param csvFile the csv file the dataset was parsed from
+     * @param csvChecksum the checksum of the contents of the csv file
+     * @param snapshotFile the snapshot file to write
+     * @param regions the cities the rows of the dataset were limited to, none for the whole file
+     */
+    public static void write(DataSet dataSet, File csvFile, long csvChecksum, File snapshotFile, CityRegion... regions)
+        throws IOException
+    {
+        ColumnarDataSet columns = dataSet.getColumns();
+        byte[][] strings = {
+            bytes(describeRegions(regions)), bytes(dataSet.getPollutant()), bytes(dataSet.getYear()),
+            bytes(dataSet.getMetric()), bytes(dataSet.getUnits())
+        };
+        int headerSize = 4 + 4 + 8 + 8 + 8 + 4;
+        for (byte[] string : strings) {
+            headerSize += 4 + string.length;
+        }
+        int size = columns.size();
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize + size * 20).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(csvFile.length());
+        buffer.putLong(csvFile.lastModified());
+        buffer.putLong(csvChecksum);
+        for (byte[] string : strings) {
+            buffer.putInt(string.length);
+            buffer.put(string);
+        }
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(columns.getGridCode(i));
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(columns.getX(i));
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(columns.getY(i));
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.putDouble(columns.getValue(i));
+        }
+        buffer.flip();
+
+        File directory = snapshotFile.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+        File temporaryFile = File.createTempFile(snapshotFile.getName(), ".tmp", directory);
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporaryFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    /**
+     * Calculate the checksum of a csv file on disk.
+     */
+    private static long checksum(File csvFile)
+        throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            return checksum(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String string)
+    {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
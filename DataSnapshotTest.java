@@ -0,0 +1,154 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Test class for DataSnapshot.
+ * This class verifies that a snapshot reads back the dataset it was written from,
+ * and that damaged or stale snapshots are not used.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class DataSnapshotTest
+{
+    private static final String CSV = "NO2,,,\n2019,,,\nannual mean,,,\nugm-3,,,\n,,,\ngridcode,x,y,no22019\n"
+                                      + "1,530500,180500,20.5\n2,420500,430500,12.25\n";
+
+    @TempDir
+    File folder;
+
+    private File csvFile;
+    private File snapshotFile;
+    private DataSet dataSet;
+
+    /**
+     * Default constructor for test class DataSnapshotTest
+     */
+    public DataSnapshotTest()
+    {
+    }
+
+    /**
+     * Writes a small csv file and a snapshot of it.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        csvFile = new File(folder, "no2_2019.csv");
+        Files.write(csvFile.toPath(), CSV.getBytes(StandardCharsets.UTF_8));
+        snapshotFile = DataSnapshot.getSnapshotFile(csvFile);
+        dataSet = new DataSet("NO2", "2019", "annual mean", "ugm-3");
+        dataSet.addData(1, 530500, 180500, 20.5);
+        dataSet.addData(2, 420500, 430500, 12.25);
+        DataSnapshot.write(dataSet, csvFile, checksum(), snapshotFile);
+    }
+
+    private long checksum() throws IOException
+    {
+        return DataSnapshot.checksum(java.nio.ByteBuffer.wrap(Files.readAllBytes(csvFile.toPath())));
+    }
+
+    /**
+     * Tests that the snapshot is kept next to the csv file, not in the working directory.
+     */
+    @Test
+    public void testSnapshotNextToCsvFile()
+    {
+        assertEquals(new File(folder, DataSnapshot.CACHE_DIRECTORY), snapshotFile.getParentFile());
+        assertNotEquals(snapshotFile, DataSnapshot.getSnapshotFile(csvFile, CityRegion.LONDON));
+        assertEquals(DataSnapshot.getSnapshotFile(csvFile, CityRegion.LONDON, CityRegion.LEEDS),
+                     DataSnapshot.getSnapshotFile(csvFile, CityRegion.LEEDS, CityRegion.LONDON));
+    }
+
+    /**
+     * Tests that a snapshot reads back the same header and data points.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        DataSet read = DataSnapshot.read(snapshotFile, csvFile);
+        assertNotNull(read);
+        assertEquals("NO2", read.getPollutant());
+        assertEquals("2019", read.getYear());
+        assertEquals("annual mean", read.getMetric());
+        assertEquals("ugm-3", read.getUnits());
+        ColumnarDataSet columns = read.getColumns();
+        assertEquals(2, columns.size());
+        assertEquals(1, columns.getGridCode(0));
+        assertEquals(530500, columns.getX(0));
+        assertEquals(180500, columns.getY(0));
+        assertEquals(20.5, columns.getValue(0));
+        assertEquals(12.25, columns.getValue(1));
+    }
+
+    /**
+     * Tests that a damaged or cut off snapshot is treated like a missing one.
+     */
+    @Test
+    public void testCorruptSnapshot() throws IOException
+    {
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        assertNull(DataSnapshot.read(snapshotFile, csvFile));
+
+        Files.write(snapshotFile.toPath(), "not a snapshot at all, just some text".getBytes(StandardCharsets.UTF_8));
+        assertNull(DataSnapshot.read(snapshotFile, csvFile));
+        assertNull(DataSnapshot.read(new File(folder, "missing.snapshot"), csvFile));
+    }
+
+    /**
+     * Tests that a snapshot is not used once its csv file has changed.
+     */
+    @Test
+    public void testChangedCsvFile() throws IOException
+    {
+        Files.write(csvFile.toPath(), (CSV + "3,450000,205000,9.5\n").getBytes(StandardCharsets.UTF_8));
+        assertNull(DataSnapshot.read(snapshotFile, csvFile));
+    }
+
+    /**
+     * Tests that a csv file that was only touched is checked once, and the new time is
+     * written into the snapshot so it is not checked again.
+     */
+    @Test
+    public void testTouchedCsvFile() throws IOException
+    {
+        assertTrue(csvFile.setLastModified(csvFile.lastModified() - 60_000));
+        assertNotNull(DataSnapshot.read(snapshotFile, csvFile));
+
+        // same length and time but different contents: only a checksum would notice
+        byte[] contents = Files.readAllBytes(csvFile.toPath());
+        contents[contents.length - 2] = '6';
+        long modified = csvFile.lastModified();
+        Files.write(csvFile.toPath(), contents);
+        assertTrue(csvFile.setLastModified(modified));
+        assertNotNull(DataSnapshot.read(snapshotFile, csvFile), "the time was refreshed, so the checksum is not read again");
+    }
+
+    /**
+     * Tests that a snapshot made for other cities, or for the whole file, is not used.
+     */
+    @Test
+    public void testOtherRegions() throws IOException
+    {
+        assertNull(DataSnapshot.read(snapshotFile, csvFile, CityRegion.LONDON));
+
+        File londonSnapshot = DataSnapshot.getSnapshotFile(csvFile, CityRegion.LONDON);
+        DataSnapshot.write(dataSet, csvFile, checksum(), londonSnapshot, CityRegion.LONDON);
+        assertNotNull(DataSnapshot.read(londonSnapshot, csvFile, CityRegion.LONDON));
+        assertNull(DataSnapshot.read(londonSnapshot, csvFile, CityRegion.LONDON, CityRegion.OXFORD));
+        assertTrue(DataSnapshot.describeRegions(CityRegion.LONDON).contains(Integer.toString(CityRegion.LONDON.getMinX())));
+    }
+}
@@ -0,0 +1,213 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The GridSeriesIndex finds the values of one grid cell over all the years of a
+ * pollutant without scanning any data.
+ *
+ * Every gridcode gets a slot the first time it is seen, through an IntHashMap.
+ * For every pollutant there is one column of values per data set (that is, per
+ * year), indexed by slot, with NaN where the data set has no value for the cell.
+ * Finding the series of a cell is one hash lookup and one array read per year.
+ * Data sets can be added and removed at any time; the index is updated straight away.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class GridSeriesIndex
+{
+    private final IntHashMap slots;
+    // the coordinates of every slot
+    private int[] xs;
+    private int[] ys;
+    // the year columns of every pollutant, ordered by year
+    private final Map<String, List<YearColumn>> pollutants;
+
+    /**
+     * Create an empty index.
+     */
+    public GridSeriesIndex()
+    {
+        slots = new IntHashMap(4096);
+        xs = new int[4096];
+        ys = new int[4096];
+        pollutants = new HashMap<>();
+    }
+
+    /**
+     * Add the values of a data set as a new year of its pollutant.
+     */
+    public synchronized void add(SimpleDataSet dataSet)
+    {
+        ColumnarDataSet columns = dataSet.getColumns();
+        int[] rowSlots = new int[columns.size()];
+        int maxSlot = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            rowSlots[i] = slotOf(columns.getGridCode(i), columns.getX(i), columns.getY(i));
+            maxSlot = Math.max(maxSlot, rowSlots[i]);
+        }
+
+        double[] values = new double[maxSlot + 1];
+        Arrays.fill(values, Double.NaN);
+        for (int i = 0; i < columns.size(); i++) {
+            values[rowSlots[i]] = columns.getValue(i);
+        }
+
+        List<YearColumn> years = pollutants.computeIfAbsent(DataCatalog.normalise(dataSet.getPollutant()),
+                                                             key -> new ArrayList<>());
+        // keep the columns ordered by year, after any columns of the same year
+        int position = years.size();
+        while (position > 0 && years.get(position - 1).dataSet.getYear().compareTo(dataSet.getYear()) > 0) {
+            position--;
+        }
+        years.add(position, new YearColumn(dataSet, values));
+    }
+
+    /**
+     * Remove the values of a data set that was added before.
+     */
+    public synchronized void remove(SimpleDataSet dataSet)
+    {
+        List<YearColumn> years = pollutants.get(DataCatalog.normalise(dataSet.getPollutant()));
+        if (years != null) {
+            years.removeIf(column -> column.dataSet == dataSet);
+        }
+    }
+
+    /**
+     * Return roughly how many bytes of heap the values of a data set use in the index.
+     */
+    public synchronized long estimateBytes(SimpleDataSet dataSet)
+    {
+        List<YearColumn> years = pollutants.get(DataCatalog.normalise(dataSet.getPollutant()));
+        if (years != null) {
+            for (YearColumn column : years) {
+                if (column.dataSet == dataSet) {
+                    return (long) column.values.length * Double.BYTES + 16;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Return the value of a grid cell in every year of a pollutant.
+     *
+     * @param gridCode the grid cell
+     * @param pollutant the pollutant
+     * @return the values by year, empty if the cell or pollutant is not in the index
+     */
+    public synchronized TreeMap<String, Double> getSeries(int gridCode, String pollutant)
+    {
+        TreeMap<String, Double> series = new TreeMap<>();
+        int slot = slots.get(gridCode);
+        List<YearColumn> years = pollutants.get(DataCatalog.normalise(pollutant));
+        if (slot < 0 || years == null) {
+            return series;
+        }
+        for (YearColumn column : years) {
+            double value = column.valueAt(slot);
+            if (!Double.isNaN(value)) {
+                series.put(column.dataSet.getYear(), value);
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Return the data points of a grid cell in every year of a pollutant, ordered by year.
+     *
+     * @param gridCode the grid cell
+     * @param pollutant the pollutant
+     * @return one data point per year that has a value for the cell
+     */
+    public synchronized ColumnarDataSet getDataPoints(int gridCode, String pollutant)
+    {
+        int slot = slots.get(gridCode);
+        List<YearColumn> years = pollutants.get(DataCatalog.normalise(pollutant));
+        if (slot < 0 || years == null) {
+            return ColumnarDataSet.EMPTY;
+        }
+        ColumnarDataSet.Builder dataPoints = new ColumnarDataSet.Builder(years.size());
+        for (YearColumn column : years) {
+            double value = column.valueAt(slot);
+            if (!Double.isNaN(value)) {
+                dataPoints.add(gridCode, xs[slot], ys[slot], value);
+            }
+        }
+        return dataPoints.build();
+    }
+
+    /**
+     * Call the visitor with the data point of a grid cell in every year of a
+     * pollutant, or only in one year, ordered by year.
+     *
+     * @param gridCode the grid cell
+     * @param pollutant the pollutant
+     * @param year the year, or null for every year
+     * @param visitor the visitor to be called
+     */
+    public synchronized void forEach(int gridCode, String pollutant, String year, DataPointVisitor visitor)
+    {
+        int slot = slots.get(gridCode);
+        List<YearColumn> years = pollutants.get(DataCatalog.normalise(pollutant));
+        if (slot < 0 || years == null) {
+            return;
+        }
+        String normalisedYear = year == null ? null : DataCatalog.normalise(year);
+        for (YearColumn column : years) {
+            double value = column.valueAt(slot);
+            if (!Double.isNaN(value)
+                && (normalisedYear == null || DataCatalog.normalise(column.dataSet.getYear()).equals(normalisedYear))) {
+                visitor.visit(gridCode, xs[slot], ys[slot], value);
+            }
+        }
+    }
+
+    /**
+     * Return the slot of a gridcode, giving it a new one if it has none yet.
+     */
+    private int slotOf(int gridCode, int x, int y)
+    {
+        int slot = slots.get(gridCode);
+        if (slot < 0) {
+            slot = slots.size();
+            slots.put(gridCode, slot);
+            if (slot == xs.length) {
+                xs = Arrays.copyOf(xs, slot * 2);
+                ys = Arrays.copyOf(ys, slot * 2);
+            }
+            xs[slot] = x;
+            ys[slot] = y;
+        }
+        return slot;
+    }
+
+    /**
+     * The values of one data set, indexed by slot.
+     */
+    private static class YearColumn
+    {
+        private final SimpleDataSet dataSet;
+        private final double[] values;
+
+        YearColumn(SimpleDataSet dataSet, double[] values)
+        {
+            this.dataSet = dataSet;
+            this.values = values;
+        }
+
+        /**
+         * Return the value at a slot, or NaN if the data set has none there.
+         * Slots handed out after the data set was added are past the end of the column.
+         */
+        double valueAt(int slot)
+        {
+            return slot < values.length ? values[slot] : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+
+/**
+ * An IngestReport holds the throughput figures of one run of the ingestion pipeline.
+ *
+ * @param files the number of files that were loaded successfully
+ * @param failedFiles the number of files that could not be loaded
+ * @param rows the number of data rows loaded
+ * @param bytes the total size of the loaded files in bytes
+ * @param nanos the time the run took in nanoseconds
+ *
+ * @author Sara Ajdini
+ * @version 1.1
+ */
+public record IngestReport(int files, int failedFiles, long rows, long bytes, long nanos)
+{
+    public static final IngestReport EMPTY = new IngestReport(0, 0, 0, 0, 0);
+
+    /**
+     * Return a report of this run and another one together, as if they were one run.
+     */
+    public IngestReport plus(IngestReport other)
+    {
+        return new IngestReport(files + other.files, failedFiles + other.failedFiles, rows + other.rows,
+                                bytes + other.bytes, nanos + other.nanos);
+    }
+
+    /**
+     * Return the number of data rows loaded per second.
+     */
+    public double rowsPerSecond()
+    {
+        return nanos == 0 ? 0 : rows / (nanos / 1e9);
+    }
+
+    /**
+     * Return the number of megabytes loaded per second.
+     */
+    public double megabytesPerSecond()
+    {
+        return nanos == 0 ? 0 : bytes / 1e6 / (nanos / 1e9);
+    }
+
+    /**
+     * Return a one line summary of this report.
+     */
+    public String toString()
+    {
+        return String.format("Loaded %d files (%d failed), %d rows, %.1f MB in %.1f ms: %.0f rows/s, %.1f MB/s",
+                             files, failedFiles, rows, bytes / 1e6, nanos / 1e6, rowsPerSecond(), megabytesPerSecond());
+    }
+}
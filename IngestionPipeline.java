@@ -0,0 +1,184 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Loads a list of pollution data files in parallel.
+ *
+ * The files are loaded on a fork/join pool with one worker per core. The list of
+ * files is split in halves recursively, so idle workers steal the remaining files
+ * from busy ones and a few large files do not hold up the rest. Each file gets its
+ * own result slot, so the datasets come out in the same order as the files went in,
+ * however the work was scheduled. A file that cannot be loaded is left out and
+ * recorded as failed instead of stopping the whole run.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class IngestionPipeline
+{
+    private final int workers;
+    private final DataLoader loader;
+    private List<String> failedFiles;
+    private IngestReport lastReport;
+
+    /**
+     * Create a pipeline with one worker per available core.
+     */
+    public IngestionPipeline()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a pipeline with the given number of workers.
+     */
+    public IngestionPipeline(int workers)
+    {
+        this(workers, new DataLoader());
+    }
+
+    /**
+     * Create a pipeline with the given number of workers that loads the files with
+     * the given loader.
+     */
+    IngestionPipeline(int workers, DataLoader loader)
+    {
+        if (workers < 1) {
+            throw new IllegalArgumentException("A pipeline needs at least one worker");
+        }
+        this.workers = workers;
+        this.loader = loader;
+        failedFiles = Collections.emptyList();
+    }
+
+    /**
+     * Load all the files and turn each one into a simple data set.
+     *
+     * @param files the names of the files to load
+     * @param filter turns a loaded data set into the simple data set that is kept
+     * @return the simple data sets, in the same order as the files
+     */
+    public List<SimpleDataSet> ingest(List<String> files, Function<DataSet, SimpleDataSet> filter)
+    {
+        return ingest(files, new CityRegion[0], filter);
+    }
+
+    /**
+     * Load only the rows inside the given cities from all the files and turn each
+     * one into a simple data set. Rows outside the cities are dropped while parsing.
+     *
+     * @param files the names of the files to load
+     * @param regions the cities to keep the rows of, none to keep whole files
+     * @param filter turns a loaded data set into the simple data set that is kept
+     * @return the simple data sets, in the same order as the files
+     */
+    public List<SimpleDataSet> ingest(List<String> files, CityRegion[] regions, Function<DataSet, SimpleDataSet> filter)
+    {
+        String[] fileNames = files.toArray(new String[0]);
+        SimpleDataSet[] results = new SimpleDataSet[fileNames.length];
+        long[] rows = new long[fileNames.length];
+        Throwable[] errors = new Throwable[fileNames.length];
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            pool.invoke(new IngestTask(fileNames, regions, filter, results, rows, errors, 0, fileNames.length));
+        }
+        finally {
+            pool.shutdown();
+        }
+        long nanos = System.nanoTime() - start;
+
+        List<SimpleDataSet> dataSets = new ArrayList<>(fileNames.length);
+        List<String> failed = new ArrayList<>();
+        long totalRows = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < fileNames.length; i++) {
+            if (results[i] != null) {
+                dataSets.add(results[i]);
+                totalRows += rows[i];
+                totalBytes += new File(fileNames[i]).length();
+            } else {
+                failed.add(fileNames[i]);
+                System.err.println("Could not load " + fileNames[i] + (errors[i] != null ? ": " + errors[i] : ""));
+            }
+        }
+        failedFiles = Collections.unmodifiableList(failed);
+        lastReport = new IngestReport(dataSets.size(), failed.size(), totalRows, totalBytes, nanos);
+        return dataSets;
+    }
+
+    /**
+     * Return the files that could not be loaded in the last run.
+     */
+    public List<String> getFailedFiles()
+    {
+        return failedFiles;
+    }
+
+    /**
+     * Return the throughput figures of the last run, or null if there was no run yet.
+     */
+    public IngestReport getLastReport()
+    {
+        return lastReport;
+    }
+
+    /**
+     * Loads a range of the files, splitting it in halves until one file is left.
+     */
+    private class IngestTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] fileNames;
+        private final CityRegion[] regions;
+        private final Function<DataSet, SimpleDataSet> filter;
+        private final SimpleDataSet[] results;
+        private final long[] rows;
+        private final Throwable[] errors;
+        private final int from;
+        private final int to;
+
+        IngestTask(String[] fileNames, CityRegion[] regions, Function<DataSet, SimpleDataSet> filter,
+                   SimpleDataSet[] results, long[] rows, Throwable[] errors, int from, int to)
+        {
+            this.fileNames = fileNames;
+            this.regions = regions;
+            this.filter = filter;
+            this.results = results;
+            this.rows = rows;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new IngestTask(fileNames, regions, filter, results, rows, errors, from, middle),
+                          new IngestTask(fileNames, regions, filter, results, rows, errors, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                try {
+                    DataSet dataSet = loader.loadDataFileCached(fileNames[i], regions);
+                    if (dataSet != null) {
+                        rows[i] = dataSet.getColumns().size();
+                        results[i] = filter.apply(dataSet);
+                    }
+                }
+                catch (RuntimeException e) {
+                    errors[i] = e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for IngestionPipeline.
+ * This class verifies that the files come out in the order they went in, that a
+ * file that cannot be loaded does not stop the others, and that the workers load
+ * files at the same time.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class IngestionPipelineTest
+{
+    /**
+     * A loader that makes a small data set out of the name of the file instead of
+     * reading it. Files named "bad" cannot be loaded, and loading takes the given time.
+     */
+    private static class FakeLoader extends DataLoader
+    {
+        private final long millis;
+
+        FakeLoader(long millis)
+        {
+            this.millis = millis;
+        }
+
+        @Override
+        public DataSet loadDataFileCached(String fileName, CityRegion... regions)
+        {
+            if (fileName.startsWith("bad")) {
+                throw new IllegalStateException("broken file " + fileName);
+            }
+            if (millis > 0) {
+                try {
+                    Thread.sleep(millis);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            DataSet dataSet = new DataSet("NO2", fileName, "annual mean", "ugm-3");
+            dataSet.addData(1, 530500, 180500, 20.5);
+            return dataSet;
+        }
+    }
+
+    /**
+     * Default constructor for test class IngestionPipelineTest
+     */
+    public IngestionPipelineTest()
+    {
+    }
+
+    private static List<String> fileNames(int count)
+    {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add("file" + i);
+        }
+        return files;
+    }
+
+    private static SimpleDataSet toSimpleDataSet(DataSet dataSet)
+    {
+        return new SimpleDataSet(dataSet.getPollutant(), dataSet.getYear(), dataSet.getMetric(), dataSet.getColumns());
+    }
+
+    /**
+     * Tests that the data sets come out in the same order as the files, whatever
+     * worker loaded them.
+     */
+    @Test
+    public void testOrder()
+    {
+        List<String> files = fileNames(37);
+        IngestionPipeline pipeline = new IngestionPipeline(4, new FakeLoader(0));
+        List<SimpleDataSet> dataSets = pipeline.ingest(files, IngestionPipelineTest::toSimpleDataSet);
+        assertEquals(files.size(), dataSets.size());
+        for (int i = 0; i < files.size(); i++) {
+            assertEquals(files.get(i), dataSets.get(i).getYear());
+        }
+        assertEquals(37, pipeline.getLastReport().files());
+        assertEquals(37, pipeline.getLastReport().rows());
+        assertTrue(pipeline.getFailedFiles().isEmpty());
+    }
+
+    /**
+     * Tests that files that cannot be loaded are left out and reported, and the rest
+     * are still loaded in order.
+     */
+    @Test
+    public void testFailedFiles()
+    {
+        List<String> files = List.of("file0", "bad1", "file2", "bad3", "file4");
+        IngestionPipeline pipeline = new IngestionPipeline(2, new FakeLoader(0));
+        List<SimpleDataSet> dataSets = pipeline.ingest(files, IngestionPipelineTest::toSimpleDataSet);
+        assertEquals(3, dataSets.size());
+        assertEquals("file0", dataSets.get(0).getYear());
+        assertEquals("file2", dataSets.get(1).getYear());
+        assertEquals("file4", dataSets.get(2).getYear());
+        assertEquals(List.of("bad1", "bad3"), pipeline.getFailedFiles());
+        assertEquals(2, pipeline.getLastReport().failedFiles());
+    }
+
+    /**
+     * Tests that a pipeline with more workers loads slow files in less time.
+     */
+    @Test
+    public void testSpeedUp()
+    {
+        List<String> files = fileNames(8);
+        IngestionPipeline single = new IngestionPipeline(1, new FakeLoader(50));
+        single.ingest(files, IngestionPipelineTest::toSimpleDataSet);
+        IngestionPipeline parallel = new IngestionPipeline(4, new FakeLoader(50));
+        parallel.ingest(files, IngestionPipelineTest::toSimpleDataSet);
+
+        long singleNanos = single.getLastReport().nanos();
+        long parallelNanos = parallel.getLastReport().nanos();
+        assertTrue(singleNanos >= 8 * 50_000_000L);
+        assertTrue(parallelNanos * 2 < singleNanos,
+                   "4 workers took " + parallelNanos / 1e6 + " ms, 1 worker " + singleNanos / 1e6 + " ms");
+    }
+
+    /**
+     * Tests that a pipeline cannot be made without workers.
+     */
+    @Test
+    public void testNoWorkers()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new IngestionPipeline(0));
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys to non-negative int values, such as from gridcodes to
+ * array indexes, that stores keys and values in two primitive arrays.
+ *
+ * The map uses open addressing with linear probing, so a lookup is a hash, an array
+ * read and usually no more than one or two comparisons, with no boxing and no entry
+ * objects. Entries cannot be removed.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class IntHashMap
+{
+    // marks an empty slot in the values array; real values are never negative
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Create an empty map.
+     */
+    public IntHashMap()
+    {
+        this(16);
+    }
+
+    /**
+     * Create an empty map with room for the given number of entries before it has to grow.
+     */
+    public IntHashMap(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Return the value stored for a key.
+     *
+     * @return the value, or -1 if the key is not in the map
+     */
+    public int get(int key)
+    {
+        int slot = hash(key) & mask;
+        while (values[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Return true if the key is in the map.
+     */
+    public boolean containsKey(int key)
+    {
+        return get(key) != EMPTY;
+    }
+
+    /**
+     * Store a value for a key, replacing any value stored for it before.
+     *
+     * @param value the value, which must not be negative
+     * @return the value stored for the key before, or -1 if there was none
+     */
+    public int put(int key, int value)
+    {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must not be negative: " + value);
+        }
+        int slot = hash(key) & mask;
+        while (values[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                int old = values[slot];
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        // keep the table at most half full so probe sequences stay short
+        if (size * 2 > keys.length) {
+            grow();
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Return the number of entries in the map.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Double the table and put all the entries back in.
+     */
+    private void grow()
+    {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, EMPTY);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spread the bits of a key, so that keys that are close together (like
+     * neighbouring gridcodes) do not end up in neighbouring slots.
+     */
+    private static int hash(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test class for IntHashMap.
+ * This class verifies that the map behaves like a HashMap of Integers,
+ * also while it grows and for keys that collide.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class IntHashMapTest
+{
+    /**
+     * Default constructor for test class IntHashMapTest
+     */
+    public IntHashMapTest()
+    {
+    }
+
+    /**
+     * Tests that missing keys return -1 and stored values are found again.
+     */
+    @Test
+    public void testPutAndGet()
+    {
+        IntHashMap map = new IntHashMap();
+        assertEquals(-1, map.get(771285));
+        assertEquals(-1, map.put(771285, 0));
+        assertEquals(-1, map.put(-1, 7));
+        assertEquals(-1, map.put(Integer.MIN_VALUE, 8));
+        assertEquals(0, map.get(771285));
+        assertEquals(7, map.get(-1));
+        assertEquals(8, map.get(Integer.MIN_VALUE));
+        assertEquals(0, map.put(771285, 3));
+        assertEquals(3, map.get(771285));
+        assertEquals(3, map.size());
+        assertFalse(map.containsKey(771286));
+    }
+
+    /**
+     * Tests that the map gives the same results as a HashMap after many random
+     * insertions, which make the table grow several times.
+     */
+    @Test
+    public void testMatchesHashMap()
+    {
+        IntHashMap map = new IntHashMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(30000) - 5000;
+            int value = random.nextInt(1000);
+            assertEquals(expected.getOrDefault(key, -1), map.put(key, value));
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -5000; key < 25000; key++) {
+            assertEquals(expected.getOrDefault(key, -1), map.get(key));
+        }
+    }
+
+    /**
+     * Tests that negative values are refused, as -1 means a key is missing.
+     */
+    @Test
+    public void testNegativeValue()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new IntHashMap().put(1, -1));
+    }
+}
@@ -12,6 +12,10 @@ public class LeedsMapPage extends MapPage
     public LeedsMapPage(DataFiles dataFiles){
         super(dataFiles);
     }
+    
+    public LeedsMapPage(DataFiles dataFiles, boolean tiledBaseMap){
+        super(dataFiles, tiledBaseMap);
+    }
         
     /**
      * returns Leeds data points for current year and pollutant 
@@ -22,6 +26,11 @@ public class LeedsMapPage extends MapPage
         return dataFiles.getFilteredDataPoints(year,pollutant,city);
     }
 
+    @Override
+    public String getCity(){
+        return city;
+    }
+
     @Override
     protected  String getMapImagePath(){
         return "Leeds.png";
@@ -35,6 +35,15 @@ public class LeedsPollutionChart extends PollutionChart
          return data.getFilteredDataPoints(year,pollutant,city);
     }
     
+    /**
+     * Returns the city this chart shows the pollution levels of.
+     * 
+     * @return the city name
+     */
+    public String getCity(){
+        return city;
+    }
+    
     /**
      * Overrides and Sets the chart title for Leeds Pollution Levels
      */
@@ -13,6 +13,10 @@ public class LondonMapPage extends MapPage
         super(dataFiles);
     }
     
+    public LondonMapPage(DataFiles dataFiles, boolean tiledBaseMap){
+        super(dataFiles, tiledBaseMap);
+    }
+    
     /**
      * returns London data points for current year and pollutant 
      * 
@@ -22,6 +26,11 @@ public class LondonMapPage extends MapPage
         return dataFiles.getFilteredDataPoints(year,pollutant,city);
     }
 
+    @Override
+    public String getCity(){
+        return city;
+    }
+
     @Override
     protected  String getMapImagePath(){
         return "London.png";
@@ -15,7 +15,6 @@ import java.util.HashMap;
 import javafx.scene.control.ComboBox;
 import java.util.List;
 import java.util.ArrayList;
-import java.io.File;
 
 /**
  * The test class MapPageTest.
@@ -49,6 +48,8 @@ public class LondonMapPageTest
     public void setUpMap()
     {   dataFiles = new DataFiles();
         mapPage = new LondonMapPage(dataFiles);
+        // the marks are drawn as shapes on the pane in these tests, not painted on a canvas
+        mapPage.renderMode = MapPage.RenderMode.NODES;
         testPane = new Pane();
     }
     
@@ -148,8 +149,6 @@ public class LondonMapPageTest
      */
     @Test
     public void testGetHighestPollution(){
-        File directory = new File("UKAirPollutionData");
-        List<String> pollutionFiles = dataFiles.findFiles(directory, new ArrayList<>());
         List<DataPoint> testDataPoints = mapPage.getDataPoints();
         List<DataPoint> testHighestPollutionDatapoints = new ArrayList<>();
         
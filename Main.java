@@ -34,6 +34,7 @@ import javafx.geometry.Pos;
 
 import java.util.concurrent.ExecutionException;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Main initializes all pages and runs the application
@@ -49,6 +50,9 @@ public class Main extends Application {
     
     private DataFiles dataFilesAll;
     private MapPage currentMapPage;
+    private MapPageRegistry<MapPage> mapPages;
+    // the live air quality nodes, moved to the api box of the map page shown
+    private List<Node> liveDataNodes = new ArrayList<>();
     private PollutionPanel panel;
     private ComparisonPage comparisonPage;
     private LondonPollutionChart londonChart;
@@ -95,15 +99,20 @@ public class Main extends Application {
         dataLoaderTask = new Task<>() {
             @Override
             protected DataFiles call() {
-                dataFilesAll = new DataFiles(); // heavy loading
+                // files are loaded when first needed, using at most a quarter of the heap
+                dataFilesAll = new DataFiles(Runtime.getRuntime().maxMemory() / 4);
         
                 // Initialize all non-UI logic-heavy objects
-                currentMapPage = new LondonMapPage(dataFilesAll);
+                // every city's map page is built once here, switching city only swaps them
+                mapPages = MapPageRegistry.forMapPages(dataFilesAll, true);
+                currentMapPage = mapPages.get("London");
                 panel = new PollutionPanel(dataFilesAll);
                 comparisonPage = new ComparisonPage(dataFilesAll);
                 londonChart = new LondonPollutionChart(dataFilesAll);
                 leedsChart = new LeedsPollutionChart(dataFilesAll);
                 oxfordChart = new OxfordPollutionChart(dataFilesAll);
+                // the throughput of the files loaded to build the pages, once per run
+                System.out.println(dataFilesAll.getIngestReport());
         
                 return dataFilesAll;
             }
@@ -176,8 +185,6 @@ public class Main extends Application {
         citySwitcher.setValue("London");
         citySwitcher.setOnAction(e -> switchCity(citySwitcher.getValue(), mapTab));
 
-        currentMapPage.getFiltersHBox().getChildren().addAll(new Label("\tSelect City:  "), citySwitcher);
-        
         panelTab = new Tab("Statistics Panel", panel.getRootPane());
 
         comparisonTab = new Tab("Comparison Panel", comparisonPage.getRootPane());
@@ -197,35 +204,16 @@ public class Main extends Application {
         
         liveData = new AirQualityAPI();
         liveDisplay = new AirQualityDisplay(liveData);
-        HBox airQualityPane = liveDisplay.getAirQualityHBox();
-        liveDisplay.refreshData("London");
-        Button instructionButton = new Button("Instructions");
-        InstructionsPopup instruction = instructionsMap.get(mapTab);
-        if (instruction != null) {
-                instructionButton.setOnAction(e -> instruction.show());
-            }
-        quitButton = new Button("Quit");
-        quitButton.setOnAction(event -> quit());
-            
-        Region spacer = new Region();
-        HBox.setHgrow(spacer, Priority.ALWAYS);
-        currentMapPage.getApiBox().getChildren().setAll(new ArrayList<Node>(){{addAll(airQualityPane.getChildren());
-            add(spacer);
-            add(instructionButton);
-            add(quitButton);
-            add(new Label("  "));
-        }
-        });    
-        
         
         tabPane.getStyleClass().add("tab-pane");
         addTabHeaders();
     
         tc = new TabController(tabPane);
-        currentMapPage.importTabController(tc);
-        currentMapPage.importPollutionPanel(panel);
-
-        styleMap();
+        for (String city : mapPages.getCities()) {
+            prepareMapPage(mapPages.get(city));
+        }
+        currentMapPage.getFiltersHBox().getChildren().add(citySwitcher);
+        showLiveData("London");
         stylePanel();
 
         Scene mainScene = new Scene(tabPane, 1000, 600);
@@ -280,53 +268,55 @@ public class Main extends Application {
     
     /**
      * Sets map content to the correct map
-     * Updates mapTab content
+     * The pages are kept in the registry, so only the page in the map tab changes
+     * and each page keeps its filters and marks
      * 
      */
     private void switchCity(String city, Tab mapTab) {
+        currentMapPage.getApiBox().getChildren().removeAll(liveDataNodes);
+        currentMapPage = mapPages.get(city);
+        currentMapPage.getFiltersHBox().getChildren().add(citySwitcher);
+        mapTab.setContent(currentMapPage.getRootPane());
+        showLiveData(city);
+    }
+    
+    /**
+     * Adds the city label, instructions and quit buttons to a map page and gives it the tab controller
+     * and statistics panel, once when the app is launched
+     */
+    private void prepareMapPage(MapPage page) {
+        page.getFiltersHBox().getChildren().add(new Label("\tSelect City:  "));
+        page.importTabController(tc);
+        page.importPollutionPanel(panel);
+        
         quitButton = new Button("Quit");
         quitButton.setOnAction(event -> quit());
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
-
-        if (city.equalsIgnoreCase("London")) {
-            currentMapPage = new LondonMapPage(dataFilesAll);
-        } else if (city.equalsIgnoreCase("Leeds")) {
-            currentMapPage = new LeedsMapPage(dataFilesAll);
-        } else if (city.equalsIgnoreCase("Oxford")) {
-            currentMapPage = new OxfordMapPage(dataFilesAll);
-        }
-        currentMapPage.getFiltersHBox().getChildren().addAll(new Label("\tSelect City:  "), citySwitcher);
-        currentMapPage.importTabController(tc);
-        currentMapPage.importPollutionPanel(panel);
-        styleMap();
-        mapTab.setContent(currentMapPage.getRootPane());
-        
-        BorderPane newMapPane = new BorderPane(currentMapPage.getRootPane());
-        
-        HBox airQualityPane = liveDisplay.getAirQualityHBox();
-        liveDisplay.refreshData(city);
-        
         Button instructionButton = new Button("Instructions");
         InstructionsPopup instruction = instructionsMap.get(mapTab);
         if (instruction != null) {
                 instructionButton.setOnAction(e -> instruction.show());
             }
-        currentMapPage.getApiBox().getChildren().setAll(new ArrayList<Node>(){{addAll(airQualityPane.getChildren()); 
-                                                                                add(spacer);
-                                                                                add(instructionButton);
-                                                                                add(quitButton);
-                                                                                add(new Label("  "));}});
-        
-        mapTab.setContent(newMapPane);
+        page.getApiBox().getChildren().setAll(spacer, instructionButton, quitButton, new Label("  "));
+        styleMap(page);
+    }
+    
+    /**
+     * Fetches the live air quality of a city and shows it on the current map page
+     */
+    private void showLiveData(String city) {
+        liveDisplay.refreshData(city);
+        liveDataNodes = new ArrayList<>(liveDisplay.getAirQualityHBox().getChildren());
+        currentMapPage.getApiBox().getChildren().addAll(0, liveDataNodes);
     }
 
     /**
      * Styles map filters
      */
-    private void styleMap() {
-        currentMapPage.getFiltersHBox().getStyleClass().add("filters");
-        currentMapPage.getApiBox().getStyleClass().add("filters");   
+    private void styleMap(MapPage page) {
+        page.getFiltersHBox().getStyleClass().add("filters");
+        page.getApiBox().getStyleClass().add("filters");   
     }
 
     /**
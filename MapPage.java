@@ -1,4 +1,5 @@
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.layout.VBox;
 
 import javafx.event.ActionEvent;
@@ -7,25 +8,33 @@ import javafx.event.EventHandler;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.layout.Pane;
+import javafx.scene.Node;
+import javafx.scene.Group;
+import javafx.scene.transform.Scale;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.control.ScrollPane;
+import javafx.geometry.Bounds;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.control.ComboBox;
 import javafx.scene.layout.HBox;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Tooltip;
+import javafx.scene.control.Spinner;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.HashMap;
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javafx.geometry.Insets;
 import javafx.collections.FXCollections;
@@ -39,23 +48,121 @@ import javafx.collections.FXCollections;
  * @version 1.0
  */
 public abstract class MapPage {
+    /**
+     * How the marks are drawn: as one Rectangle node each, painted onto a canvas covering
+     * the part of the map in view, rendered into one image that is drawn onto a canvas,
+     * or painted a few at every frame, highest values first.
+     */
+    public enum RenderMode {
+        NODES("Shapes"),
+        CANVAS("Canvas"),
+        IMAGE("Image"),
+        PROGRESSIVE("Progressive");
+        
+        private final String displayName;
+        
+        RenderMode(String displayName){
+            this.displayName = displayName;
+        }
+        
+        @Override
+        public String toString(){
+            return displayName;
+        }
+    }
+    
+    // how many of the most polluted areas are shown when the checkbox is ticked, unless the user picks another number
+    protected static final int DEFAULT_TOP_COUNT = 100;
+    protected static final int MAX_TOP_COUNT = 1000;
+    
+    // mark colours, parsed once instead of for every mark
+    protected static final Color GREEN = Color.web("rgba(0,255,0,0.3)");
+    protected static final Color YELLOW = Color.web("rgba(255,255,0,0.3)");
+    protected static final Color ORANGE = Color.web("rgba(255,165,0,0.3)");
+    protected static final Color RED = Color.web("rgba(255,0,0,0.3)");
+    protected static final Color BLUE = Color.web("rgba(0,0,255,0.3)");
+    // the highest levels shown green, yellow and orange for each pollutant
+    private static final double[] NO2_BREAKS = {15, 20, 25};
+    private static final double[] PM10_BREAKS = {15, 17, 19};
+    private static final double[] PM25_BREAKS = {8, 10, 12};
+    // rendered overlays are kept for all the map pages together, up to about eight full-size maps
+    private static final long OVERLAY_CACHE_PIXELS = 16_000_000;
+    private static final OverlayCache overlayCache = new OverlayCache(OVERLAY_CACHE_PIXELS);
+    // renders overlays off the JavaFX thread, one at a time, each filled in parallel strips
+    private static final ExecutorService overlayRenderer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "map overlay renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // how far the map can be zoomed out and in, and how much one step zooms
+    protected static final double MIN_ZOOM = 1.0 / 16;
+    protected static final double MAX_ZOOM = 4;
+    protected static final double ZOOM_STEP = 1.25;
+    // when marks are drawn smaller than this many pixels, they are summed up into bins of this size instead
+    protected static final double MIN_MARK_PIXELS = 8;
     protected double scaleX, scaleY;
     protected HashMap<Rectangle, DataPoint> marks;
     
     protected String year, pollutant;
+    // the whole map image and the canvas it is drawn on, or null when the base map is tiled
     protected Image mapImage;
     protected Canvas map;
+    // the tiles of the visible part of the map, or null when the base map is one image
+    protected MapTileLayer tileLayer;
+    // the size of the map image, in pixels
+    protected double mapWidth, mapHeight;
+    // the rendered overlay or the progressively painted marks are drawn on this canvas, on top of the map,
+    // or null while the marks are drawn another way
+    protected Canvas markCanvas;
+    // the marks on the map, as shapes or painted, in the order they were drawn
+    protected ColumnarDataSet paintedMarks = ColumnarDataSet.EMPTY;
+    // finds which of paintedMarks is under the mouse
+    protected MarkHitGrid hitGrid = MarkHitGrid.EMPTY;
+    // the outline drawn around the mark under the mouse
+    protected Rectangle hoverOutline;
+    // the index in paintedMarks of the mark under the mouse, or -1
+    protected int hoveredMark = -1;
+    // canvas mode paints only the marks in view, binned when zoomed out, so it is the one the map starts in
+    protected RenderMode renderMode = RenderMode.CANVAS;
+    // the size the map is shown at, 1 being the size of the map image
+    protected double zoom = 1;
+    protected Scale zoomScale;
+    // the marks painted in canvas mode, only those in view, on a canvas covering the visible part of the map
+    protected Canvas viewCanvas;
+    // finds the painted marks in view in canvas mode
+    protected SpatialIndex viewIndex = new SpatialIndex(ColumnarDataSet.EMPTY);
+    // the number of rectangles filled the last time the visible marks were painted
+    protected int drawnShapes;
+    // the paint still going on in progressive mode, or null
+    protected ProgressivePaint progressivePaint;
     
     protected BorderPane rootPane;
     protected ScrollPane scrollPane;
     protected Pane pane;
+    // the content of the scroll pane, as big as the zoomed map
+    protected Pane content;
     
     protected ComboBox pollutantComboBox, yearComboBox;
     protected CheckBox highlyPollutedCheckBox;
+    protected CheckBox adaptiveColoursCheckBox;
+    protected Spinner<Integer> topCountSpinner;
+    protected ComboBox<RenderMode> renderModeComboBox;
+    protected Label overlayCacheLabel;
+    protected Button zoomInButton, zoomOutButton;
+    protected Label zoomLabel;
+    protected ComboBox<ScreenBins.Reduction> binReductionComboBox;
     protected HBox filters;
     private HBox airQualityBox = new HBox(); 
     protected Button updateMapButton;
     protected Tooltip tooltip;
+    protected DataRaster yearChange;
+    // the city, pollutant and years yearChange was worked out for, or null before the first mark is shown
+    protected String yearChangeKey;
+    protected RankIndex rankIndex;
+    // the key of the overlay being rendered to be shown, or null if none is
+    protected String pendingOverlayKey;
+    // the values between green and yellow, yellow and orange, and orange and red, or null for the fixed ones
+    protected double[] colourBreaks;
     
     protected TabController tabController;
     protected PollutionPanel pollutionPanel;
@@ -63,17 +170,37 @@ public abstract class MapPage {
     protected DataFiles dataFiles;
     
     public MapPage(DataFiles dataFiles) {
+        this(dataFiles, false);
+    }
+    
+    /**
+     * @param dataFiles  the data the marks are drawn from
+     * @param tiledBaseMap  true to show the base map as tiles, loading only the part in view,
+     *                      false to decode it as one image when the page is made
+     */
+    public MapPage(DataFiles dataFiles, boolean tiledBaseMap) {
         rootPane = new BorderPane();
         marks = new HashMap<>();
-        mapImage = new Image(getMapImagePath());
+        if(tiledBaseMap){
+            //only the size is read from the image here, its tiles are loaded when they are scrolled into view
+            MapTilePyramid pyramid = MapTilePyramid.forImage(getMapImagePath());
+            tileLayer = new MapTileLayer(pyramid);
+            mapWidth = pyramid.getWidth();
+            mapHeight = pyramid.getHeight();
+        }
+        else{
+            mapImage = new Image(getMapImagePath());
+            mapWidth = mapImage.getWidth();
+            mapHeight = mapImage.getHeight();
+        }
         this.dataFiles = dataFiles;
         
              
         int coordsX = getMaxX() - getOriginX();
-        scaleX = mapImage.getWidth() / coordsX;        
+        scaleX = mapWidth / coordsX;        
     
         int coordsY = getMaxY() - getOriginY();
-        scaleY =  mapImage.getHeight()/ coordsY;
+        scaleY =  mapHeight / coordsY;
         setupUI();   
     }
     
@@ -85,10 +212,17 @@ public abstract class MapPage {
         rootPane = new BorderPane();
         marks = new HashMap<>();
        
-        //creates map canvas
-        map = new Canvas(mapImage.getWidth(),mapImage.getHeight());
-        GraphicsContext gc = map.getGraphicsContext2D();
-        gc.drawImage(mapImage,0,0);
+        //creates the base map layer, which filter changes never redraw
+        Node baseMap;
+        if(tileLayer != null){
+            baseMap = tileLayer.getPane();
+        }
+        else{
+            map = new Canvas(mapWidth,mapHeight);
+            GraphicsContext gc = map.getGraphicsContext2D();
+            gc.drawImage(mapImage,0,0);
+            baseMap = map;
+        }
     
         //filters
         yearComboBox = new ComboBox(FXCollections.observableArrayList("2018", "2019", "2020", "2021", "2022", "2023"));
@@ -101,16 +235,51 @@ public abstract class MapPage {
         pollutant = (String) pollutantComboBox.getValue();
     
         highlyPollutedCheckBox = new CheckBox("View most polluted areas only");
+        topCountSpinner = new Spinner<>(1, MAX_TOP_COUNT, DEFAULT_TOP_COUNT, 10);
+        topCountSpinner.setEditable(true);
+        topCountSpinner.setPrefWidth(80);
+        adaptiveColoursCheckBox = new CheckBox("Colour by quartile");
+        renderModeComboBox = new ComboBox<>(FXCollections.observableArrayList(RenderMode.values()));
+        renderModeComboBox.setValue(renderMode);
+        overlayCacheLabel = new Label();
+        overlayCacheLabel.setVisible(false);
         updateMapButton = new Button("Update Map");
+        zoomOutButton = new Button("-");
+        zoomInButton = new Button("+");
+        zoomLabel = new Label("100%");
+        binReductionComboBox = new ComboBox<>(FXCollections.observableArrayList(ScreenBins.Reduction.values()));
+        binReductionComboBox.setValue(ScreenBins.Reduction.MEAN);
 
-        filters= new HBox(new Label("Year: "),yearComboBox,new Label(" Pollutant: "),pollutantComboBox,new Label("\t"),updateMapButton,new Label("\t\t"), highlyPollutedCheckBox);
+        filters= new HBox(new Label("Year: "),yearComboBox,new Label(" Pollutant: "),pollutantComboBox,new Label("\t"),updateMapButton,new Label("\t\t"), highlyPollutedCheckBox,new Label(" Areas: "),topCountSpinner,new Label("\t"),adaptiveColoursCheckBox,new Label(" Draw marks as: "),renderModeComboBox,new Label(" "),overlayCacheLabel,new Label("\tZoom: "),zoomOutButton,zoomLabel,zoomInButton,new Label(" Zoomed out, show: "),binReductionComboBox);
         filters.setPadding(new Insets(10,10,10,10));
         filters.getStyleClass().add("hbox");
     
-        //creating panes
-        pane = new Pane(map);
-        pane.prefWidthProperty().bind(map.widthProperty());
-        pane.prefHeightProperty().bind(map.heightProperty());
+        tooltip = new Tooltip();
+        hoverOutline = new Rectangle(0, 0, getMarkWidth(), getMarkHeight());
+        hoverOutline.setFill(Color.TRANSPARENT);
+        hoverOutline.setStroke(Color.WHITE);
+        hoverOutline.setMouseTransparent(true);
+        hoverOutline.setVisible(false);
+        
+        viewCanvas = new Canvas();
+        viewCanvas.setMouseTransparent(true);
+        
+        //creating panes, the tiles are zoomed by their layer and everything on the pane by its transform
+        pane = new Pane(hoverOutline);
+        if(tileLayer == null){
+            pane.getChildren().add(0, baseMap);
+        }
+        zoomScale = new Scale(zoom, zoom, 0, 0);
+        pane.getTransforms().add(zoomScale);
+        content = tileLayer == null ? new Pane(new Group(pane), viewCanvas) : new Pane(baseMap, new Group(pane), viewCanvas);
+        content.setPrefSize(mapWidth, mapHeight);
+        
+        //a single set of mouse handlers on the pane serves every mark, shapes included, as their events bubble up to it
+        pane.setOnMouseMoved(e -> hoverMark(e.getX(), e.getY(), e.getScreenX(), e.getScreenY()));
+        pane.setOnMouseExited(e -> hoverMark(Double.NaN, Double.NaN, 0, 0));
+        pane.setOnMouseClicked(e -> {int i = markAt(e.getX(), e.getY());
+                                     if(i >= 0 && e.isStillSincePress()){ selectMark(paintedMarks.getDataPoint(i)); }});
+        pane.setPrefSize(mapWidth, mapHeight);
         paintMarks(pane);
         
         //buttons depending on pane
@@ -120,7 +289,30 @@ public abstract class MapPage {
         highlyPollutedCheckBox.selectedProperty().addListener((obs, wasSelected, isSelected) -> {clearMap(pane);   
                                                                                                  paintMarks(pane); });                                                    
         
-        scrollPane = new ScrollPane(pane);
+        renderModeComboBox.setOnAction((ActionEvent ev) -> {  clearMap(pane);
+                                                              renderMode = renderModeComboBox.getValue();
+                                                              paintMarks(pane);});
+        
+        adaptiveColoursCheckBox.selectedProperty().addListener((obs, wasSelected, isSelected) -> {clearMap(pane);
+                                                                                                 paintMarks(pane); });
+        
+        //only the marks of the most polluted areas depend on the number, so nothing needs redrawing otherwise
+        topCountSpinner.valueProperty().addListener((obs, oldCount, newCount) -> {if(highlyPollutedCheckBox.isSelected()){
+                                                                                     clearMap(pane);
+                                                                                     paintMarks(pane);}});
+        
+        //dragging the map pans it, ctrl and the mouse wheel zooms around the mouse
+        scrollPane = new ScrollPane(content);
+        scrollPane.setPannable(true);
+        scrollPane.hvalueProperty().addListener((obs, oldValue, newValue) -> updateViewport());
+        scrollPane.vvalueProperty().addListener((obs, oldValue, newValue) -> updateViewport());
+        scrollPane.viewportBoundsProperty().addListener((obs, oldBounds, newBounds) -> updateViewport());
+        scrollPane.addEventFilter(ScrollEvent.SCROLL, e -> {if(e.isControlDown() && e.getDeltaY() != 0){
+                                                                 setZoom(e.getDeltaY() > 0 ? zoom * ZOOM_STEP : zoom / ZOOM_STEP, e.getX(), e.getY());
+                                                                 e.consume();}});
+        zoomInButton.setOnAction((ActionEvent ev) -> zoomAroundCentre(zoom * ZOOM_STEP));
+        zoomOutButton.setOnAction((ActionEvent ev) -> zoomAroundCentre(zoom / ZOOM_STEP));
+        binReductionComboBox.setOnAction((ActionEvent ev) -> paintViewport());
         VBox topContainer = new VBox();
         topContainer.getChildren().addAll(filters, airQualityBox);
         rootPane.setTop(topContainer);
@@ -137,14 +329,20 @@ public abstract class MapPage {
     protected void clearMap(Pane p){
         year =(String) yearComboBox.getValue();
         pollutant =(String) pollutantComboBox.getValue();
+        cancelProgressivePaint();
         
+        //clears all marks on the map, looking each child up in the marks instead of removing them one by one
+        p.getChildren().removeAll(marks.keySet());
         marks.clear();
-        //clears all marks on the map
-        for(int i = p.getChildren().size() - 1; i >= 0; i--) {
-        if (p.getChildren().get(i) instanceof Rectangle) {
-        p.getChildren().remove(i);
-        }
+        
+        if(markCanvas != null){
+            markCanvas.getGraphicsContext2D().clearRect(0, 0, markCanvas.getWidth(), markCanvas.getHeight());
         }
+        viewCanvas.getGraphicsContext2D().clearRect(0, 0, viewCanvas.getWidth(), viewCanvas.getHeight());
+        viewIndex = new SpatialIndex(ColumnarDataSet.EMPTY);
+        paintedMarks = ColumnarDataSet.EMPTY;
+        hitGrid = MarkHitGrid.EMPTY;
+        hoverMark(Double.NaN, Double.NaN, 0, 0);
     }
     
     /**
@@ -152,16 +350,466 @@ public abstract class MapPage {
      * calls drawMark for each datapoint in the list
      */
     public void paintMarks(Pane p){
-        List<DataPoint> dataPoints = getDataPoints();
+        //a newer paint replaces one that has not finished yet
+        cancelProgressivePaint();
+        rankIndex = dataFiles.getRankIndex(year, pollutant, getCity());
+        colourBreaks = adaptiveColoursCheckBox.isSelected() ? getQuartileBreaks() : null;
+        overlayCacheLabel.setVisible(renderMode == RenderMode.IMAGE);
+        if(renderMode != RenderMode.IMAGE && renderMode != RenderMode.PROGRESSIVE){
+            releaseMarkCanvas();
+        }
+        if(renderMode == RenderMode.IMAGE){
+            paintOverlay();
+            return;
+        }
+        ColumnarDataSet columns = getMarkColumns();
+        if(renderMode == RenderMode.CANVAS){
+            //the spatial index of all the points is kept with the data, the most polluted ones are few enough to index here
+            viewIndex = highlyPollutedCheckBox.isSelected() ? new SpatialIndex(columns) : dataFiles.getSpatialIndex(year, pollutant, getCity());
+            columns = viewIndex.getPoints();
+            paintViewport();
+        }
+        else if(renderMode == RenderMode.PROGRESSIVE){
+            //in order of value, so the most polluted marks appear first
+            columns = rankIndex.top(highlyPollutedCheckBox.isSelected() ? getTopCount() : rankIndex.size());
+            paintProgressively(columns);
+        }
+        else{
+            for(int i = 0; i < columns.size(); i++){
+                drawMark(columns.getDataPoint(i),p);
+            }
+        }
+        paintedMarks = columns;
+        hitGrid = buildHitGrid(columns);
+    }
+    
+    /**
+     * Gets the data points to draw marks for: the most polluted ones when the checkbox is ticked, otherwise all of them
+     */
+    protected ColumnarDataSet getMarkColumns(){
         if(highlyPollutedCheckBox.isSelected()){
-            dataPoints = getHighestPollution(dataPoints);
+            return rankIndex.top(getTopCount());
+        }
+        return dataFiles.getFilteredColumns(year, pollutant, getCity());
+    }
+    
+    /**
+     * draws the rendered overlay of the selected filters onto the marks canvas. An overlay
+     * that is not in the overlay cache is rendered off the JavaFX thread and drawn when it
+     * is ready, unless other filters or another render mode were chosen in the meantime
+     */
+    protected void paintOverlay(){
+        String key = getOverlayKey();
+        OverlayCache.Overlay overlay = overlayCache.get(key);
+        if(overlay != null){
+            pendingOverlayKey = null;
+            showOverlay(overlay);
+            return;
+        }
+        Canvas canvas = getMarkCanvas();
+        canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        paintedMarks = ColumnarDataSet.EMPTY;
+        hitGrid = MarkHitGrid.EMPTY;
+        pendingOverlayKey = key;
+        
+        ColumnarDataSet columns = getMarkColumns();
+        double[][] positions = getMarkPositions(columns);
+        OverlayRenderer renderer = getOverlayRenderer();
+        double markWidth = getMarkWidth();
+        double markHeight = getMarkHeight();
+        int width = (int) Math.ceil(canvas.getWidth());
+        int height = (int) Math.ceil(canvas.getHeight());
+        overlayRenderer.execute(() -> {
+            OverlayCache.Overlay rendered;
+            try{
+                WritableImage image = renderOverlay(renderer, columns, positions, markWidth, markHeight, width, height);
+                rendered = new OverlayCache.Overlay(image, columns, new MarkHitGrid(positions[0], positions[1], markWidth, markHeight));
+            }
+            catch(RuntimeException e){
+                System.err.println("Could not render the map overlay: " + e.getMessage());
+                return;
+            }
+            Platform.runLater(() -> {
+                overlayCache.put(key, rendered);
+                if(key.equals(pendingOverlayKey) && renderMode == RenderMode.IMAGE){
+                    pendingOverlayKey = null;
+                    showOverlay(rendered);
+                }
+            });
+        });
+    }
+    
+    /**
+     * draws a rendered overlay onto the marks canvas and uses its marks for hovering and clicking
+     */
+    protected void showOverlay(OverlayCache.Overlay overlay){
+        Canvas canvas = getMarkCanvas();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.drawImage(overlay.image(), 0, 0);
+        paintedMarks = overlay.marks();
+        hitGrid = overlay.hitGrid();
+        overlayCacheLabel.setText("Overlay cache: " + overlayCache);
+    }
+    
+    /**
+     * Gets the key of the overlay of the selected filters in the overlay cache:
+     * the city, pollutant, year, how many of the most polluted areas are shown, and the colour scale
+     */
+    protected String getOverlayKey(){
+        String shown = highlyPollutedCheckBox.isSelected() ? "top" + getTopCount() : "all";
+        String colours = adaptiveColoursCheckBox.isSelected() ? "quartile" : "fixed";
+        return getCity() + "|" + pollutant + "|" + year + "|" + shown + "|" + colours;
+    }
+    
+    /**
+     * renders all the marks into one image, filled in parallel strips. This waits for the
+     * strips to be filled, so it is called off the JavaFX thread
+     * 
+     * @param renderer  colours the marks
+     * @param columns  data points to be rendered
+     * @param positions  the left and top edges of their marks, from getMarkPositions
+     * @return the image, with its pixels written once
+     */
+    protected static WritableImage renderOverlay(OverlayRenderer renderer, ColumnarDataSet columns, double[][] positions,
+                                                 double markWidth, double markHeight, int width, int height){
+        double[] values = new double[columns.size()];
+        for(int i = 0; i < columns.size(); i++){
+            values[i] = columns.getValue(i);
+        }
+        int[] pixels = renderer.render(values, positions[0], positions[1], markWidth, markHeight, width, height);
+        
+        WritableImage overlay = new WritableImage(width, height);
+        overlay.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return overlay;
+    }
+    
+    /**
+     * loads and shows the tiles of the base map in the part of the map the scroll pane shows
+     */
+    protected void showVisibleTiles(){
+        Bounds viewport = scrollPane.getViewportBounds();
+        tileLayer.showViewport(getViewportX(), getViewportY(), viewport.getWidth(), viewport.getHeight(), zoom);
+    }
+    
+    /**
+     * Returns whether this page shows the base map as tiles
+     * 
+     * @return true if the base map is tiled
+     */
+    public boolean isTiledBaseMap(){
+        return tileLayer != null;
+    }
+    
+    /**
+     * Gets the canvas the overlay and the progressively painted marks are drawn on, as big as
+     * the map, adding it on top of the map the first time one of those render modes is used
+     */
+    protected Canvas getMarkCanvas(){
+        if(markCanvas == null){
+            markCanvas = new Canvas(mapWidth, mapHeight);
+            pane.getChildren().add(pane.getChildren().indexOf(hoverOutline), markCanvas);
+        }
+        return markCanvas;
+    }
+    
+    /**
+     * Takes the marks canvas off the map, so its pixels are not kept while the marks are drawn another way
+     */
+    protected void releaseMarkCanvas(){
+        if(markCanvas != null){
+            pane.getChildren().remove(markCanvas);
+            markCanvas = null;
+        }
+    }
+    
+    /**
+     * Returns the overlay cache shared by all the map pages
+     * 
+     * @return the cache of rendered overlays
+     */
+    public static OverlayCache getOverlayCache(){
+        return overlayCache;
+    }
+    
+    /**
+     * builds the grid that finds the mark under the mouse, from the screen positions of the marks
+     * 
+     * @param columns  data points of the marks, in the order they were drawn
+     */
+    protected MarkHitGrid buildHitGrid(ColumnarDataSet columns){
+        double[][] positions = getMarkPositions(columns);
+        return new MarkHitGrid(positions[0], positions[1], getMarkWidth(), getMarkHeight());
+    }
+    
+    /**
+     * Works out where the marks of data points go on the marks canvas
+     * 
+     * @param columns  data points to place
+     * @return the x of the left edges of the marks, then the y of their top edges, in pixels
+     */
+    protected double[][] getMarkPositions(ColumnarDataSet columns){
+        double[] xs = new double[columns.size()];
+        double[] ys = new double[columns.size()];
+        for(int i = 0; i < columns.size(); i++){
+            xs[i] = (columns.getX(i) - getOriginX()) * scaleX;
+            ys[i] = (columns.getY(i) - getOriginY()) * scaleY;
+        }
+        return new double[][] {xs, ys};
+    }
+    
+    /**
+     * paints the marks in the visible part of the map onto the view canvas in one pass, without adding any nodes.
+     * When the marks would be smaller than MIN_MARK_PIXELS, the marks in each square of that many pixels are
+     * painted as one, coloured by their mean or highest value, so no more rectangles are filled than fit on the screen
+     */
+    protected void paintViewport(){
+        if(scrollPane == null){
+            return;
+        }
+        Bounds viewport = scrollPane.getViewportBounds();
+        double viewX = getViewportX();
+        double viewY = getViewportY();
+        //the canvas covers the visible part of the map and moves with it
+        double viewWidth = Math.max(0, Math.min(viewport.getWidth(), mapWidth * zoom - viewX));
+        double viewHeight = Math.max(0, Math.min(viewport.getHeight(), mapHeight * zoom - viewY));
+        viewCanvas.setWidth(viewWidth);
+        viewCanvas.setHeight(viewHeight);
+        viewCanvas.relocate(viewX, viewY);
+        GraphicsContext gc = viewCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, viewWidth, viewHeight);
+        drawnShapes = 0;
+        if(renderMode != RenderMode.CANVAS){
+            return;
         }
         
-        for(DataPoint dp : dataPoints){
-            drawMark(dp,p);
+        double width = getMarkWidth() * zoom;
+        double height = getMarkHeight() * zoom;
+        ColumnarDataSet points = viewIndex.getPoints();
+        //a mark is drawn to the right of and below its point, so points up to a mark before the view are in it too
+        int[] visible = viewIndex.query((int) Math.floor(toDataX(viewX - width)), (int) Math.floor(toDataY(viewY - height)),
+                                        (int) Math.ceil(toDataX(viewX + viewWidth)), (int) Math.ceil(toDataY(viewY + viewHeight)));
+        if(width >= MIN_MARK_PIXELS && height >= MIN_MARK_PIXELS){
+            for(int i : visible){
+                gc.setFill(getMarkColor(points.getValue(i)));
+                gc.fillRect(toScreenX(points.getX(i)) - viewX, toScreenY(points.getY(i)) - viewY, width, height);
+            }
+            drawnShapes = visible.length;
+            return;
+        }
+        ScreenBins bins = new ScreenBins(viewWidth, viewHeight, MIN_MARK_PIXELS, binReductionComboBox.getValue());
+        for(int i : visible){
+            bins.add(toScreenX(points.getX(i)) - viewX + width / 2, toScreenY(points.getY(i)) - viewY + height / 2, points.getValue(i));
+        }
+        for(int row = 0; row < bins.getRows(); row++){
+            for(int column = 0; column < bins.getColumns(); column++){
+                double value = bins.getValue(column, row);
+                if(!Double.isNaN(value)){
+                    gc.setFill(getMarkColor(value));
+                    gc.fillRect(column * bins.getBinSize(), row * bins.getBinSize(), bins.getBinSize(), bins.getBinSize());
+                }
+            }
+        }
+        drawnShapes = bins.getFilledBins();
+    }
+    
+    /**
+     * paints the marks onto the marks canvas a batch at every frame, within the frame budget,
+     * in the order they are given
+     * 
+     * @param columns  data points to be painted
+     */
+    protected void paintProgressively(ColumnarDataSet columns){
+        Canvas canvas = getMarkCanvas();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        double width = getMarkWidth();
+        double height = getMarkHeight();
+        progressivePaint = new ProgressivePaint(columns.size(), i -> {
+            gc.setFill(getMarkColor(columns.getValue(i)));
+            gc.fillRect((columns.getX(i) - getOriginX()) * scaleX, (columns.getY(i) - getOriginY()) * scaleY, width, height);
+        }, ProgressivePaint.DEFAULT_FRAME_BUDGET_NANOS);
+        progressivePaint.start();
+    }
+    
+    /**
+     * stops the progressive paint going on, if there is one, leaving the marks painted so far
+     */
+    protected void cancelProgressivePaint(){
+        if(progressivePaint != null){
+            progressivePaint.cancel();
+            progressivePaint = null;
+        }
+    }
+    
+    /**
+     * shows the base map tiles and paints the marks of the part of the map in view, after scrolling or zooming
+     */
+    protected void updateViewport(){
+        if(tileLayer != null){
+            showVisibleTiles();
+        }
+        if(renderMode == RenderMode.CANVAS){
+            paintViewport();
+        }
+    }
+    
+    /**
+     * Zooms the map, keeping the point of the map under the focus where it is
+     * 
+     * @param newZoom  the size to show the map at, kept between MIN_ZOOM and MAX_ZOOM
+     * @param focusX  x of the focus in the scroll pane
+     * @param focusY  y of the focus in the scroll pane
+     */
+    public void setZoom(double newZoom, double focusX, double focusY){
+        newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+        Bounds viewport = scrollPane.getViewportBounds();
+        double mapX = (getViewportX() + focusX) / zoom;
+        double mapY = (getViewportY() + focusY) / zoom;
+        zoom = newZoom;
+        zoomScale.setX(zoom);
+        zoomScale.setY(zoom);
+        content.setPrefSize(mapWidth * zoom, mapHeight * zoom);
+        zoomLabel.setText(Math.round(zoom * 100) + "%");
+        
+        double hiddenWidth = mapWidth * zoom - viewport.getWidth();
+        double hiddenHeight = mapHeight * zoom - viewport.getHeight();
+        scrollPane.setHvalue(hiddenWidth > 0 ? Math.max(0, Math.min(1, (mapX * zoom - focusX) / hiddenWidth)) : 0);
+        scrollPane.setVvalue(hiddenHeight > 0 ? Math.max(0, Math.min(1, (mapY * zoom - focusY) / hiddenHeight)) : 0);
+        updateViewport();
+    }
+    
+    /**
+     * Zooms the map around the centre of the part in view
+     */
+    protected void zoomAroundCentre(double newZoom){
+        Bounds viewport = scrollPane.getViewportBounds();
+        setZoom(newZoom, viewport.getWidth() / 2, viewport.getHeight() / 2);
+    }
+    
+    /**
+     * Returns the size the map is shown at
+     * 
+     * @return the zoom, 1 being the size of the map image
+     */
+    public double getZoom(){
+        return zoom;
+    }
+    
+    /**
+     * Returns how many rectangles were filled the last time the marks in view were painted in canvas mode
+     * 
+     * @return the number of marks or bins painted
+     */
+    public int getDrawnShapes(){
+        return drawnShapes;
+    }
+    
+    /**
+     * Gets the x of the left edge of the part of the zoomed map in view
+     */
+    protected double getViewportX(){
+        return scrollPane.getHvalue() * Math.max(0, mapWidth * zoom - scrollPane.getViewportBounds().getWidth());
+    }
+    
+    /**
+     * Gets the y of the top edge of the part of the zoomed map in view
+     */
+    protected double getViewportY(){
+        return scrollPane.getVvalue() * Math.max(0, mapHeight * zoom - scrollPane.getViewportBounds().getHeight());
+    }
+    
+    private double toScreenX(int x){
+        return (x - getOriginX()) * scaleX * zoom;
+    }
+    
+    private double toScreenY(int y){
+        return (y - getOriginY()) * scaleY * zoom;
+    }
+    
+    private double toDataX(double screenX){
+        return screenX / (scaleX * zoom) + getOriginX();
+    }
+    
+    private double toDataY(double screenY){
+        return screenY / (scaleY * zoom) + getOriginY();
+    }
+    
+    /**
+     * finds the mark at a point of the map
+     * where marks overlap, the one drawn last is on top
+     * 
+     * @return the index of the mark in paintedMarks, or -1 if there is no mark at the point
+     */
+    protected int markAt(double x, double y){
+        return hitGrid.markAt(x, y);
+    }
+    
+    /**
+     * outlines the mark under the mouse and moves the shared tooltip next to it with its details
+     * 
+     * @param x  x of the mouse on the map, or NaN when the mouse has left the map
+     * @param y  y of the mouse on the map, or NaN when the mouse has left the map
+     * @param screenX  x of the mouse on the screen
+     * @param screenY  y of the mouse on the screen
+     */
+    private void hoverMark(double x, double y, double screenX, double screenY){
+        int i = Double.isNaN(x) ? -1 : markAt(x, y);
+        if(i == hoveredMark){
+            return;
+        }
+        hoveredMark = i;
+        if(i < 0){
+            hoverOutline.setVisible(false);
+            tooltip.hide();
+            return;
+        }
+        hoverOutline.setX(hitGrid.getMarkX(i));
+        hoverOutline.setY(hitGrid.getMarkY(i));
+        hoverOutline.setVisible(true);
+        hoverOutline.toFront();
+        tooltip.setText(getTooltipText(paintedMarks.getDataPoint(i)));
+        if(pane.getScene() != null && pane.getScene().getWindow() != null){
+            tooltip.show(pane, screenX + 12, screenY + 12);
         }
     }
     
+    /**
+     * opens the statistics panel on the location of a mark, on the London map only
+     */
+    protected void selectMark(DataPoint dp){
+        if(getMapImagePath()=="London.png"){
+            tabController.nextTab();
+            pollutionPanel.updateFilter(dp.gridCode(), pollutant, year);
+        }
+    }
+    
+    /**
+     * Gets the width of a mark on the map, which depends on the map
+     */
+    protected double getMarkWidth(){
+        if(getMapImagePath()=="London.png"){
+            return 41.5;
+        }
+        else if(getMapImagePath()=="Oxford.png"){
+            return 129;
+        }
+        return 41;
+    }
+    
+    /**
+     * Gets the height of a mark on the map, which depends on the map
+     */
+    protected double getMarkHeight(){
+        if(getMapImagePath()=="London.png"){
+            return 44.5;
+        }
+        else if(getMapImagePath()=="Oxford.png"){
+            return 68;
+        }
+        return 42;
+    }
+    
     /**
      * draw a mark for a given dataPoint.
      * 
@@ -171,99 +819,168 @@ public abstract class MapPage {
     protected void drawMark(DataPoint dp, Pane p) {
         double x = (dp.x() - getOriginX()) * scaleX;
         double y = (dp.y() - getOriginY()) * scaleY;
-        Rectangle mark;
-        if(getMapImagePath()=="London.png"){
-             mark = new Rectangle(x, y, 41.5,44.5);
-        }
-        else if(getMapImagePath()=="Oxford.png"){
-             mark = new Rectangle(x, y, 129,68);
-        }
-        else{
-             mark = new Rectangle(x, y, 41,42);
-        }
+        Rectangle mark = new Rectangle(x, y, getMarkWidth(), getMarkHeight());
         mark.setFill(getMarkColor(dp.value()));
         p.getChildren().add(mark);
         marks.put(mark, dp);
-        tooltip = new Tooltip("Coords: " + dp.x() + "," + dp.y() + "\nGridcode: " + dp.gridCode() + "\nPollution Level: " + dp.value());
-        Tooltip.install(mark, tooltip);
-        mark.setOnMouseEntered(e -> mark.setOpacity(0.5));
-        mark.setOnMouseEntered(e -> mark.setStroke(Color.WHITE));
-        mark.setOnMouseExited(e -> mark.setOpacity(1));
-        mark.setOnMouseExited(e -> mark.setStroke(Color.TRANSPARENT));
-        if(getMapImagePath()=="London.png"){
-            mark.setOnMouseClicked(MouseEvent -> { tabController.nextTab();
-                                                    pollutionPanel.updateFilter(dp.gridCode(), pollutant, year);
-                                                    });
+        //hovering and clicking are handled by the pane for all marks together
+    }
+    
+    /**
+     * Builds the text shown in the tooltip of a mark
+     * 
+     * @param dp  DataPoint of the mark
+     */
+    protected String getTooltipText(DataPoint dp){
+        String tooltipText = "Coords: " + dp.x() + "," + dp.y() + "\nGridcode: " + dp.gridCode() + "\nPollution Level: " + dp.value();
+        DataRaster changes = getCachedYearChange();
+        double change = changes == null ? Double.NaN : changes.getValue(dp.x(), dp.y());
+        if(!Double.isNaN(change)){
+            tooltipText += String.format("\nChange since last year: %+.2f", change);
+        }
+        double percentile = rankIndex == null ? Double.NaN : rankIndex.percentileRank(dp.value());
+        if(!Double.isNaN(percentile)){
+            tooltipText += String.format("\nAs high as or higher than %.0f%% of areas", percentile);
+        }
+        return tooltipText;
+    }
+    
+    
+    /**
+     * Gets the change since the year before for the selected city, pollutant and year,
+     * working it out only the first time a mark is shown for them.
+     * 
+     * @return the change per cell, or null if there is no data for one of the years
+     */
+    protected DataRaster getCachedYearChange(){
+        String key = getCity() + "|" + pollutant + "|" + year;
+        if(!key.equals(yearChangeKey)){
+            yearChange = getYearChange();
+            yearChangeKey = key;
         }
+        return yearChange;
     }
     
+    /**
+     * Works out how much the pollution level of every cell changed since the year
+     * before the selected one, by subtracting the two rasters.
+     * 
+     * @return the change per cell, or null if there is no data for one of the years
+     */
+    protected DataRaster getYearChange(){
+        DataRaster current = dataFiles.getRaster(year, pollutant, getCity());
+        DataRaster previous;
+        try{
+            previous = dataFiles.getRaster(String.valueOf(Integer.parseInt(year) - 1), pollutant, getCity());
+        }
+        catch(NumberFormatException e){
+            return null;
+        }
+        if(current == null || previous == null){
+            return null;
+        }
+        return current.subtract(previous);
+    }
+    
+    /**
+     * Works out the values that split the areas of the selected city, year and pollutant
+     * into four equally sized groups, from the histogram counted when the data was loaded.
+     * 
+     * @return the three breaks, lowest first, or null if there is no data
+     */
+    protected double[] getQuartileBreaks(){
+        ValueHistogram histogram = dataFiles.getHistogram(year, pollutant, getCity(), ValueHistogram.Scale.LINEAR);
+        if(histogram.isEmpty()){
+            return null;
+        }
+        return new double[] {histogram.quantile(0.25), histogram.quantile(0.5), histogram.quantile(0.75)};
+    }
+    
+    /**
+     * Gets the values between green and yellow, yellow and orange, and orange and red
+     * for the selected pollutant, or the quartile breaks when colouring by quartile
+     * 
+     * @return the three breaks, lowest first, or null if the pollutant is not known
+     */
+    protected double[] getColourBreaks(){
+        if(colourBreaks != null){
+            return colourBreaks;
+        }
+        //colors are relative to other london points
+        switch(pollutant.toLowerCase()){
+            case "no2":
+                return NO2_BREAKS;
+            case "pm10":
+                return PM10_BREAKS;
+            case "pm2.5":
+                return PM25_BREAKS;
+            default:
+                return null;
+        }
+    }
     
     /**
      * determines mark color based off of pollutant type and value
+     * uses the quartile breaks instead of the fixed levels when colouring by quartile
      * @param value  pollution level
      */
     protected Color getMarkColor(double value){
-        
-        //colors are relative to other london points
-        if(pollutant.toLowerCase()=="no2"){
-            if(value<=15){
-            return Color.web("rgba(0,255,0,0.3)");  //green
-            }
-            else if(value>15 && value<=20){
-            return Color.web("rgba(255,255,0,0.3)");    //yellow
-            }
-            else if(value>20 && value<=25){
-            return Color.web("rgba(255,165,0,0.3)");    //orange
-            }
-            else{
-            return Color.web("rgba(255,0,0,0.3)");  //red
-            }
+        double[] breaks = getColourBreaks();
+        if(breaks == null){
+            return BLUE;  //if undefined, color is blue
         }
-        else if(pollutant.toLowerCase()=="pm10"){
-            if(value<=15){
-            return Color.web("rgba(0,255,0,0.3)"); //green
-            }
-            else if(value>15 && value<=17){
-            return Color.web("rgba(255,255,0,0.3)");    //yellow
-            }
-            else if(value>17 && value<=19){
-            return Color.web("rgba(255,165,0,0.3)");    //orange
-            }
-            else{
-            return Color.web("rgba(255,0,0,0.3)");  //red
-            }
+        if(value<=breaks[0]){
+            return GREEN;
         }
-        else if(pollutant.toLowerCase()=="pm2.5"){   //pm2.5
-            if(value<=8){
-            return Color.web("rgba(0,255,0,0.3)");  //green
-            }
-            else if(value>8 && value<=10){
-            return Color.web("rgba(255,255,0,0.3)");    //yellow
-            }
-            else if(value>10 && value<=12){
-            return Color.web("rgba(255,165,0,0.3)");    //orange
-            }
-            else{
-            return Color.web("rgba(255,0,0,0.3)");  //red
-            }            
+        else if(value<=breaks[1]){
+            return YELLOW;
+        }
+        else if(value<=breaks[2]){
+            return ORANGE;
+        }
+        return RED;
+    }
+    
+    /**
+     * Gets a renderer that colours marks the same way getMarkColor does, from a lookup table
+     */
+    protected OverlayRenderer getOverlayRenderer(){
+        double[] breaks = getColourBreaks();
+        if(breaks == null){
+            return new OverlayRenderer(new double[0], new Color[] {BLUE});
         }
-        return Color.web("rgba(0,0,255,0.3)");  //if undefined, color is blue
+        return new OverlayRenderer(breaks, new Color[] {GREEN, YELLOW, ORANGE, RED});
     }
     
     
     /**
-     * Gets highest 100 points in the list of datapoints
-     * avoids unnecessary sorting of the whole list using minheap
+     * Gets the highest points in the list of datapoints, as many as chosen with the spinner
+     * ranks the list by value once and takes the first ones, highest first
      * 
      * @param dataPoints list of all datapoints 
      */
     protected List<DataPoint> getHighestPollution(List<DataPoint> dataPoints) {
-        PriorityQueue<DataPoint> minHeap = new PriorityQueue<>(Comparator.comparingDouble(DataPoint::value));
+        ColumnarDataSet.Builder columns = new ColumnarDataSet.Builder(dataPoints.size());
         for (DataPoint dp : dataPoints) {
-            minHeap.offer(dp);
-            if (minHeap.size() > 100) minHeap.poll();
+            columns.add(dp);
         }
-        return new ArrayList<>(minHeap);
+        return new RankIndex(columns.build()).top(getTopCount()).getData();
+    }
+    
+    /**
+     * Gets how many of the most polluted areas are shown when the checkbox is ticked
+     */
+    public int getTopCount(){
+        Integer count = topCountSpinner.getValue();
+        return count == null ? DEFAULT_TOP_COUNT : count;
+    }
+    
+    /**
+     * Sets how many of the most polluted areas are shown when the checkbox is ticked
+     * @param count  number of areas, kept between 1 and the maximum
+     */
+    public void setTopCount(int count){
+        topCountSpinner.getValueFactory().setValue(Math.max(1, Math.min(count, MAX_TOP_COUNT)));
     }
     
     
@@ -289,12 +1006,14 @@ public abstract class MapPage {
      * @return a string describing how to use the map page
      */
     public String getInfoText(){
-        String infoString = "Use the filters to see different pollution levels of London based \non year and pollutant type, click 'Update Map' to see changes. \nTicking the checkbox shows only the 100 most \npolluted data points on the map\nUse the city dropdown to change city displayed.";
+        String infoString = "Use the filters to see different pollution levels of London based \non year and pollutant type, click 'Update Map' to see changes. \nTicking the checkbox shows only the most \npolluted data points on the map, pick how many next to it\nUse the city dropdown to change city displayed.\nDrag the map to move around it, and zoom with the zoom buttons \nor the mouse wheel while holding ctrl.";
         return infoString;
     }
     
     public abstract List<DataPoint> getDataPoints();
     
+    public abstract String getCity();
+    
     protected abstract String getMapImagePath();
     
     protected abstract int getOriginX();
@@ -373,7 +1092,7 @@ public abstract class MapPage {
     /**
      * Returns the tooltip used for displaying data point information
      * 
-     * @return the tooltip instance attached to data point markers
+     * @return the tooltip shared by all the marks, showing the mark under the mouse
      */
     public Tooltip getTooltip(){
         return tooltip;
@@ -418,7 +1137,7 @@ public abstract class MapPage {
     /**
      * Returns the canvas on which the map image and pollution markers are drawn
      * 
-     * @return the canvas used for rendering the map and data points
+     * @return the canvas used for rendering the map and data points, or null when the base map is tiled
      */
     public Canvas getMapCanvas(){
         return map;
@@ -0,0 +1,176 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * A MapPageRegistry builds the map page of every city once and keeps them, so
+ * switching city shows a page that is already built instead of making a new one.
+ *
+ * A kept page keeps its filters, zoom and drawn marks while another city is shown.
+ * A page is stale once the registry is given other data files than the ones it was
+ * built from, and it is built again from the new ones the next time it is asked
+ * for. The registry also remembers how long each page took to build, which is the
+ * time a switch to that city used to take before the pages were kept, and how
+ * often each page was asked for and built.
+ *
+ * @author Sara Ajdini
+ * @version 1.1
+ */
+public class MapPageRegistry<P>
+{
+    private final BiFunction<String, DataFiles, P> factory;
+    private final Map<String, P> pages;
+    // the data files each page was built from
+    private final Map<String, DataFiles> builtFrom;
+    private final Map<String, Double> buildMillis;
+    private final Map<String, Integer> builds;
+    private final Map<String, Integer> lookups;
+    private final List<String> cities;
+    private DataFiles dataFiles;
+
+    /**
+     * Build a page for every city with the given factory. This is done straight
+     * away, so for map pages it should be done in the background.
+     *
+     * @param factory makes the page of a city from the data files
+     * @param cities the names of the cities, in the order they are built
+     */
+    MapPageRegistry(DataFiles dataFiles, BiFunction<String, DataFiles, P> factory, String... cities)
+    {
+        this.dataFiles = dataFiles;
+        this.factory = factory;
+        pages = new HashMap<>();
+        builtFrom = new HashMap<>();
+        buildMillis = new HashMap<>();
+        builds = new HashMap<>();
+        lookups = new HashMap<>();
+        this.cities = new ArrayList<>();
+        for (String city : cities) {
+            this.cities.add(city);
+            build(city);
+        }
+    }
+
+    /**
+     * Build the map pages of London, Leeds and Oxford. This decodes the map images
+     * and draws the marks of every page, so it should be done in the background.
+     *
+     * @param tiledBaseMap true to show the base maps as tiles, loading only the part in view
+     */
+    public static MapPageRegistry<MapPage> forMapPages(DataFiles dataFiles, boolean tiledBaseMap)
+    {
+        return new MapPageRegistry<>(dataFiles, (city, files) -> {
+            switch (city) {
+                case "London":
+                    return new LondonMapPage(files, tiledBaseMap);
+                case "Leeds":
+                    return new LeedsMapPage(files, tiledBaseMap);
+                default:
+                    return new OxfordMapPage(files, tiledBaseMap);
+            }
+        }, "London", "Leeds", "Oxford");
+    }
+
+    private void build(String city)
+    {
+        long start = System.nanoTime();
+        P page = factory.apply(city, dataFiles);
+        buildMillis.put(key(city), (System.nanoTime() - start) / 1e6);
+        builds.merge(key(city), 1, Integer::sum);
+        builtFrom.put(key(city), dataFiles);
+        pages.put(key(city), page);
+    }
+
+    /**
+     * Return the page of a city, building it again first if it is stale.
+     *
+     * @param city the name of the city, in any case
+     * @return the page, or null if there is no page for the city
+     */
+    public P get(String city)
+    {
+        if (!pages.containsKey(key(city))) {
+            return null;
+        }
+        lookups.merge(key(city), 1, Integer::sum);
+        if (isStale(city)) {
+            build(city);
+        }
+        return pages.get(key(city));
+    }
+
+    /**
+     * Use other data files from now on. The pages built from the old ones are stale,
+     * and each is built again the next time it is asked for. A page built again is
+     * a new page, so anything added to the old one has to be added to it again.
+     */
+    public void setDataFiles(DataFiles dataFiles)
+    {
+        this.dataFiles = dataFiles;
+    }
+
+    /**
+     * Return true if the page of a city was built from other data files than the
+     * ones in use, and false if it is up to date or there is no page for the city.
+     */
+    public boolean isStale(String city)
+    {
+        return pages.containsKey(key(city)) && builtFrom.get(key(city)) != dataFiles;
+    }
+
+    /**
+     * Return the names of the cities with a page, in the order they were built.
+     */
+    public List<String> getCities()
+    {
+        return new ArrayList<>(cities);
+    }
+
+    /**
+     * Return how long it took to build the page of a city the last time, in milliseconds.
+     *
+     * @return the time, or NaN if there is no page for the city
+     */
+    public double getBuildMillis(String city)
+    {
+        return buildMillis.getOrDefault(key(city), Double.NaN);
+    }
+
+    /**
+     * Return how many times the page of a city was built.
+     */
+    public int getBuilds(String city)
+    {
+        return builds.getOrDefault(key(city), 0);
+    }
+
+    /**
+     * Return how many times the page of a city was asked for.
+     */
+    public int getLookups(String city)
+    {
+        return lookups.getOrDefault(key(city), 0);
+    }
+
+    /**
+     * Return how often each page was asked for and built, and how long its last build took.
+     */
+    @Override
+    public String toString()
+    {
+        List<String> summaries = new ArrayList<>();
+        for (String city : cities) {
+            summaries.add(String.format("%s: %d lookups, %d builds, last took %.1f ms", city, getLookups(city),
+                                        getBuilds(city), getBuildMillis(city)));
+        }
+        return String.join("; ", summaries);
+    }
+
+    private static String key(String city)
+    {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Test class for MapPageRegistry.
+ * This class gives the registry a factory of plain objects instead of map pages,
+ * so it needs no JavaFX toolkit. It verifies that every page is built once and
+ * then reused, that cities are found in any case and locale, and that only the
+ * pages built from old data files are built again.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class MapPageRegistryTest
+{
+    private DataFiles oldFiles;
+    private DataFiles newFiles;
+    // the city and data files of every page built, in order
+    private List<String> built;
+    private MapPageRegistry<String> registry;
+
+    /**
+     * Default constructor for test class MapPageRegistryTest
+     */
+    public MapPageRegistryTest()
+    {
+    }
+
+    /**
+     * Creates a registry of two cities, each page a string naming its city and
+     * build.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp()
+    {
+        oldFiles = new DataFiles(1 << 20);
+        newFiles = new DataFiles(1 << 20);
+        built = new ArrayList<>();
+        registry = new MapPageRegistry<>(oldFiles, (city, files) -> {
+            built.add(city + (files == oldFiles ? " old" : " new"));
+            return city + " #" + built.size();
+        }, "London", "Leeds");
+    }
+
+    /**
+     * Tests that the pages are built when the registry is made and the same page is
+     * returned every time after that.
+     */
+    @Test
+    public void testReuse()
+    {
+        assertEquals(List.of("London old", "Leeds old"), built);
+        String london = registry.get("London");
+        assertEquals("London #1", london);
+        assertSame(london, registry.get("London"));
+        assertSame(london, registry.get(" london "));
+        assertEquals("Leeds #2", registry.get("LEEDS"));
+        assertEquals(2, built.size());
+        assertEquals(1, registry.getBuilds("London"));
+        assertEquals(3, registry.getLookups("London"));
+        assertFalse(Double.isNaN(registry.getBuildMillis("Leeds")));
+        assertEquals(List.of("London", "Leeds"), registry.getCities());
+    }
+
+    /**
+     * Tests that a city without a page has none, and counts nothing.
+     */
+    @Test
+    public void testUnknownCity()
+    {
+        assertNull(registry.get("Oxford"));
+        assertFalse(registry.isStale("Oxford"));
+        assertEquals(0, registry.getLookups("Oxford"));
+        assertTrue(Double.isNaN(registry.getBuildMillis("Oxford")));
+    }
+
+    /**
+     * Tests that a city is found whatever the default locale, which lower cases the
+     * I of some city names differently in Turkish.
+     */
+    @Test
+    public void testLocale()
+    {
+        Locale before = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            MapPageRegistry<String> cities = new MapPageRegistry<>(oldFiles, (city, files) -> city, "ISLINGTON");
+            assertEquals("ISLINGTON", cities.get("islington"));
+        } finally {
+            Locale.setDefault(before);
+        }
+    }
+
+    /**
+     * Tests that after the data files change, each page is built again from the new
+     * ones only when it is next asked for, and is reused after that.
+     */
+    @Test
+    public void testStaleness()
+    {
+        String london = registry.get("London");
+        assertFalse(registry.isStale("London"));
+
+        registry.setDataFiles(newFiles);
+        assertTrue(registry.isStale("London"));
+        assertTrue(registry.isStale("Leeds"));
+        assertEquals(2, built.size());
+
+        String rebuilt = registry.get("London");
+        assertNotSame(london, rebuilt);
+        assertEquals("London new", built.get(2));
+        assertFalse(registry.isStale("London"));
+        assertTrue(registry.isStale("Leeds"));
+        assertSame(rebuilt, registry.get("London"));
+        assertEquals(2, registry.getBuilds("London"));
+        assertEquals(1, registry.getBuilds("Leeds"));
+
+        // going back to the data files a page was built from does not make it stale
+        registry.setDataFiles(oldFiles);
+        assertFalse(registry.isStale("Leeds"));
+        assertEquals("Leeds #2", registry.get("Leeds"));
+    }
+}
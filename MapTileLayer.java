@@ -0,0 +1,222 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+
+/**
+ * A MapTileLayer shows the base map as tiles of a MapTilePyramid, with only the
+ * tiles in the visible part of the map on the layer.
+ *
+ * Tiles that are not loaded yet are cut from the pyramid on a background thread and
+ * added to the layer when they are ready. Tiles are kept in a cache shared by all
+ * the layers, and the least recently used ones are dropped when it is full, so
+ * scrolling back to a part of the map seen before does not copy it again.
+ * The methods of a layer must be called on the JavaFX application thread.
+ *
+ * @author Sara Ajdini
+ * @version 1.2
+ */
+public class MapTileLayer
+{
+    // about 12 MB of tiles, two screens full
+    private static final int TILE_CACHE_SIZE = 48;
+    private static final LinkedHashMap<String, Image> tileCache = new LinkedHashMap<>(16, 0.75f, true);
+    private static final ExecutorService tileLoader = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "map tile loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MapTilePyramid pyramid;
+    private final Pane pane;
+    // the tiles on the layer, by key
+    private final Map<String, ImageView> shownTiles;
+    // the tiles being loaded in the background
+    private final Set<String> loadingTiles;
+    private Set<String> visibleTiles;
+    private double scale;
+
+    /**
+     * Create a layer that shows the tiles of a pyramid.
+     */
+    public MapTileLayer(MapTilePyramid pyramid)
+    {
+        this.pyramid = pyramid;
+        pane = new Pane();
+        pane.setMouseTransparent(true);
+        shownTiles = new HashMap<>();
+        loadingTiles = new HashSet<>();
+        visibleTiles = new HashSet<>();
+        scale = 1;
+    }
+
+    public Pane getPane()
+    {
+        return pane;
+    }
+
+    public MapTilePyramid getPyramid()
+    {
+        return pyramid;
+    }
+
+    /**
+     * Show the tiles that cover part of the map, and take off the other ones.
+     * Tiles that are not cut yet appear once they have been loaded.
+     *
+     * @param x the left edge of the visible part, in pixels of the map as it is drawn
+     * @param y the top edge of the visible part, in pixels of the map as it is drawn
+     * @param width the width of the visible part
+     * @param height the height of the visible part
+     * @param scale the size the map is drawn at, 1 being full size
+     */
+    public void showViewport(double x, double y, double width, double height, double scale)
+    {
+        this.scale = scale;
+        int level = pyramid.levelFor(scale);
+        // the size of a tile of this level on the screen
+        double tileSize = MapTilePyramid.TILE_SIZE * (1 << level) * scale;
+
+        Set<String> visible = new HashSet<>();
+        if (pyramid.getWidth() > 0 && width > 0 && height > 0) {
+            int firstColumn = Math.max(0, (int) Math.floor(x / tileSize));
+            int lastColumn = Math.min(pyramid.getColumns(level) - 1, (int) Math.floor((x + width) / tileSize));
+            int firstRow = Math.max(0, (int) Math.floor(y / tileSize));
+            int lastRow = Math.min(pyramid.getRows(level) - 1, (int) Math.floor((y + height) / tileSize));
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                for (int row = firstRow; row <= lastRow; row++) {
+                    visible.add(tileKey(level, column, row));
+                }
+            }
+        }
+        visibleTiles = visible;
+
+        Iterator<Map.Entry<String, ImageView>> shown = shownTiles.entrySet().iterator();
+        while (shown.hasNext()) {
+            Map.Entry<String, ImageView> tile = shown.next();
+            if (!visible.contains(tile.getKey())) {
+                pane.getChildren().remove(tile.getValue());
+                shown.remove();
+            } else {
+                place(tile.getKey(), tile.getValue());
+            }
+        }
+        for (String key : visible) {
+            if (shownTiles.containsKey(key)) {
+                continue;
+            }
+            Image tile = tileCache.get(key);
+            if (tile != null) {
+                show(key, tile);
+            } else {
+                load(key);
+            }
+        }
+    }
+
+    /**
+     * Return the number of tiles on the layer.
+     */
+    public int getShownTileCount()
+    {
+        return shownTiles.size();
+    }
+
+    /**
+     * Return the number of tiles kept for all the layers.
+     */
+    public static int getCachedTileCount()
+    {
+        return tileCache.size();
+    }
+
+    private void show(String key, Image tile)
+    {
+        ImageView view = new ImageView(tile);
+        view.setSmooth(true);
+        place(key, view);
+        shownTiles.put(key, view);
+        pane.getChildren().add(view);
+    }
+
+    /**
+     * Move and size the view of a tile for the current scale.
+     */
+    private void place(String key, ImageView view)
+    {
+        int[] tile = parseKey(key);
+        int level = tile[0];
+        double tileSize = MapTilePyramid.TILE_SIZE * (1 << level) * scale;
+        view.setLayoutX(tile[1] * tileSize);
+        view.setLayoutY(tile[2] * tileSize);
+        view.setFitWidth(view.getImage().getWidth() * (1 << level) * scale);
+        view.setFitHeight(view.getImage().getHeight() * (1 << level) * scale);
+    }
+
+    /**
+     * Cut a tile from the pyramid on the background thread, then cache it and show it
+     * if it is still visible.
+     */
+    private void load(String key)
+    {
+        if (!loadingTiles.add(key)) {
+            return;
+        }
+        int[] tile = parseKey(key);
+        int level = tile[0];
+        int column = tile[1];
+        int row = tile[2];
+        tileLoader.execute(() -> {
+            Image cut = null;
+            try {
+                cut = pyramid.getTile(level, column, row);
+            } catch (RuntimeException e) {
+                System.err.println("Could not load map tile " + key + ": " + e.getMessage());
+            }
+            Image loaded = cut;
+            Platform.runLater(() -> {
+                loadingTiles.remove(key);
+                if (loaded == null) {
+                    return;
+                }
+                cacheTile(key, loaded);
+                if (visibleTiles.contains(key) && !shownTiles.containsKey(key)) {
+                    show(key, loaded);
+                }
+            });
+        });
+    }
+
+    private static void cacheTile(String key, Image tile)
+    {
+        tileCache.put(key, tile);
+        Iterator<Image> leastRecentlyUsed = tileCache.values().iterator();
+        while (tileCache.size() > TILE_CACHE_SIZE) {
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    private String tileKey(int level, int column, int row)
+    {
+        return pyramid.getImagePath() + "/" + level + "/" + column + "/" + row;
+    }
+
+    /**
+     * Return the level, column and row of a tile from its key.
+     */
+    private static int[] parseKey(String key)
+    {
+        String[] parts = key.split("/");
+        int n = parts.length;
+        return new int[] {Integer.parseInt(parts[n - 3]), Integer.parseInt(parts[n - 2]), Integer.parseInt(parts[n - 1])};
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * A MapTilePyramid cuts a map image into square tiles at several zoom levels, so
+ * only the part of the map that is on the screen has to be shown.
+ *
+ * Level 0 is the image at full size, and every level after it is half the size of
+ * the one before, down to the level that fits in one tile. A level is decoded from
+ * the image file at its own size the first time one of its tiles is needed, so the
+ * map zoomed out never holds the full size image. The levels are only kept softly,
+ * so the ones out of view can be collected when memory runs low, and are decoded
+ * again if they are needed later. A tile is a copy of part of its level, so it
+ * takes no more time to make than to copy its pixels.
+ * The size of a PNG image is read from its header, without decoding it.
+ *
+ * @author Sara Ajdini
+ * @version 1.2
+ */
+public class MapTilePyramid
+{
+    // the width and height of a tile in pixels
+    public static final int TILE_SIZE = 256;
+    // the bytes every PNG file starts with
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+
+    private static final Map<String, MapTilePyramid> pyramids = new ConcurrentHashMap<>();
+
+    private final String imagePath;
+    private final URL source;
+    private final int width;
+    private final int height;
+    private final int levels;
+    // the image made in memory, for a pyramid that has no file
+    private final Image image;
+    // the image at every level, full size first, each null until one of its tiles is asked for
+    private final SoftReference<Image>[] levelImages;
+
+    /**
+     * Create the pyramid of a map image. Nothing is decoded until a tile is asked for.
+     *
+     * @param imagePath the path of the image on the class path, or a file
+     */
+    private MapTilePyramid(String imagePath)
+    {
+        this(imagePath, findImage(imagePath), null);
+    }
+
+    /**
+     * Create the pyramid of an image that is already in memory.
+     *
+     * @param imagePath the name of the image, which the keys of its tiles start with
+     */
+    MapTilePyramid(String imagePath, Image image)
+    {
+        this(imagePath, null, image);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private MapTilePyramid(String imagePath, URL source, Image image)
+    {
+        this.imagePath = imagePath;
+        this.source = source;
+        this.image = image;
+        int[] size;
+        if (image != null) {
+            size = new int[] {(int) image.getWidth(), (int) image.getHeight()};
+        } else {
+            size = source == null ? new int[2] : readSize(source);
+        }
+        width = size[0];
+        height = size[1];
+
+        int levelCount = 1;
+        while (Math.max(width, height) > TILE_SIZE << (levelCount - 1)) {
+            levelCount++;
+        }
+        levels = levelCount;
+        levelImages = new SoftReference[levels];
+    }
+
+    /**
+     * Return the pyramid of a map image, creating it the first time it is asked for.
+     * All the map pages of the same image share one pyramid.
+     */
+    public static MapTilePyramid forImage(String imagePath)
+    {
+        return pyramids.computeIfAbsent(imagePath, MapTilePyramid::new);
+    }
+
+    public String getImagePath()
+    {
+        return imagePath;
+    }
+
+    /**
+     * Return the width of the full size image, or 0 if the image could not be found.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Return the height of the full size image, or 0 if the image could not be found.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Return the number of zoom levels.
+     */
+    public int getLevels()
+    {
+        return levels;
+    }
+
+    /**
+     * Return the width of the image at a level.
+     */
+    public int getWidth(int level)
+    {
+        return Math.max(1, (width + (1 << level) - 1) >> level);
+    }
+
+    /**
+     * Return the height of the image at a level.
+     */
+    public int getHeight(int level)
+    {
+        return Math.max(1, (height + (1 << level) - 1) >> level);
+    }
+
+    /**
+     * Return the number of columns of tiles at a level.
+     */
+    public int getColumns(int level)
+    {
+        return (getWidth(level) + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * Return the number of rows of tiles at a level.
+     */
+    public int getRows(int level)
+    {
+        return (getHeight(level) + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * Return the level to show the map at when it is drawn at the given scale,
+     * which is the smallest level that still has at least one pixel per screen pixel.
+     *
+     * @param scale the size the map is drawn at, 1 being full size
+     */
+    public int levelFor(double scale)
+    {
+        int level = 0;
+        while (level < levels - 1 && scale * (2 << level) <= 1) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Return a tile, decoding its level first if it is not in memory. This can take
+     * a while, so it should not be called on the JavaFX application thread. Tiles on
+     * the right and bottom edges are cut to the size of the image.
+     *
+     * @throws UncheckedIOException if the image could not be decoded
+     */
+    public Image getTile(int level, int column, int row)
+    {
+        int x = column * TILE_SIZE;
+        int y = row * TILE_SIZE;
+        Image levelImage = getLevel(level);
+        return new WritableImage(levelImage.getPixelReader(), x, y, Math.min(TILE_SIZE, getWidth(level) - x),
+                                 Math.min(TILE_SIZE, getHeight(level) - y));
+    }
+
+    /**
+     * Return the image at a level, decoding it if it was not kept. A pyramid of an
+     * image file decodes the level from the file at the size of the level, and one
+     * of an image in memory halves the level before it.
+     *
+     * @throws UncheckedIOException if the image could not be decoded
+     */
+    synchronized Image getLevel(int level)
+    {
+        Image levelImage = levelImages[level] == null ? null : levelImages[level].get();
+        if (levelImage != null) {
+            return levelImage;
+        }
+        if (image != null) {
+            levelImage = level == 0 ? image : halve(getLevel(level - 1));
+        } else if (source == null) {
+            throw new UncheckedIOException(new IOException("Map image not found: " + imagePath));
+        } else {
+            levelImage = new Image(source.toExternalForm(), getWidth(level), getHeight(level), false, true);
+            if (levelImage.isError()) {
+                throw new UncheckedIOException(new IOException("Could not decode " + imagePath, levelImage.getException()));
+            }
+        }
+        levelImages[level] = new SoftReference<>(levelImage);
+        return levelImage;
+    }
+
+    /**
+     * Return an image half the size of the given one, rounding up. Each pixel is the
+     * average of the two by two pixels it covers, or of fewer on the right and bottom edges.
+     */
+    static WritableImage halve(Image image)
+    {
+        int fullWidth = (int) image.getWidth();
+        int fullHeight = (int) image.getHeight();
+        int halfWidth = Math.max(1, (fullWidth + 1) / 2);
+        int halfHeight = Math.max(1, (fullHeight + 1) / 2);
+        int[] pixels = new int[fullWidth * fullHeight];
+        image.getPixelReader().getPixels(0, 0, fullWidth, fullHeight, PixelFormat.getIntArgbInstance(), pixels, 0, fullWidth);
+
+        int[] half = new int[halfWidth * halfHeight];
+        for (int y = 0; y < halfHeight; y++) {
+            for (int x = 0; x < halfWidth; x++) {
+                int[] sums = new int[4];
+                int count = 0;
+                for (int row = 2 * y; row < Math.min(fullHeight, 2 * y + 2); row++) {
+                    for (int column = 2 * x; column < Math.min(fullWidth, 2 * x + 2); column++) {
+                        int pixel = pixels[row * fullWidth + column];
+                        for (int channel = 0; channel < 4; channel++) {
+                            sums[channel] += (pixel >>> (24 - 8 * channel)) & 0xFF;
+                        }
+                        count++;
+                    }
+                }
+                int average = 0;
+                for (int channel = 0; channel < 4; channel++) {
+                    average |= ((sums[channel] + count / 2) / count) << (24 - 8 * channel);
+                }
+                half[y * halfWidth + x] = average;
+            }
+        }
+        WritableImage halved = new WritableImage(halfWidth, halfHeight);
+        halved.getPixelWriter().setPixels(0, 0, halfWidth, halfHeight, PixelFormat.getIntArgbInstance(), half, 0, halfWidth);
+        return halved;
+    }
+
+    /**
+     * Find an image on the class path, the same way JavaFX does, or as a file.
+     */
+    private static URL findImage(String imagePath)
+    {
+        URL url = MapTilePyramid.class.getClassLoader().getResource(imagePath);
+        if (url == null && new File(imagePath).isFile()) {
+            try {
+                url = new File(imagePath).toURI().toURL();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return url;
+    }
+
+    /**
+     * Read the width and height of an image, from the header of a PNG image or by
+     * decoding any other kind.
+     */
+    private static int[] readSize(URL source)
+    {
+        try (DataInputStream in = new DataInputStream(source.openStream())) {
+            // a PNG file starts with its signature, then the length and type of the header chunk, then the size
+            if (in.readLong() == PNG_SIGNATURE) {
+                in.readLong();
+                return new int[] {in.readInt(), in.readInt()};
+            }
+        } catch (IOException e) {
+            return new int[2];
+        }
+        Image image = new Image(source.toExternalForm());
+        return image.isError() ? new int[2] : new int[] {(int) image.getWidth(), (int) image.getHeight()};
+    }
+}
@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Test class for MapTilePyramid.
+ * This class builds the pyramid of an image made in memory and verifies the
+ * number and size of its levels and tiles, that tiles are cut from the right part
+ * of their level, and that halving averages the pixels it covers.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class MapTilePyramidTest
+{
+    /**
+     * Default constructor for test class MapTilePyramidTest
+     */
+    public MapTilePyramidTest()
+    {
+    }
+
+    /**
+     * Return an opaque image whose red channel is the column and green channel the
+     * row of each pixel, modulo 256.
+     */
+    private static WritableImage image(int width, int height)
+    {
+        WritableImage image = new WritableImage(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.getPixelWriter().setArgb(x, y, 0xFF000000 | (x % 256) << 16 | (y % 256) << 8);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Tests the levels and tiles of an image a little more than two tiles wide.
+     */
+    @Test
+    public void testLevelsAndTiles()
+    {
+        MapTilePyramid pyramid = new MapTilePyramid("test.png", image(600, 300));
+        assertEquals(600, pyramid.getWidth());
+        assertEquals(3, pyramid.getLevels());
+        assertEquals(3, pyramid.getColumns(0));
+        assertEquals(2, pyramid.getRows(0));
+        assertEquals(300, pyramid.getWidth(1));
+        assertEquals(150, pyramid.getWidth(2));
+        assertEquals(1, pyramid.getColumns(2));
+
+        Image corner = pyramid.getTile(0, 2, 1);
+        assertEquals(600 - 512, (int) corner.getWidth());
+        assertEquals(300 - 256, (int) corner.getHeight());
+        // the top left pixel of the tile is pixel (512, 256) of the image
+        assertEquals(0xFF000000 | (512 % 256) << 16 | (256 % 256) << 8, corner.getPixelReader().getArgb(0, 0));
+        assertEquals(0xFF000000 | 7 << 16 | 3 << 8, pyramid.getTile(0, 2, 1).getPixelReader().getArgb(7, 3));
+
+        Image smallest = pyramid.getTile(2, 0, 0);
+        assertEquals(150, (int) smallest.getWidth());
+        assertEquals(75, (int) smallest.getHeight());
+        // a level is made once and kept while there is memory for it
+        assertSame(pyramid.getLevel(1), pyramid.getLevel(1));
+    }
+
+    /**
+     * Tests that the level to show follows the scale the map is drawn at.
+     */
+    @Test
+    public void testLevelFor()
+    {
+        MapTilePyramid pyramid = new MapTilePyramid("test.png", image(600, 300));
+        assertEquals(0, pyramid.levelFor(1));
+        assertEquals(0, pyramid.levelFor(0.6));
+        assertEquals(1, pyramid.levelFor(0.5));
+        assertEquals(2, pyramid.levelFor(0.25));
+        assertEquals(2, pyramid.levelFor(0.01));
+    }
+
+    /**
+     * Tests that halving averages two by two pixels, and fewer on the edges of an
+     * image of odd size.
+     */
+    @Test
+    public void testHalve()
+    {
+        WritableImage image = new WritableImage(3, 1);
+        image.getPixelWriter().setArgb(0, 0, 0xFF000000);
+        image.getPixelWriter().setArgb(1, 0, 0xFFC86432);
+        image.getPixelWriter().setArgb(2, 0, 0x80102030);
+        WritableImage half = MapTilePyramid.halve(image);
+        assertEquals(2, (int) half.getWidth());
+        assertEquals(1, (int) half.getHeight());
+        assertEquals(0xFF643219, half.getPixelReader().getArgb(0, 0));
+        assertEquals(0x80102030, half.getPixelReader().getArgb(1, 0));
+    }
+
+    /**
+     * Tests that a missing image has no size and no tiles.
+     */
+    @Test
+    public void testMissingImage()
+    {
+        MapTilePyramid pyramid = MapTilePyramid.forImage("no such map.png");
+        assertEquals(0, pyramid.getWidth());
+        assertEquals(1, pyramid.getLevels());
+        assertThrows(UncheckedIOException.class, () -> pyramid.getTile(0, 0, 0));
+    }
+}
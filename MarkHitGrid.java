@@ -0,0 +1,168 @@
+import java.util.Arrays;
+
+/**
+ * A MarkHitGrid finds the map mark under the mouse without looking at every mark.
+ *
+ * The marks are rectangles of the same size placed on the screen, one per data
+ * point. The screen is divided into buckets as big as a mark, so a mark is stored
+ * in about four buckets and a bucket holds only the few marks overlapping it. The
+ * marks of each bucket are stored next to each other in one array, in the order
+ * the marks were drawn. Finding the mark at a point is one division and a look at
+ * the marks of one bucket, however many marks there are.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class MarkHitGrid
+{
+    public static final MarkHitGrid EMPTY = new MarkHitGrid(new double[0], new double[0], 1, 1);
+
+    private final double[] markXs;
+    private final double[] markYs;
+    private final double markWidth;
+    private final double markHeight;
+    private final double minX;
+    private final double minY;
+    private final int columns;
+    private final int rows;
+    // the marks of bucket b are entries[bucketStart[b]] up to entries[bucketStart[b + 1]]
+    private final int[] bucketStart;
+    private final int[] entries;
+
+    /**
+     * Build a grid over marks.
+     *
+     * @param markXs the screen x of the left edge of every mark, in the order they were drawn
+     * @param markYs the screen y of the top edge of every mark, in the order they were drawn
+     * @param markWidth the width of a mark on the screen
+     * @param markHeight the height of a mark on the screen
+     */
+    public MarkHitGrid(double[] markXs, double[] markYs, double markWidth, double markHeight)
+    {
+        if (markXs.length != markYs.length) {
+            throw new IllegalArgumentException("There must be as many x as y positions");
+        }
+        if (!(markWidth > 0 && markHeight > 0)) {
+            throw new IllegalArgumentException("The size of a mark must be positive");
+        }
+        this.markXs = markXs;
+        this.markYs = markYs;
+        this.markWidth = markWidth;
+        this.markHeight = markHeight;
+
+        double lowX = Double.POSITIVE_INFINITY;
+        double lowY = Double.POSITIVE_INFINITY;
+        double highX = Double.NEGATIVE_INFINITY;
+        double highY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < markXs.length; i++) {
+            lowX = Math.min(lowX, markXs[i]);
+            lowY = Math.min(lowY, markYs[i]);
+            highX = Math.max(highX, markXs[i] + markWidth);
+            highY = Math.max(highY, markYs[i] + markHeight);
+        }
+        if (markXs.length == 0) {
+            lowX = lowY = highX = highY = 0;
+        }
+        minX = lowX;
+        minY = lowY;
+        columns = (int) ((highX - lowX) / markWidth) + 1;
+        rows = (int) ((highY - lowY) / markHeight) + 1;
+
+        // counting sort of the marks by bucket, each mark counted in every bucket it overlaps
+        bucketStart = new int[columns * rows + 1];
+        for (int i = 0; i < markXs.length; i++) {
+            for (int r = row(markYs[i]); r <= lastRow(i); r++) {
+                for (int c = column(markXs[i]); c <= lastColumn(i); c++) {
+                    bucketStart[r * columns + c + 1]++;
+                }
+            }
+        }
+        for (int b = 0; b < columns * rows; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        entries = new int[bucketStart[columns * rows]];
+        int[] next = Arrays.copyOf(bucketStart, columns * rows);
+        for (int i = 0; i < markXs.length; i++) {
+            for (int r = row(markYs[i]); r <= lastRow(i); r++) {
+                for (int c = column(markXs[i]); c <= lastColumn(i); c++) {
+                    entries[next[r * columns + c]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the number of marks.
+     */
+    public int size()
+    {
+        return markXs.length;
+    }
+
+    /**
+     * Return the mark at a point of the screen. Where marks overlap, the one drawn
+     * last is on top, so that one is returned.
+     *
+     * @return the index of the mark, or -1 if there is no mark at the point
+     */
+    public int markAt(double x, double y)
+    {
+        int c = column(x);
+        int r = row(y);
+        if (c < 0 || c >= columns || r < 0 || r >= rows) {
+            return -1;
+        }
+        int bucket = r * columns + c;
+        for (int e = bucketStart[bucket + 1] - 1; e >= bucketStart[bucket]; e--) {
+            int i = entries[e];
+            if (x >= markXs[i] && x < markXs[i] + markWidth && y >= markYs[i] && y < markYs[i] + markHeight) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the screen x of the left edge of a mark.
+     */
+    public double getMarkX(int index)
+    {
+        return markXs[index];
+    }
+
+    /**
+     * Return the screen y of the top edge of a mark.
+     */
+    public double getMarkY(int index)
+    {
+        return markYs[index];
+    }
+
+    private int column(double x)
+    {
+        return (int) Math.floor((x - minX) / markWidth);
+    }
+
+    private int row(double y)
+    {
+        return (int) Math.floor((y - minY) / markHeight);
+    }
+
+    /**
+     * Return the last column a mark may overlap. The bucket of the right edge is
+     * included, as rounding could otherwise leave out the bucket of a point just
+     * inside the edge; markAt checks the edges exactly anyway.
+     */
+    private int lastColumn(int index)
+    {
+        return Math.min(columns - 1, column(markXs[index] + markWidth));
+    }
+
+    /**
+     * Return the last row a mark may overlap, including the bucket of the bottom edge.
+     */
+    private int lastRow(int index)
+    {
+        return Math.min(rows - 1, row(markYs[index] + markHeight));
+    }
+}
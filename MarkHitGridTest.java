@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for MarkHitGrid.
+ * This class verifies that the mark under a point is found, that the mark drawn
+ * last wins where marks overlap, and that points between marks find nothing.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class MarkHitGridTest
+{
+    /**
+     * Default constructor for test class MarkHitGridTest
+     */
+    public MarkHitGridTest()
+    {
+    }
+
+    /**
+     * Tests that a mark is found from any point inside it, left and top edges
+     * included and right and bottom edges not.
+     */
+    @Test
+    public void testMarkAt()
+    {
+        MarkHitGrid grid = new MarkHitGrid(new double[] {0, 20, 40}, new double[] {0, 0, 10}, 10, 10);
+        assertEquals(3, grid.size());
+        assertEquals(0, grid.markAt(0, 0));
+        assertEquals(0, grid.markAt(9.9, 9.9));
+        assertEquals(1, grid.markAt(25, 5));
+        assertEquals(2, grid.markAt(45, 15));
+        assertEquals(-1, grid.markAt(10, 5));
+        assertEquals(-1, grid.markAt(45, 5));
+        assertEquals(-1, grid.markAt(-1, 0));
+        assertEquals(-1, grid.markAt(100, 100));
+    }
+
+    /**
+     * Tests that where marks overlap, the one drawn last is returned, as it is the
+     * one on top on the screen.
+     */
+    @Test
+    public void testOverlappingMarks()
+    {
+        // three marks on top of each other, shifted by half a mark each time
+        MarkHitGrid grid = new MarkHitGrid(new double[] {0, 5, 10}, new double[] {0, 5, 10}, 10, 10);
+        assertEquals(0, grid.markAt(2, 2));
+        assertEquals(1, grid.markAt(7, 7));
+        assertEquals(2, grid.markAt(12, 12));
+        assertEquals(1, grid.markAt(9, 6));
+
+        // the same marks drawn in the other order
+        MarkHitGrid reversed = new MarkHitGrid(new double[] {10, 5, 0}, new double[] {10, 5, 0}, 10, 10);
+        assertEquals(2, reversed.markAt(7, 7));
+        assertEquals(1, reversed.markAt(12, 12));
+        assertEquals(0, reversed.markAt(17, 17));
+    }
+
+    /**
+     * Tests that a grid without marks finds nothing.
+     */
+    @Test
+    public void testEmpty()
+    {
+        assertEquals(-1, MarkHitGrid.EMPTY.markAt(0, 0));
+        assertEquals(0, MarkHitGrid.EMPTY.size());
+        assertThrows(IllegalArgumentException.class, () -> new MarkHitGrid(new double[1], new double[2], 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MarkHitGrid(new double[1], new double[1], 0, 1));
+    }
+}
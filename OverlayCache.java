@@ -0,0 +1,158 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.scene.image.Image;
+
+/**
+ * An OverlayCache keeps rendered map overlays so that going back to a city,
+ * pollutant, year and filter that was shown recently does not render it again.
+ *
+ * The size of the cache is counted in pixels. When the overlays take up more
+ * pixels than the budget, the least recently used ones are dropped until it fits
+ * again. The cache counts its hits and misses so its hit rate can be shown.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class OverlayCache
+{
+    /**
+     * A rendered overlay: the image, the data points of its marks in the order they
+     * were drawn, and the grid that finds the mark under the mouse.
+     */
+    public record Overlay(Image image, ColumnarDataSet marks, MarkHitGrid hitGrid)
+    {
+        /**
+         * Return the number of pixels of the image.
+         */
+        public long pixels()
+        {
+            return (long) image.getWidth() * (long) image.getHeight();
+        }
+    }
+
+    private final long budgetPixels;
+    private final LinkedHashMap<String, Overlay> overlays;
+    private long usedPixels;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Create a cache with the given budget.
+     *
+     * @param budgetPixels the number of pixels the cached overlays may take up together
+     */
+    public OverlayCache(long budgetPixels)
+    {
+        if (budgetPixels <= 0) {
+            throw new IllegalArgumentException("The pixel budget must be positive");
+        }
+        this.budgetPixels = budgetPixels;
+        overlays = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Return the overlay with the given key, and count a hit or a miss.
+     *
+     * @return the overlay, or null if it is not in the cache
+     */
+    public synchronized Overlay get(String key)
+    {
+        Overlay overlay = overlays.get(key);
+        if (overlay == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return overlay;
+    }
+
+    /**
+     * Add an overlay, dropping the least recently used ones if the cache goes over
+     * its budget. An overlay bigger than the whole budget is not kept.
+     */
+    public synchronized void put(String key, Overlay overlay)
+    {
+        Overlay previous = overlays.remove(key);
+        if (previous != null) {
+            usedPixels -= previous.pixels();
+        }
+        if (overlay.pixels() > budgetPixels) {
+            return;
+        }
+        overlays.put(key, overlay);
+        usedPixels += overlay.pixels();
+
+        Iterator<Map.Entry<String, Overlay>> leastRecentlyUsed = overlays.entrySet().iterator();
+        while (usedPixels > budgetPixels && leastRecentlyUsed.hasNext()) {
+            Overlay evicted = leastRecentlyUsed.next().getValue();
+            leastRecentlyUsed.remove();
+            usedPixels -= evicted.pixels();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drop all the overlays. The hit and miss counts are kept.
+     */
+    public synchronized void clear()
+    {
+        overlays.clear();
+        usedPixels = 0;
+    }
+
+    /**
+     * Return the number of overlays in the cache.
+     */
+    public synchronized int size()
+    {
+        return overlays.size();
+    }
+
+    public synchronized long getUsedPixels()
+    {
+        return usedPixels;
+    }
+
+    public long getBudgetPixels()
+    {
+        return budgetPixels;
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Return the share of lookups that found an overlay, from 0 to 1, or NaN before the first lookup.
+     */
+    public synchronized double getHitRate()
+    {
+        long lookups = hits + misses;
+        return lookups == 0 ? Double.NaN : (double) hits / lookups;
+    }
+
+    /**
+     * Return a one line summary of the cache for diagnostics.
+     */
+    @Override
+    public synchronized String toString()
+    {
+        double hitRate = getHitRate();
+        return String.format("%d overlays, %.1f of %.1f Mpx, %d hits, %d misses (%s hit rate), %d evicted",
+                             overlays.size(), usedPixels / 1e6, budgetPixels / 1e6, hits, misses,
+                             Double.isNaN(hitRate) ? "no" : String.format("%.0f%%", hitRate * 100), evictions);
+    }
+}
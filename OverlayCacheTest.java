@@ -0,0 +1,116 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javafx.scene.image.WritableImage;
+
+/**
+ * Test class for OverlayCache.
+ * This class verifies that the cache keeps to its pixel budget by dropping the
+ * least recently used overlays, and that it counts its hits and misses.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class OverlayCacheTest
+{
+    private OverlayCache cache;
+
+    /**
+     * Default constructor for test class OverlayCacheTest
+     */
+    public OverlayCacheTest()
+    {
+    }
+
+    /**
+     * Creates a cache with room for 1000 pixels.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp()
+    {
+        cache = new OverlayCache(1000);
+    }
+
+    private static OverlayCache.Overlay overlay(int width, int height)
+    {
+        return new OverlayCache.Overlay(new WritableImage(width, height), ColumnarDataSet.EMPTY, MarkHitGrid.EMPTY);
+    }
+
+    /**
+     * Tests that the least recently used overlays are dropped when the pixels go
+     * over the budget, and that using one keeps it.
+     */
+    @Test
+    public void testPixelBudget()
+    {
+        cache.put("a", overlay(20, 20));
+        cache.put("b", overlay(20, 20));
+        assertEquals(800, cache.getUsedPixels());
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", overlay(20, 20));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(800, cache.getUsedPixels());
+        assertEquals(1, cache.getEvictions());
+
+        // one big overlay pushes out both smaller ones
+        cache.put("d", overlay(30, 30));
+        assertEquals(1, cache.size());
+        assertEquals(900, cache.getUsedPixels());
+        assertEquals(3, cache.getEvictions());
+    }
+
+    /**
+     * Tests that an overlay bigger than the whole budget is not kept and does not
+     * push out the others.
+     */
+    @Test
+    public void testOverlayBiggerThanBudget()
+    {
+        cache.put("a", overlay(20, 20));
+        cache.put("huge", overlay(40, 40));
+        assertNull(cache.get("huge"));
+        assertNotNull(cache.get("a"));
+        assertEquals(400, cache.getUsedPixels());
+    }
+
+    /**
+     * Tests that putting an overlay under a key that is in use replaces it.
+     */
+    @Test
+    public void testReplace()
+    {
+        cache.put("a", overlay(20, 20));
+        cache.put("a", overlay(10, 10));
+        assertEquals(1, cache.size());
+        assertEquals(100, cache.getUsedPixels());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    /**
+     * Tests the hit rate, and that clearing the cache keeps the counts.
+     */
+    @Test
+    public void testHitRate()
+    {
+        assertTrue(Double.isNaN(cache.getHitRate()));
+        cache.put("a", overlay(10, 10));
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getUsedPixels());
+        assertEquals(2, cache.getHits());
+    }
+}
@@ -0,0 +1,260 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javafx.scene.paint.Color;
+
+/**
+ * An OverlayRenderer turns the marks of a map into the pixels of one image, so the
+ * whole overlay can be shown with a single drawImage call.
+ *
+ * The colour of a mark comes from a lookup table made once: the value is compared
+ * with a few breaks, and the colour of its band is already an ARGB int, so no Color
+ * objects are made while rendering. The image is split into horizontal strips of
+ * pixels that are filled at the same time on a fork/join pool. The marks are first
+ * sorted into the strips they cover, so a strip only goes through its own marks
+ * rather than all of them. Each strip only writes its own rows, and the marks are
+ * filled in the order they are given and blended over each other, so the result
+ * is the same as drawing them one by one.
+ *
+ * @author Sara Ajdini
+ * @version 1.1
+ */
+public class OverlayRenderer
+{
+    // the rows of pixels one task fills without splitting further
+    private static final int STRIP_HEIGHT = 32;
+
+    private final double[] breaks;
+    private final int[] colours;
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a renderer with a colour for each band of values.
+     *
+     * @param breaks the highest value of every band but the last, lowest first
+     * @param colours one colour more than there are breaks, for the bands lowest first
+     * @throws IllegalArgumentException if there is not exactly one more colour than breaks
+     */
+    public OverlayRenderer(double[] breaks, Color[] colours)
+    {
+        this(breaks, colours, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a renderer with a colour for each band of values that runs on the given pool.
+     */
+    public OverlayRenderer(double[] breaks, Color[] colours, ForkJoinPool pool)
+    {
+        if (colours.length != breaks.length + 1) {
+            throw new IllegalArgumentException("There must be one more colour than breaks");
+        }
+        this.breaks = breaks.clone();
+        this.colours = new int[colours.length];
+        for (int i = 0; i < colours.length; i++) {
+            this.colours[i] = toArgb(colours[i]);
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Return the ARGB colour of a value from the lookup table. A value on a break
+     * belongs to the band below it, and NaN belongs to the last band.
+     */
+    public int colourOf(double value)
+    {
+        for (int band = 0; band < breaks.length; band++) {
+            if (value <= breaks[band]) {
+                return colours[band];
+            }
+        }
+        return colours[breaks.length];
+    }
+
+    /**
+     * Render marks into the pixels of an image. This waits for the pool to fill all
+     * the strips, so it should not be called on the JavaFX application thread.
+     *
+     * @param values the value of every mark, in the order the marks are drawn
+     * @param markXs the x of the left edge of every mark, in pixels
+     * @param markYs the y of the top edge of every mark, in pixels
+     * @param markWidth the width of a mark, in pixels
+     * @param markHeight the height of a mark, in pixels
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the pixels row by row as non-premultiplied ARGB, transparent where there is no mark
+     */
+    public int[] render(double[] values, double[] markXs, double[] markYs, double markWidth, double markHeight,
+                        int width, int height)
+    {
+        int[] markColours = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            markColours[i] = colourOf(values[i]);
+        }
+        int[] pixels = new int[width * height];
+        Marks marks = Marks.sort(markColours, markXs, markYs, markWidth, markHeight, width, height);
+        pool.invoke(new StripTask(pixels, width, height, marks, 0, marks.bands()));
+        return pixels;
+    }
+
+    /**
+     * Return a colour as a non-premultiplied ARGB int.
+     */
+    public static int toArgb(Color colour)
+    {
+        int a = (int) Math.round(colour.getOpacity() * 255);
+        int r = (int) Math.round(colour.getRed() * 255);
+        int g = (int) Math.round(colour.getGreen() * 255);
+        int b = (int) Math.round(colour.getBlue() * 255);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Return a colour drawn over another one, both non-premultiplied ARGB.
+     */
+    static int blend(int source, int destination)
+    {
+        int sourceAlpha = source >>> 24;
+        int destinationAlpha = destination >>> 24;
+        if (sourceAlpha == 255 || destinationAlpha == 0) {
+            return source;
+        }
+        // the part of the destination that shows through, out of 255 * 255
+        int under = destinationAlpha * (255 - sourceAlpha);
+        int alpha = sourceAlpha * 255 + under;
+        int result = (alpha + 127) / 255 << 24;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            int channel = (((source >> shift) & 0xFF) * sourceAlpha * 255
+                           + ((destination >> shift) & 0xFF) * under + alpha / 2) / alpha;
+            result |= channel << shift;
+        }
+        return result;
+    }
+
+    /**
+     * The marks to render, with the marks of each strip of rows listed together so
+     * a strip only goes through the marks that cover some of its rows.
+     *
+     * @param bandStart where the marks of each strip start in bandMarks, and one past the last strip
+     * @param bandMarks the indexes of the marks of every strip, in the order they are drawn
+     */
+    private record Marks(int[] colours, double[] xs, double[] ys, double width, double height,
+                         int[] bandStart, int[] bandMarks)
+    {
+        /**
+         * List the marks of each strip of an image, by counting sort, so each strip
+         * keeps the marks in the order they are given.
+         */
+        static Marks sort(int[] colours, double[] xs, double[] ys, double markWidth, double markHeight,
+                          int width, int height)
+        {
+            int bands = (height + STRIP_HEIGHT - 1) / STRIP_HEIGHT;
+            // counting sort of the marks by strip, each mark counted in every strip it overlaps
+            int[] bandStart = new int[bands + 1];
+            for (int i = 0; i < colours.length; i++) {
+                int top = Math.max(0, firstPixel(ys[i]));
+                int bottom = Math.min(height, firstPixel(ys[i] + markHeight));
+                if (isOnImage(xs[i], markWidth, width)) {
+                    for (int band = top / STRIP_HEIGHT; top < bottom && band <= (bottom - 1) / STRIP_HEIGHT; band++) {
+                        bandStart[band + 1]++;
+                    }
+                }
+            }
+            for (int band = 0; band < bands; band++) {
+                bandStart[band + 1] += bandStart[band];
+            }
+            int[] bandMarks = new int[bandStart[bands]];
+            int[] next = Arrays.copyOf(bandStart, bands);
+            for (int i = 0; i < colours.length; i++) {
+                int top = Math.max(0, firstPixel(ys[i]));
+                int bottom = Math.min(height, firstPixel(ys[i] + markHeight));
+                if (isOnImage(xs[i], markWidth, width)) {
+                    for (int band = top / STRIP_HEIGHT; top < bottom && band <= (bottom - 1) / STRIP_HEIGHT; band++) {
+                        bandMarks[next[band]++] = i;
+                    }
+                }
+            }
+            return new Marks(colours, xs, ys, markWidth, markHeight, bandStart, bandMarks);
+        }
+
+        /**
+         * Return true if a mark covers the centre of at least one column of pixels of the image.
+         */
+        private static boolean isOnImage(double x, double markWidth, int width)
+        {
+            return Math.max(0, firstPixel(x)) < Math.min(width, firstPixel(x + markWidth));
+        }
+
+        /**
+         * Return the number of strips.
+         */
+        int bands()
+        {
+            return bandStart.length - 1;
+        }
+    }
+
+    /**
+     * Return the first pixel whose centre is at or after a position.
+     */
+    private static int firstPixel(double position)
+    {
+        return (int) Math.ceil(position - 0.5);
+    }
+
+    /**
+     * A StripTask fills the strips of rows from firstBand up to endBand, splitting
+     * itself in two while it has more than one strip.
+     */
+    private static class StripTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] pixels;
+        private final int width;
+        private final int height;
+        private final transient Marks marks;
+        private final int firstBand;
+        private final int endBand;
+
+        StripTask(int[] pixels, int width, int height, Marks marks, int firstBand, int endBand)
+        {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.marks = marks;
+            this.firstBand = firstBand;
+            this.endBand = endBand;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (endBand - firstBand > 1) {
+                int middle = (firstBand + endBand) >>> 1;
+                invokeAll(new StripTask(pixels, width, height, marks, firstBand, middle),
+                          new StripTask(pixels, width, height, marks, middle, endBand));
+                return;
+            }
+            if (endBand == firstBand) {
+                return;
+            }
+            int firstRow = firstBand * STRIP_HEIGHT;
+            int endRow = Math.min(height, firstRow + STRIP_HEIGHT);
+            for (int m = marks.bandStart()[firstBand]; m < marks.bandStart()[firstBand + 1]; m++) {
+                int i = marks.bandMarks()[m];
+                // a pixel belongs to a mark if its centre is inside the mark
+                int top = Math.max(firstRow, firstPixel(marks.ys()[i]));
+                int bottom = Math.min(endRow, firstPixel(marks.ys()[i] + marks.height()));
+                int left = Math.max(0, firstPixel(marks.xs()[i]));
+                int right = Math.min(width, firstPixel(marks.xs()[i] + marks.width()));
+                int colour = marks.colours()[i];
+                for (int row = top; row < bottom; row++) {
+                    int offset = row * width;
+                    for (int column = left; column < right; column++) {
+                        pixels[offset + column] = blend(colour, pixels[offset + column]);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import javafx.scene.paint.Color;
+
+/**
+ * Test class for OverlayRenderer.
+ * This class verifies that marks sorted into strips are rendered exactly as if
+ * they were drawn one by one over the whole image, including marks that cover
+ * more than one strip and marks partly or wholly off the image.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class OverlayRendererTest
+{
+    private static final Color[] COLOURS = {
+        Color.web("rgba(0,255,0,0.3)"), Color.web("rgba(255,255,0,0.3)"), Color.RED
+    };
+
+    /**
+     * Default constructor for test class OverlayRendererTest
+     */
+    public OverlayRendererTest()
+    {
+    }
+
+    /**
+     * Return the pixels of the marks drawn one by one, in order, over the whole image.
+     */
+    private static int[] drawOneByOne(OverlayRenderer renderer, double[] values, double[] xs, double[] ys,
+                                      double markWidth, double markHeight, int width, int height)
+    {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < values.length; i++) {
+            int colour = renderer.colourOf(values[i]);
+            for (int row = 0; row < height; row++) {
+                for (int column = 0; column < width; column++) {
+                    double centreX = column + 0.5;
+                    double centreY = row + 0.5;
+                    if (centreX >= xs[i] && centreX < xs[i] + markWidth
+                            && centreY >= ys[i] && centreY < ys[i] + markHeight) {
+                        pixels[row * width + column] = OverlayRenderer.blend(colour, pixels[row * width + column]);
+                    }
+                }
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Tests that overlapping marks of random sizes and places, some of them off the
+     * image, are rendered like drawing them one by one.
+     */
+    @Test
+    public void testSameAsOneByOne()
+    {
+        OverlayRenderer renderer = new OverlayRenderer(new double[] {10, 20}, COLOURS);
+        Random random = new Random(7);
+        for (double markSize : new double[] {3, 20.5, 70}) {
+            int count = 300;
+            double[] values = new double[count];
+            double[] xs = new double[count];
+            double[] ys = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = random.nextDouble() * 30;
+                xs[i] = random.nextDouble() * 140 - 20;
+                ys[i] = random.nextDouble() * 230 - 20;
+            }
+            int[] expected = drawOneByOne(renderer, values, xs, ys, markSize, markSize, 100, 190);
+            assertArrayEquals(expected, renderer.render(values, xs, ys, markSize, markSize, 100, 190),
+                              "marks of size " + markSize);
+        }
+    }
+
+    /**
+     * Tests that a mark straddling the edge of two strips fills the rows of both,
+     * and that a later mark is blended over an earlier one.
+     */
+    @Test
+    public void testMarkOverStripEdge()
+    {
+        OverlayRenderer renderer = new OverlayRenderer(new double[] {10, 20}, COLOURS);
+        int[] pixels = renderer.render(new double[] {5, 25}, new double[] {0, 0}, new double[] {20, 30},
+                                       4, 20, 4, 64);
+        int green = renderer.colourOf(5);
+        int red = renderer.colourOf(25);
+        assertEquals(0, pixels[19 * 4]);
+        assertEquals(green, pixels[20 * 4]);
+        assertEquals(red, pixels[31 * 4 + 3]);
+        assertEquals(red, pixels[49 * 4]);
+        assertEquals(0, pixels[50 * 4]);
+    }
+
+    /**
+     * Tests that marks with no pixels on the image and an image with no rows render nothing.
+     */
+    @Test
+    public void testNothingOnImage()
+    {
+        OverlayRenderer renderer = new OverlayRenderer(new double[0], new Color[] {Color.BLUE});
+        int[] pixels = renderer.render(new double[] {1, 1}, new double[] {-10, 50}, new double[] {0, 0},
+                                       5, 5, 40, 40);
+        for (int pixel : pixels) {
+            assertEquals(0, pixel);
+        }
+        assertEquals(0, renderer.render(new double[] {1}, new double[] {0}, new double[] {0}, 5, 5, 40, 0).length);
+        assertThrows(IllegalArgumentException.class, () -> new OverlayRenderer(new double[] {1}, new Color[] {Color.BLUE}));
+    }
+}
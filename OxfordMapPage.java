@@ -15,6 +15,10 @@ public class OxfordMapPage extends MapPage
         //this.dataFiles = dataFiles;
     } 
     
+    public OxfordMapPage(DataFiles dataFiles, boolean tiledBaseMap){
+        super(dataFiles, tiledBaseMap);
+    }
+    
     /**
      * returns Oxford data points for current year and pollutant 
      * 
@@ -24,6 +28,11 @@ public class OxfordMapPage extends MapPage
         return dataFiles.getFilteredDataPoints(year,pollutant,city);
     }
 
+    @Override
+    public String getCity(){
+        return city;
+    }
+
     @Override
     protected  String getMapImagePath(){
         return "Oxford.png";
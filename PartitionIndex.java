@@ -0,0 +1,379 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The PartitionIndex holds the data points of every city, pollutant and year as a
+ * ready made block of columns, so a filtered query is a single hash map lookup
+ * instead of a scan over all the data sets.
+ *
+ * For every pollutant and year there is one block per city and one block for all
+ * the cities together. The block for all the cities holds the data points grouped
+ * by city, and the block of each city is a slice of it, so the data points are held
+ * once. A data set whose data points are already grouped by city is used as the block
+ * for all the cities as it is, without a copy. Adding another data set with the same
+ * pollutant and year only sorts the new data points into the cities and appends them
+ * to the blocks; removing one builds the blocks again from the data sets that are left.
+ * Blocks never change once they are built, so they can be handed out to any number of
+ * readers. A SpatialIndex, DataRaster or RankIndex over a block is built the first time
+ * it is asked for, by one thread only, and kept until the block is replaced. Keys are
+ * made of normalised names, so "NO2", "no2" and " No2 " all find the same block.
+ *
+ * @author Sara Ajdini
+ * @version 1.1
+ */
+public class PartitionIndex
+{
+    // the region part of the key for the block with all cities together
+    private static final String ALL = "all";
+
+    private final Map<String, ColumnarDataSet> partitions;
+    private final Map<String, SpatialIndex> spatialIndexes;
+    private final Map<String, DataRaster> rasters;
+    private final Map<String, RankIndex> rankIndexes;
+    // the data sets the blocks of each pollutant and year are built from, in the order they were added
+    private final Map<String, List<SimpleDataSet>> sources;
+    // the bytes of the blocks of each pollutant and year that are not shared with a data set
+    private final Map<String, Long> copiedBytes;
+
+    /**
+     * Create an empty index.
+     */
+    public PartitionIndex()
+    {
+        partitions = new ConcurrentHashMap<>();
+        spatialIndexes = new ConcurrentHashMap<>();
+        rasters = new ConcurrentHashMap<>();
+        rankIndexes = new ConcurrentHashMap<>();
+        sources = new HashMap<>();
+        copiedBytes = new HashMap<>();
+    }
+
+    /**
+     * Return the data points of a city, pollutant and year.
+     *
+     * @param location the name of a city, or any other name (such as "all") for all the cities together
+     * @param pollutant the pollutant
+     * @param year the year
+     * @return the block of data points, or null if no data set with that pollutant and year was added
+     */
+    public ColumnarDataSet get(String location, String pollutant, String year)
+    {
+        CityRegion region = CityRegion.forName(location.trim());
+        return partitions.get(key(region, pollutant, year));
+    }
+
+    /**
+     * Return a spatial index over the data points of a city, pollutant and year.
+     *
+     * @param location the name of a city, or any other name (such as "all") for all the cities together
+     * @param pollutant the pollutant
+     * @param year the year
+     * @return the spatial index, or null if no data set with that pollutant and year was added
+     */
+    public SpatialIndex getSpatialIndex(String location, String pollutant, String year)
+    {
+        String key = key(CityRegion.forName(location.trim()), pollutant, year);
+        ColumnarDataSet block = partitions.get(key);
+        if (block == null) {
+            return null;
+        }
+        // built at most once per block, even when several threads ask at the same time
+        return spatialIndexes.compute(key, (k, built) -> built != null && built.getPoints() == block ? built : new SpatialIndex(block));
+    }
+
+    /**
+     * Return a raster of the data points of a city, pollutant and year.
+     *
+     * @param location the name of a city, or any other name (such as "all") for all the cities together
+     * @param pollutant the pollutant
+     * @param year the year
+     * @return the raster, or null if no data set with that pollutant and year was added
+     */
+    public DataRaster getRaster(String location, String pollutant, String year)
+    {
+        String key = key(CityRegion.forName(location.trim()), pollutant, year);
+        ColumnarDataSet block = partitions.get(key);
+        if (block == null) {
+            return null;
+        }
+        // built at most once per block, even when several threads ask at the same time
+        return rasters.compute(key, (k, built) -> built != null && built.getPoints() == block ? built : new DataRaster(block));
+    }
+
+    /**
+     * Return the data points of a city, pollutant and year in order of their value.
+     *
+     * @param location the name of a city, or any other name (such as "all") for all the cities together
+     * @param pollutant the pollutant
+     * @param year the year
+     * @return the rank index, or null if no data set with that pollutant and year was added
+     */
+    public RankIndex getRankIndex(String location, String pollutant, String year)
+    {
+        String key = key(CityRegion.forName(location.trim()), pollutant, year);
+        ColumnarDataSet block = partitions.get(key);
+        if (block == null) {
+            return null;
+        }
+        // built at most once per block, even when several threads ask at the same time
+        return rankIndexes.compute(key, (k, built) -> built != null && built.getPoints() == block ? built : new RankIndex(block));
+    }
+
+    /**
+     * Return true if a data set with the given pollutant and year was added.
+     */
+    public boolean contains(String pollutant, String year)
+    {
+        return partitions.containsKey(key(null, pollutant, year));
+    }
+
+    /**
+     * Return roughly how many bytes of heap the blocks of a pollutant and year and
+     * the indexes built over them use, not counting data shared with the data sets.
+     */
+    public synchronized long estimateBytes(String pollutant, String year)
+    {
+        long bytes = copiedBytes.getOrDefault(sourceKey(pollutant, year), 0L);
+        List<String> keys = new ArrayList<>();
+        keys.add(key(null, pollutant, year));
+        for (CityRegion region : CityRegion.values()) {
+            keys.add(key(region, pollutant, year));
+        }
+        for (String key : keys) {
+            SpatialIndex spatialIndex = spatialIndexes.get(key);
+            if (spatialIndex != null) {
+                bytes += spatialIndex.estimateBytes();
+            }
+            DataRaster raster = rasters.get(key);
+            if (raster != null) {
+                bytes += raster.estimateBytes();
+            }
+            RankIndex rankIndex = rankIndexes.get(key);
+            if (rankIndex != null) {
+                bytes += rankIndex.estimateBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the data points of some blocks of columns that are inside one of the
+     * cities, grouped by city in the order of CityRegion and otherwise in their order
+     * in the blocks. A single block that is already grouped like that is returned as
+     * it is, so only data points that need to move are copied.
+     */
+    public static ColumnarDataSet groupByRegion(List<ColumnarDataSet> blocks)
+    {
+        if (blocks.size() == 1 && isGroupedByRegion(blocks.get(0))) {
+            return blocks.get(0);
+        }
+        CityRegion[] regions = CityRegion.values();
+        ColumnarDataSet.Builder[] regionColumns = new ColumnarDataSet.Builder[regions.length];
+        for (int r = 0; r < regions.length; r++) {
+            regionColumns[r] = new ColumnarDataSet.Builder();
+        }
+        for (ColumnarDataSet columns : blocks) {
+            for (int i = 0; i < columns.size(); i++) {
+                int r = regionOf(regions, columns.getX(i), columns.getY(i));
+                if (r >= 0) {
+                    regionColumns[r].add(columns, i);
+                }
+            }
+        }
+        for (int r = 1; r < regions.length; r++) {
+            regionColumns[0].addAll(regionColumns[r]);
+        }
+        return regionColumns[0].build();
+    }
+
+    /**
+     * Return true if every data point of a block is inside a city and the data
+     * points are grouped by city in the order of CityRegion.
+     */
+    private static boolean isGroupedByRegion(ColumnarDataSet columns)
+    {
+        CityRegion[] regions = CityRegion.values();
+        int previous = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            int r = regionOf(regions, columns.getX(i), columns.getY(i));
+            if (r < previous) {
+                return false;
+            }
+            previous = r;
+        }
+        return true;
+    }
+
+    /**
+     * Return the index of the city a point is in, or -1 if it is in none of them.
+     */
+    private static int regionOf(CityRegion[] regions, int x, int y)
+    {
+        for (int r = 0; r < regions.length; r++) {
+            if (regions[r].contains(x, y)) {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add a data set to the blocks of its pollutant and year.
+     */
+    public synchronized void add(SimpleDataSet dataSet)
+    {
+        String sourceKey = sourceKey(dataSet.getPollutant(), dataSet.getYear());
+        List<SimpleDataSet> dataSets = sources.computeIfAbsent(sourceKey, key -> new ArrayList<>());
+        dataSets.add(dataSet);
+        if (dataSets.size() == 1) {
+            rebuild(dataSet.getPollutant(), dataSet.getYear());
+        } else {
+            append(dataSet.getPollutant(), dataSet.getYear(), dataSet.getColumns());
+        }
+    }
+
+    /**
+     * Remove a data set and rebuild the blocks of its pollutant and year,
+     * or drop them if no other data set has that pollutant and year.
+     */
+    public synchronized void remove(SimpleDataSet dataSet)
+    {
+        String sourceKey = sourceKey(dataSet.getPollutant(), dataSet.getYear());
+        List<SimpleDataSet> dataSets = sources.get(sourceKey);
+        if (dataSets == null || !dataSets.remove(dataSet)) {
+            return;
+        }
+        if (dataSets.isEmpty()) {
+            sources.remove(sourceKey);
+            copiedBytes.remove(sourceKey);
+            drop(key(null, dataSet.getPollutant(), dataSet.getYear()));
+            for (CityRegion region : CityRegion.values()) {
+                drop(key(region, dataSet.getPollutant(), dataSet.getYear()));
+            }
+        } else {
+            rebuild(dataSet.getPollutant(), dataSet.getYear());
+        }
+    }
+
+    /**
+     * Drop a block and everything built over it.
+     */
+    private void drop(String key)
+    {
+        partitions.remove(key);
+        dropIndexes(key);
+    }
+
+    /**
+     * Drop the indexes built over a block. They are built again when asked for.
+     */
+    private void dropIndexes(String key)
+    {
+        spatialIndexes.remove(key);
+        rasters.remove(key);
+        rankIndexes.remove(key);
+    }
+
+    /**
+     * Build the blocks of a pollutant and year from its data sets. The block for all
+     * the cities holds the data points grouped by city, and the blocks of the cities
+     * are slices of it.
+     */
+    private void rebuild(String pollutant, String year)
+    {
+        List<SimpleDataSet> dataSets = sources.get(sourceKey(pollutant, year));
+        List<ColumnarDataSet> blocks = new ArrayList<>(dataSets.size());
+        for (SimpleDataSet dataSet : dataSets) {
+            blocks.add(dataSet.getColumns());
+        }
+        ColumnarDataSet allColumns = groupByRegion(blocks);
+        boolean shared = blocks.size() == 1 && allColumns == blocks.get(0);
+
+        CityRegion[] regions = CityRegion.values();
+        int[] regionSizes = new int[regions.length];
+        int end = 0;
+        for (int r = 0; r < regions.length; r++) {
+            int start = end;
+            while (end < allColumns.size() && regions[r].contains(allColumns.getX(end), allColumns.getY(end))) {
+                end++;
+            }
+            regionSizes[r] = end - start;
+        }
+        publish(pollutant, year, allColumns, regionSizes, shared);
+    }
+
+    /**
+     * Append the data points of another data set to the blocks of a pollutant and
+     * year. The blocks there are already are copied as they are; only the new data
+     * points are sorted into the cities.
+     */
+    private void append(String pollutant, String year, ColumnarDataSet added)
+    {
+        CityRegion[] regions = CityRegion.values();
+        ColumnarDataSet.Builder[] regionColumns = new ColumnarDataSet.Builder[regions.length];
+        for (int r = 0; r < regions.length; r++) {
+            regionColumns[r] = new ColumnarDataSet.Builder(partitions.get(key(regions[r], pollutant, year)));
+        }
+        for (int i = 0; i < added.size(); i++) {
+            int r = regionOf(regions, added.getX(i), added.getY(i));
+            if (r >= 0) {
+                regionColumns[r].add(added, i);
+            }
+        }
+        int[] regionSizes = new int[regions.length];
+        for (int r = 0; r < regions.length; r++) {
+            regionSizes[r] = regionColumns[r].size();
+            if (r > 0) {
+                regionColumns[0].addAll(regionColumns[r]);
+            }
+        }
+        publish(pollutant, year, regionColumns[0].build(), regionSizes, false);
+    }
+
+    /**
+     * Put the blocks of a pollutant and year in the index, cutting the block for
+     * all the cities into the blocks of the cities, and drop the indexes built over
+     * the blocks they replace.
+     *
+     * @param allColumns the data points of all the cities, grouped by city
+     * @param regionSizes the number of data points of each city, in the order of CityRegion
+     * @param shared true if allColumns are the columns of a data set, so they take no extra memory
+     */
+    private void publish(String pollutant, String year, ColumnarDataSet allColumns, int[] regionSizes, boolean shared)
+    {
+        copiedBytes.put(sourceKey(pollutant, year), shared ? 0 : allColumns.estimateBytes());
+        CityRegion[] regions = CityRegion.values();
+        int start = 0;
+        for (int r = 0; r < regions.length; r++) {
+            String key = key(regions[r], pollutant, year);
+            partitions.put(key, allColumns.slice(start, start + regionSizes[r]));
+            dropIndexes(key);
+            start += regionSizes[r];
+        }
+        String key = key(null, pollutant, year);
+        partitions.put(key, allColumns);
+        dropIndexes(key);
+    }
+
+    /**
+     * Return the key of the block of a city, pollutant and year.
+     *
+     * @param region the city, or null for all the cities together
+     */
+    private static String key(CityRegion region, String pollutant, String year)
+    {
+        String regionName = region == null ? ALL : region.name();
+        return regionName + "|" + sourceKey(pollutant, year);
+    }
+
+    /**
+     * Return the key of the data sets of a pollutant and year.
+     */
+    private static String sourceKey(String pollutant, String year)
+    {
+        return DataCatalog.normalise(pollutant) + "|" + DataCatalog.normalise(year);
+    }
+}
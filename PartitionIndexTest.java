@@ -0,0 +1,192 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for PartitionIndex.
+ * This class verifies that the blocks of the cities hold the right data points
+ * without copying grouped data sets, that adding and removing data sets keeps them
+ * up to date, and that the indexes over a block are built once.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class PartitionIndexTest
+{
+    private PartitionIndex index;
+
+    /**
+     * Default constructor for test class PartitionIndexTest
+     */
+    public PartitionIndexTest()
+    {
+    }
+
+    /**
+     * Creates an empty index.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp()
+    {
+        index = new PartitionIndex();
+    }
+
+    /**
+     * Return a data set with one data point per gridcode, in the middle of the city
+     * at the same position in the list of regions, or outside every city for null.
+     */
+    private static SimpleDataSet dataSet(String year, int[] gridCodes, CityRegion[] regions)
+    {
+        ColumnarDataSet.Builder columns = new ColumnarDataSet.Builder();
+        for (int i = 0; i < gridCodes.length; i++) {
+            CityRegion region = regions[i];
+            int x = region == null ? 0 : (region.getMinX() + region.getMaxX()) / 2;
+            int y = region == null ? 0 : (region.getMinY() + region.getMaxY()) / 2;
+            columns.add(gridCodes[i], x, y, gridCodes[i] * 1.5);
+        }
+        return new SimpleDataSet("NO2", year, "annual mean", columns.build());
+    }
+
+    private static List<Integer> gridCodes(ColumnarDataSet columns)
+    {
+        List<Integer> gridCodes = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            gridCodes.add(columns.getGridCode(i));
+        }
+        return gridCodes;
+    }
+
+    /**
+     * Tests that data points are sorted into the blocks of their cities in their
+     * original order, and that points outside the cities are left out.
+     */
+    @Test
+    public void testBlocks()
+    {
+        CityRegion london = CityRegion.LONDON;
+        CityRegion leeds = CityRegion.LEEDS;
+        index.add(dataSet("2019", new int[] {1, 2, 3, 4, 5},
+                          new CityRegion[] {leeds, london, null, leeds, london}));
+        assertEquals(List.of(2, 5), gridCodes(index.get("London", "NO2", "2019")));
+        assertEquals(List.of(1, 4), gridCodes(index.get(" leeds ", "no2", "2019")));
+        assertTrue(index.get("Oxford", "NO2", "2019").isEmpty());
+        assertEquals(List.of(2, 5, 1, 4), gridCodes(index.get("all", "NO2", "2019")));
+        assertNull(index.get("London", "NO2", "2018"));
+        assertTrue(index.estimateBytes("NO2", "2019") > 0);
+    }
+
+    /**
+     * Tests that a data set that is already grouped by city is used as the block
+     * for all the cities without a copy.
+     */
+    @Test
+    public void testGroupedDataSetShared()
+    {
+        SimpleDataSet dataSet = dataSet("2019", new int[] {1, 2, 3},
+                                        new CityRegion[] {CityRegion.LONDON, CityRegion.LEEDS, CityRegion.OXFORD});
+        index.add(dataSet);
+        assertSame(dataSet.getColumns(), index.get("all", "NO2", "2019"));
+        assertEquals(0, index.estimateBytes("NO2", "2019"));
+
+        ColumnarDataSet mixed = dataSet("2019", new int[] {1, 2}, new CityRegion[] {CityRegion.LEEDS, CityRegion.LONDON})
+                                .getColumns();
+        ColumnarDataSet grouped = PartitionIndex.groupByRegion(List.of(mixed));
+        assertEquals(List.of(2, 1), gridCodes(grouped));
+        assertSame(grouped, PartitionIndex.groupByRegion(List.of(grouped)));
+    }
+
+    /**
+     * Tests that adding a second data set of the same pollutant and year appends its
+     * data points, and removing one leaves the other's.
+     */
+    @Test
+    public void testAddAndRemove()
+    {
+        SimpleDataSet first = dataSet("2019", new int[] {1, 2}, new CityRegion[] {CityRegion.LONDON, CityRegion.LEEDS});
+        SimpleDataSet second = dataSet("2019", new int[] {3, 4}, new CityRegion[] {CityRegion.LEEDS, CityRegion.LONDON});
+        index.add(first);
+        index.add(second);
+        assertEquals(List.of(1, 4), gridCodes(index.get("London", "NO2", "2019")));
+        assertEquals(List.of(2, 3), gridCodes(index.get("Leeds", "NO2", "2019")));
+        assertEquals(List.of(1, 4, 2, 3), gridCodes(index.get("all", "NO2", "2019")));
+
+        index.remove(first);
+        assertEquals(List.of(4), gridCodes(index.get("London", "NO2", "2019")));
+        assertEquals(List.of(4, 3), gridCodes(index.get("all", "NO2", "2019")));
+        index.remove(second);
+        assertNull(index.get("all", "NO2", "2019"));
+        assertFalse(index.contains("NO2", "2019"));
+    }
+
+    /**
+     * Tests that the indexes over a block are kept, and built again over the new
+     * block once the block is replaced.
+     */
+    @Test
+    public void testIndexesFollowBlocks()
+    {
+        index.add(dataSet("2019", new int[] {1, 2}, new CityRegion[] {CityRegion.LONDON, CityRegion.LONDON}));
+        SpatialIndex spatialIndex = index.getSpatialIndex("London", "NO2", "2019");
+        RankIndex rankIndex = index.getRankIndex("London", "NO2", "2019");
+        assertSame(spatialIndex, index.getSpatialIndex("London", "NO2", "2019"));
+        assertSame(rankIndex, index.getRankIndex("London", "NO2", "2019"));
+        assertEquals(2, rankIndex.size());
+
+        index.add(dataSet("2019", new int[] {3}, new CityRegion[] {CityRegion.LONDON}));
+        RankIndex rebuilt = index.getRankIndex("London", "NO2", "2019");
+        assertNotSame(rankIndex, rebuilt);
+        assertEquals(3, rebuilt.size());
+        assertSame(index.get("London", "NO2", "2019"), index.getSpatialIndex("London", "NO2", "2019").getPoints());
+        assertNull(index.getRaster("London", "NO2", "2018"));
+    }
+
+    /**
+     * Tests that threads asking for the same index at the same time all get one
+     * index, built once.
+     */
+    @Test
+    public void testIndexBuiltOnce() throws Exception
+    {
+        int[] gridCodes = new int[5000];
+        CityRegion[] regions = new CityRegion[gridCodes.length];
+        for (int i = 0; i < gridCodes.length; i++) {
+            gridCodes[i] = i;
+            regions[i] = CityRegion.LONDON;
+        }
+        index.add(dataSet("2019", gridCodes, regions));
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<RankIndex>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Callable<RankIndex> ask = () -> {
+                    start.await();
+                    return index.getRankIndex("London", "NO2", "2019");
+                };
+                results.add(pool.submit(ask));
+            }
+            start.countDown();
+            RankIndex first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<RankIndex> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -25,7 +25,6 @@ public abstract class PollutionChart
     private BorderPane rootPane;
     protected DataFiles data;
     protected BarChart bc;
-    private List<DataPoint> dataPointsList;
     
     private ComboBox cityComboBox;
     private final ArrayList<String> years;
@@ -73,6 +72,13 @@ public abstract class PollutionChart
      */
     public abstract List<DataPoint> getDataPoints(String year, String pollutant);
     
+    /**
+     * Abstract method to retrieve the city the chart shows.
+     * 
+     * @return the city name
+     */
+    public abstract String getCity();
+    
     /**
      * Calculates the average pollutant value for the given year and pollutant.
      * 
@@ -81,21 +87,16 @@ public abstract class PollutionChart
      * @return the average pollutant value, or 0 if the list is empty.
      */
     public double getPollutantData(String year, String pollutant){
-        dataPointsList = getDataPoints(year,pollutant);
-        double totalPollutantValue = 0;
+        // Average the values of the city in one pass, without copying them
+        AggregateResult result = data.aggregate(DataQuery.of(year, pollutant, getCity()), Aggregator.mean());
         
-        // If the list is empty return 0
-        if (dataPointsList.isEmpty()){
+        // If there is no data return 0
+        if (result.getDataPoints() == 0){
             return 0;
         }
         
-        // Sum the pollutant values
-        for (DataPoint dataPoint: dataPointsList){
-            totalPollutantValue += dataPoint.value();
-        }
-        
         // Return the average pollutant value
-        return totalPollutantValue/dataPointsList.size();
+        return result.get(0);
     }
     
     /**
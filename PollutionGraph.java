@@ -99,13 +99,13 @@ public class PollutionGraph {
        
         // Create the LineChart
         lineChart = new LineChart<>(xAxis, yAxis);
-        lineChart.setTitle("Pollution Levels Over Time");
        
          // Get the series from the helper
         XYChart.Series<Number, Number> series = createDataSeries();
    
         // Add series to chart
         lineChart.getData().add(series);
+        updateTitle(!pollutionLevels.isEmpty());
 
     }
     
@@ -114,38 +114,26 @@ public class PollutionGraph {
      */
     public TreeMap<String, Double> getPollutionData(DataFiles dataFiles)
     {
-        pollutionLevels = new TreeMap<>();
-        File rootDir = new File("UKAirPollutionData");
-        List<String> allFiles = new ArrayList<>();
-        List<String> pollutionDataFiles = dataFiles.findFiles(rootDir,allFiles); //get all file paths
-        
-        List<String> filteredDataFiles = new LinkedList<>(); //stores the filtered files for the specified pollutant
+        //the gridcode index already holds the values of every city cell by year
+        //cells outside the cities are not loaded, so they have no values
+        pollutionLevels = dataFiles.getLocationSeries(gridcode, pollutant);
+        return pollutionLevels;
+    }
     
-        for (String filePath : pollutionDataFiles){
-            if (filePath.toLowerCase().contains(pollutant.toLowerCase()))
-            {
-                filteredDataFiles.add(filePath);
-            }
+    /**
+     * Sets the title of the graph, saying so when there is no data to plot.
+     * @param hasData true if at least one series has values
+     */
+    private void updateTitle(boolean hasData)
+    {
+        if (hasData)
+        {
+            lineChart.setTitle("Pollution Levels Over Time");
         }
-        
-        DataLoader loader = new DataLoader();
-        
-        for (String dataSetName : filteredDataFiles)//loop through filtered files
+        else
         {
-            DataSet dataSet = loader.loadDataFile(dataSetName); //gets info about the file
-            String year = dataSet.getYear();//get the year of the file
-            for(DataPoint dp : dataSet.getData())//loop through all data points in the file
-            {
-                int dpGridCode = dp.gridCode();//get the gridcode 
-                double pollutionValue = dp.value();//get pollution value for the specific data point
-                if(dpGridCode == gridcode)//if the gridcode is the one we're searching for...
-                {
-                    pollutionLevels.put(year, pollutionValue);//...store this file's year and the pollution value of this data point in pollutionLevels hashmap
-                }
-            }
+            lineChart.setTitle("Not available: only gridcodes in London, Leeds and Oxford have data");
         }
-        
-        return pollutionLevels;
     }
     
     /**
@@ -163,6 +151,7 @@ public class PollutionGraph {
         //plot the new graph
         XYChart.Series<Number, Number> series = createDataSeries();
         lineChart.getData().add(series);
+        updateTitle(!pollutionLevels.isEmpty());
     }
     
     /**
@@ -173,17 +162,20 @@ public class PollutionGraph {
         setPollutant(pollutant1);
         setGridcode(gridcode1);
         pollutionLevels = getPollutionData(dataFiles);
+        boolean hasData = !pollutionLevels.isEmpty();
         XYChart.Series<Number, Number> series1 = createDataSeries();
         series1.setName(pollutant1 + " at gridcode " + gridcode1);
         
         setPollutant(pollutant2);
         setGridcode(gridcode2);
         pollutionLevels = getPollutionData(dataFiles);
+        hasData = hasData || !pollutionLevels.isEmpty();
         XYChart.Series<Number, Number> series2 = createDataSeries();
         series2.setName(pollutant2 + " at gridcode " + gridcode2);
         
         lineChart.getData().clear();
         lineChart.getData().addAll(series1, series2);
+        updateTitle(hasData);
     }
     
     /**
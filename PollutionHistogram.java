@@ -0,0 +1,121 @@
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+
+/**
+ * This creates the chart of how the pollution levels of a year are spread out and updates it.
+ * The chart is drawn from a histogram counted when the data was loaded, so it has the same
+ * number of bars however many data points there are.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class PollutionHistogram {
+    private BorderPane rootPane;
+    private BarChart<String, Number> barChart;
+    private ComboBox<String> scaleDropDown;
+    private String pollutant; //stores the current pollutant selected by user
+    private String year; //stores the current year selected by user
+    private DataFiles dataFiles;
+
+    public PollutionHistogram(String paramPollutant, String paramYear, DataFiles dataFiles) {
+        this.dataFiles = dataFiles;
+        pollutant = paramPollutant;
+        year = paramYear;
+
+        // the user can switch between equal width and log scaled bins
+        scaleDropDown = new ComboBox<>(FXCollections.observableArrayList("Linear", "Log"));
+        scaleDropDown.setValue("Linear");
+        scaleDropDown.setOnAction(event -> updateHistogram(pollutant, year));
+        HBox filterPane = new HBox(new Label("Scale: "), scaleDropDown);
+        filterPane.setPadding(new Insets(10, 10, 10, 10));
+
+        createChart();
+
+        rootPane = new BorderPane();
+        rootPane.setTop(filterPane);
+        rootPane.setCenter(barChart);
+    }
+
+    public Pane getRootPane() {
+        return rootPane;
+    }
+
+    /**
+     * Creates the initial chart
+     */
+    private void createChart() {
+        CategoryAxis xAxis = new CategoryAxis();
+        xAxis.setLabel("Pollution Level");
+        NumberAxis yAxis = new NumberAxis();
+        yAxis.setLabel("Number of Areas");
+
+        barChart = new BarChart<>(xAxis, yAxis);
+        barChart.setTitle("Spread of Pollution Levels in London");
+        barChart.setLegendVisible(false);
+        barChart.setCategoryGap(1);
+        barChart.setBarGap(0);
+        barChart.setAnimated(false);
+        barChart.getData().add(createDataSeries());
+    }
+
+    /**
+     * Creates a series with a bar for every bin of the histogram, leaving out the empty bins
+     * below the lowest value and above the highest value.
+     */
+    private XYChart.Series<String, Number> createDataSeries() {
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        ValueHistogram histogram = getHistogram();
+
+        int first = 0;
+        int last = histogram.getBinCount() - 1;
+        while (first < last && histogram.getCount(first) == 0) {
+            first++;
+        }
+        while (last > first && histogram.getCount(last) == 0) {
+            last--;
+        }
+        if (histogram.isEmpty()) {
+            return series;
+        }
+        for (int bin = first; bin <= last; bin++) {
+            series.getData().add(new XYChart.Data<>(binLabel(histogram, bin), histogram.getCount(bin)));
+        }
+        return series;
+    }
+
+    /**
+     * Returns the label of a bar, which is the range of pollution levels it counts.
+     */
+    private String binLabel(ValueHistogram histogram, int bin) {
+        String format = histogram.getScale() == ValueHistogram.Scale.LOG ? "%.3g" : "%.0f";
+        return String.format(format + "-" + format, histogram.getLowerBound(bin), histogram.getUpperBound(bin));
+    }
+
+    /**
+     * Gets the histogram of the chosen year, pollutant and scale
+     */
+    public ValueHistogram getHistogram() {
+        ValueHistogram.Scale scale = "Log".equals(scaleDropDown.getValue()) ? ValueHistogram.Scale.LOG : ValueHistogram.Scale.LINEAR;
+        return dataFiles.getHistogram(year, pollutant, "London", scale);
+    }
+
+    /**
+     * Updates the chart when the user selects a different year or pollutant.
+     */
+    public void updateHistogram(String updatePollutant, String updateYear) {
+        pollutant = updatePollutant;
+        year = updateYear;
+
+        barChart.getData().clear();
+        barChart.getData().add(createDataSeries());
+    }
+}
@@ -47,6 +47,9 @@ import javafx.scene.layout.Region;
  */
 public class PollutionPanel
 {
+    // typed coordinates further than this from every grid cell centre (in metres) are not snapped to a cell
+    private static final double MAX_SNAP_DISTANCE = 1000;
+    
     private DataFiles dataFiles;
     private ComboBox<String> yearDropDown;
     private ComboBox<String> pollutantDropDown;
@@ -62,6 +65,7 @@ public class PollutionPanel
     private ObservableList<AveragePollutionTableContents> averageLocationTableContents;
     private Label averageLocationLabel = new Label();
     private PollutionGraph pollutionGraph;
+    private PollutionHistogram pollutionHistogram;
     private ScrollPane mainPane;
 
     private VBox filterPane;
@@ -75,6 +79,7 @@ public class PollutionPanel
     private Label averagePollutionLevel;
     private Label highestPollutionLevels;
     private Label trendsOverTime;
+    private Label spreadOfLevels;
     private HBox averagePollution;
     private VBox averageYearColumn;
     private VBox averageLocationColumn;
@@ -198,6 +203,7 @@ public class PollutionPanel
         actualGridCodeLabel.setText(String.valueOf(chosenGridCode));
         
         pollutionGraph.updateGraph(pollutantDropDown.getValue(),chosenGridCode, dataFiles);
+        pollutionHistogram.updateHistogram(pollutantDropDown.getValue(), yearDropDown.getValue());
     }
     
     /**
@@ -225,6 +231,7 @@ public class PollutionPanel
         actualGridCodeLabel.setText(String.valueOf(chosenGridCode));
         
         pollutionGraph.updateGraph(pollutantDropDown.getValue(),chosenGridCode, dataFiles);
+        pollutionHistogram.updateHistogram(pollutantDropDown.getValue(), yearDropDown.getValue());
     }
     
     /**
@@ -271,19 +278,17 @@ public class PollutionPanel
         if (chosenGridcode.isPresent()){
             String gridcode = chosenGridcode.get().trim();
             if (gridcode.matches(numbersOnly)){
-                List<DataPoint> dataPoints = new LinkedList<>();
-                dataPoints = dataFiles.getFilteredDataPoints(yearDropDown.getValue(), pollutantDropDown.getValue(),"London");
-                boolean found = false;
-                int i = 0;
-                while (!found && i < dataPoints.size()){
-                    int datapointGridcode = dataPoints.get(i).gridCode();
-                    String dpGridcode = String.valueOf(datapointGridcode);
-                    if (dpGridcode.equals(gridcode)){
-                        found = true;
+                try {
+                    int datapointGridcode = Integer.parseInt(gridcode);
+                    // the gridcode is valid if London has a data point for it in the chosen year
+                    DataQuery query = DataQuery.gridCode(datapointGridcode, pollutantDropDown.getValue())
+                                               .inYear(yearDropDown.getValue()).inLocation("London");
+                    if (dataFiles.aggregate(query, Aggregator.count()).getDataPoints() > 0){
                         chosenGridCode = datapointGridcode;
                         updateFilter(null);
                     }
-                    i++;
+                } catch (NumberFormatException e) {
+                    // too many digits to be a gridcode
                 }
             }
         }
@@ -291,7 +296,8 @@ public class PollutionPanel
     
     /**
      * Gets called when the user wants to enter a coordinate for a location in London.
-     * Checks whether the coordinate entered is valid and updates the location if it is.
+     * Checks whether the coordinate entered is valid and updates the location to the
+     * closest grid cell if it is.
      */
     private void coordinatesChoice(){
         Dialog coordinateDialog = coordinateDialog();
@@ -303,21 +309,25 @@ public class PollutionPanel
             String xCoordinate = chosenCoordinates.get().getKey().trim();
             String yCoordinate = chosenCoordinates.get().getValue().trim();
             if (xCoordinate.matches(numbersOnly) && yCoordinate.matches(numbersOnly)){
-                List<DataPoint> dataPoints = new LinkedList<>();
-                dataPoints = dataFiles.getFilteredDataPoints(yearDropDown.getValue(), pollutantDropDown.getValue(),"London");
-                boolean found = false;
-                int i = 0;
-                while (!found && i < dataPoints.size()){
-                    int datapointxValue = dataPoints.get(i).x();
-                    int datapointyValue = dataPoints.get(i).y();
-                    String dpX = String.valueOf(datapointxValue);
-                    String dpY = String.valueOf(datapointyValue);
-                    if (dpX.equals(xCoordinate) && dpY.equals(yCoordinate)){
-                        found = true;
-                        chosenGridCode = dataPoints.get(i).gridCode();
+                try {
+                    int x = Integer.parseInt(xCoordinate);
+                    int y = Integer.parseInt(yCoordinate);
+                    // the cell the coordinates are in, if it has data
+                    DataRaster raster = dataFiles.getRaster(yearDropDown.getValue(), pollutantDropDown.getValue(),"London");
+                    int i = raster == null ? -1 : raster.indexAt(x, y);
+                    ColumnarDataSet columns = raster == null ? null : raster.getPoints();
+                    if (i < 0){
+                        // otherwise snap to the closest grid cell, as long as the coordinates are within a cell's reach of it
+                        SpatialIndex index = dataFiles.getSpatialIndex(yearDropDown.getValue(), pollutantDropDown.getValue(),"London");
+                        i = index.nearestWithin(x, y, MAX_SNAP_DISTANCE);
+                        columns = index.getPoints();
+                    }
+                    if (i >= 0){
+                        chosenGridCode = columns.getGridCode(i);
                         updateFilter(null);
                     }
-                    i++;
+                } catch (NumberFormatException e) {
+                    // too many digits to be a coordinate
                 }
             }
         }
@@ -371,6 +381,11 @@ public class PollutionPanel
         highestPollutionLevels = new Label("\nHighest Pollution Levels:");
         highestPollutionTable();
         
+        // Spread of pollution levels
+        spreadOfLevels = new Label("Spread of pollution levels:");
+        pollutionHistogram = new PollutionHistogram(pollutantDropDown.getValue(), yearDropDown.getValue(), dataFiles);
+        Pane pollutionHistogramPane = pollutionHistogram.getRootPane();
+        
         // Trends over time
         trendsOverTime = new Label("Trends over time:");
         pollutionGraph = new PollutionGraph(pollutantDropDown.getValue(), chosenGridCode, dataFiles);
@@ -379,7 +394,7 @@ public class PollutionPanel
         //Layout
         statisticsPane.setPadding(new Insets(10,10,10,10));
         statisticsPane.setAlignment(Pos.TOP_LEFT);
-        statisticsPane.getChildren().addAll(averagePollutionLevel,averagePollution,highestPollutionLevels,highestPollutionLevelTable,trendsOverTime, pollutionGraphPane);
+        statisticsPane.getChildren().addAll(averagePollutionLevel,averagePollution,highestPollutionLevels,highestPollutionLevelTable,spreadOfLevels,pollutionHistogramPane,trendsOverTime, pollutionGraphPane);
         
         return statisticsPane;
     }
@@ -488,12 +503,26 @@ public class PollutionPanel
         // table contents
         averageYearTable.setItems(averageYearTableContents);
         averageYearTable.getColumns().addAll(pollutionType, pollutionLevel);
+        addPercentileColumns(averageYearTable);
         
         averageYearTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         averageYearTable.setPrefWidth(Region.USE_COMPUTED_SIZE);
         averageYearTable.setPrefHeight(170);
     }
     
+    /**
+     * Adds a column for each percentile shown, which read the p50, p90, p95 and p99 properties of the rows.
+     * @param table the table to add the columns to
+     */
+    private <S> void addPercentileColumns(TableView<S> table){
+        for (String percentile : new String[] {"p50", "p90", "p95", "p99"}){
+            TableColumn<S, Double> percentileColumn = new TableColumn<>(percentile.toUpperCase());
+            percentileColumn.setCellValueFactory(new PropertyValueFactory<>(percentile));
+            percentileColumn.setMinWidth(60);
+            table.getColumns().add(percentileColumn);
+        }
+    }
+    
     /**
      * Creates a table that displays the average pollution based on the chosen location.
      */
@@ -531,15 +560,28 @@ public class PollutionPanel
         
         averageYearTableContents=
         FXCollections.observableArrayList(
-        new AveragePollutionTableContents("NO2", no2Average),
-        new AveragePollutionTableContents("pm2.5", pm25Average),
-        new AveragePollutionTableContents("pm10", pm10Average)
+        averageYearRow("NO2", "no2", no2Average),
+        averageYearRow("pm2.5", "pm2.5", pm25Average),
+        averageYearRow("pm10", "pm10", pm10Average)
         );
         
         updateAveragePollutionLabels();
         return averageYearTableContents;
     }
     
+    /**
+     * Returns a row of the average pollution year table, with the percentiles of the chosen year.
+     * @param name the name of the pollutant shown in the table
+     * @param pollutant the pollutant
+     * @param average the average pollution level
+     * @return the row
+     */
+    private AveragePollutionTableContents averageYearRow(String name, String pollutant, double average){
+        QuantileSketch quantiles = dataFiles.getQuantiles(yearDropDown.getValue(), pollutant, "London");
+        return new AveragePollutionTableContents(name, average, quantiles.percentile(50), quantiles.percentile(90),
+                                                 quantiles.percentile(95), quantiles.percentile(99));
+    }
+    
     /**
      * Returns the updated contents of the average pollution location table.
      * @return an ObservableList with the updated contents of the average pollution location table
@@ -575,18 +617,13 @@ public class PollutionPanel
      * @return the DataPoint with the highest pollution level for the given year and pollutant
      */
     private DataPoint getHighestPollution(String year, String pollutant){
-        List<DataPoint> filteredDataPoints = new ArrayList<>();
-        filteredDataPoints = dataFiles.getFilteredDataPoints(year, pollutant,"London");
-        
-        DataPoint highestPollutionDp = null;
-        double highestPollutionLevel = 0;
-        for (DataPoint dataPoint : filteredDataPoints){
-            if (dataPoint.value() > highestPollutionLevel){
-                highestPollutionDp = dataPoint;
-                highestPollutionLevel = dataPoint.value();
-            }
+        RankIndex ranks = dataFiles.getRankIndex(year, pollutant,"London");
+        
+        // only pollution levels above zero count
+        if (ranks.isEmpty() || ranks.getValue(0) <= 0){
+            return null;
         }
-        return highestPollutionDp;
+        return ranks.getDataPoint(0);
     }
     
     /**
@@ -596,15 +633,7 @@ public class PollutionPanel
      * @return the average pollution level for the given year and pollutant
      */
     private double getAverageYearPollution(String year, String pollutant){
-        List<DataPoint> filteredDataPoints = new ArrayList<>();
-        filteredDataPoints = dataFiles.getFilteredDataPoints(year, pollutant,"London");
-        
-        double totalPollution = 0;
-        for (DataPoint dataPoint : filteredDataPoints){
-            totalPollution = totalPollution + dataPoint.value();
-        }
-        double averagePollution = totalPollution / filteredDataPoints.size();
-        return averagePollution;
+        return dataFiles.getStatistics(year, pollutant,"London").mean();
     }
 
     /**
@@ -614,15 +643,7 @@ public class PollutionPanel
      * @return the average pollution level for the given gridcode and pollutant
      */
     private double getAverageLocationPollution(int gridcode, String pollutant){
-        List<DataPoint> filteredDataPoints = new ArrayList<>();
-        filteredDataPoints = dataFiles.getFilteredLocationDataPoints(gridcode, pollutant);
-        
-        double totalPollution = 0;
-        for (DataPoint dataPoint : filteredDataPoints){
-            totalPollution = totalPollution + dataPoint.value();
-        }
-        double averagePollution = totalPollution / filteredDataPoints.size();
-        return averagePollution;
+        return dataFiles.aggregate(DataQuery.gridCode(gridcode, pollutant), Aggregator.mean()).get(0);
     }
     
     /**
@@ -0,0 +1,145 @@
+
+/**
+ * PollutionStatistics summarises the values of a set of data points: how many there
+ * are, their sum, lowest and highest value, where the highest value is, and the
+ * mean and variance.
+ *
+ * The variance is collected with Welford's method, which stays accurate for long
+ * runs of similar values, and statistics of two sets of data points can be merged
+ * without looking at the data points again.
+ *
+ * @param count the number of data points
+ * @param sum the sum of the values, added up in data point order
+ * @param min the lowest value, or NaN if there are no data points
+ * @param max the highest value, or NaN if there are no data points
+ * @param maxGridCode the gridcode of the first data point with the highest value
+ * @param maxX the x coordinate of the first data point with the highest value
+ * @param maxY the y coordinate of the first data point with the highest value
+ * @param m2 the sum of the squared differences from the mean
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public record PollutionStatistics(long count, double sum, double min, double max,
+                                  int maxGridCode, int maxX, int maxY, double m2)
+{
+    public static final PollutionStatistics EMPTY = new PollutionStatistics(0, 0, Double.NaN, Double.NaN, -1, -1, -1, 0);
+
+    /**
+     * Return true if there are no data points.
+     */
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    /**
+     * Return the mean of the values: the sum divided by the count, so NaN if there
+     * are no data points.
+     */
+    public double mean()
+    {
+        return sum / count;
+    }
+
+    /**
+     * Return the population variance of the values, or NaN if there are no data points.
+     */
+    public double variance()
+    {
+        return count == 0 ? Double.NaN : m2 / count;
+    }
+
+    /**
+     * Return the population standard deviation of the values, or NaN if there are no data points.
+     */
+    public double standardDeviation()
+    {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * Return the first data point with the highest value.
+     *
+     * @return the data point, or null if there are no data points
+     */
+    public DataPoint getMaxDataPoint()
+    {
+        return count == 0 ? null : new DataPoint(maxGridCode, maxX, maxY, max);
+    }
+
+    /**
+     * Combine these statistics with those of the data points that come after them.
+     * If both have the same highest value, the data point of these statistics is kept.
+     *
+     * @param other the statistics of the data points that come after these
+     * @return the statistics of all the data points together
+     */
+    public PollutionStatistics merge(PollutionStatistics other)
+    {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        long mergedCount = count + other.count;
+        double delta = other.mean() - mean();
+        double mergedM2 = m2 + other.m2 + delta * delta * ((double) count * other.count / mergedCount);
+        boolean otherHigher = other.max > max;
+        return new PollutionStatistics(mergedCount, sum + other.sum, Math.min(min, other.min),
+                                       otherHigher ? other.max : max,
+                                       otherHigher ? other.maxGridCode : maxGridCode,
+                                       otherHigher ? other.maxX : maxX,
+                                       otherHigher ? other.maxY : maxY,
+                                       mergedM2);
+    }
+
+    /**
+     * A Builder collects statistics one data point at a time.
+     */
+    public static class Builder
+    {
+        private long count;
+        private double sum;
+        private double min = Double.NaN;
+        private double max = Double.NaN;
+        private int maxGridCode = -1;
+        private int maxX = -1;
+        private int maxY = -1;
+        private double mean;
+        private double m2;
+
+        /**
+         * Add one data point.
+         */
+        public void add(int gridCode, int x, int y, double value)
+        {
+            count++;
+            sum += value;
+            if (count == 1 || value < min) {
+                min = value;
+            }
+            if (count == 1 || value > max) {
+                max = value;
+                maxGridCode = gridCode;
+                maxX = x;
+                maxY = y;
+            }
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        /**
+         * Return the statistics of the data points added so far.
+         */
+        public PollutionStatistics build()
+        {
+            if (count == 0) {
+                return EMPTY;
+            }
+            return new PollutionStatistics(count, sum, min, max, maxGridCode, maxX, maxY, m2);
+        }
+    }
+}
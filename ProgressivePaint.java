@@ -0,0 +1,132 @@
+import java.util.function.IntConsumer;
+import javafx.animation.AnimationTimer;
+
+/**
+ * A ProgressivePaint paints a lot of marks a few at a time, one batch per frame,
+ * so the JavaFX application thread is never busy painting for longer than a frame
+ * budget and the window keeps responding while the marks appear.
+ *
+ * The marks are painted in the order of their indexes, so giving them highest
+ * value first makes the most important marks appear first. A paint that is no
+ * longer wanted, because the user asked for another one, can be cancelled.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class ProgressivePaint
+{
+    // half of a 60 Hz frame, leaving the rest for layout and rendering
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 8_000_000;
+    // the marks painted between looks at the clock
+    private static final int BATCH_SIZE = 64;
+
+    private final int markCount;
+    private final IntConsumer painter;
+    private final long frameBudgetNanos;
+    private AnimationTimer timer;
+    private int painted;
+    private int frames;
+    private boolean cancelled;
+    private boolean done;
+
+    /**
+     * Create a paint of the given number of marks.
+     *
+     * @param markCount the number of marks
+     * @param painter paints the mark with the given index, from 0 up to markCount
+     * @param frameBudgetNanos how long painting may take in one frame, in nanoseconds
+     */
+    public ProgressivePaint(int markCount, IntConsumer painter, long frameBudgetNanos)
+    {
+        if (frameBudgetNanos <= 0) {
+            throw new IllegalArgumentException("The frame budget must be positive");
+        }
+        this.markCount = markCount;
+        this.painter = painter;
+        this.frameBudgetNanos = frameBudgetNanos;
+    }
+
+    /**
+     * Start painting, one batch at every frame, from the JavaFX application thread.
+     */
+    public void start()
+    {
+        if (timer != null || cancelled) {
+            return;
+        }
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now)
+            {
+                if (!paintFrame()) {
+                    stop();
+                }
+            }
+        };
+        timer.start();
+    }
+
+    /**
+     * Paint the marks of one frame: batches of marks until the frame budget is used
+     * up or all the marks are painted. At least one batch is painted every frame.
+     *
+     * @return true if there are marks left to paint
+     */
+    public boolean paintFrame()
+    {
+        if (cancelled || done) {
+            return false;
+        }
+        frames++;
+        long deadline = System.nanoTime() + frameBudgetNanos;
+        do {
+            int end = Math.min(markCount, painted + BATCH_SIZE);
+            while (painted < end) {
+                painter.accept(painted++);
+            }
+        } while (painted < markCount && System.nanoTime() < deadline);
+
+        done = isFinished();
+        return !done;
+    }
+
+    /**
+     * Stop painting. The marks painted so far stay, and no more are painted.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Return true if all the marks have been painted.
+     */
+    public boolean isFinished()
+    {
+        return painted >= markCount;
+    }
+
+    /**
+     * Return the number of marks painted so far.
+     */
+    public int getPainted()
+    {
+        return painted;
+    }
+
+    /**
+     * Return the number of frames that painted marks.
+     */
+    public int getFrames()
+    {
+        return frames;
+    }
+}
@@ -0,0 +1,103 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for ProgressivePaint.
+ * This class calls paintFrame directly, the way the animation timer does once a
+ * frame, so it needs no running JavaFX toolkit. It verifies that the marks are
+ * painted in order, that every frame paints something however small the budget,
+ * and that a cancelled paint stops.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class ProgressivePaintTest
+{
+    /**
+     * Default constructor for test class ProgressivePaintTest
+     */
+    public ProgressivePaintTest()
+    {
+    }
+
+    /**
+     * Tests that all the marks are painted once, in order, over one or more frames.
+     */
+    @Test
+    public void testPaintsAllInOrder()
+    {
+        List<Integer> painted = new ArrayList<>();
+        ProgressivePaint paint = new ProgressivePaint(1000, painted::add, ProgressivePaint.DEFAULT_FRAME_BUDGET_NANOS);
+        while (paint.paintFrame()) {
+            // one call per frame
+        }
+        assertTrue(paint.isFinished());
+        assertEquals(1000, painted.size());
+        for (int i = 0; i < painted.size(); i++) {
+            assertEquals(i, painted.get(i));
+        }
+        assertEquals(1000, paint.getPainted());
+        assertFalse(paint.paintFrame());
+    }
+
+    /**
+     * Tests that a frame paints at least one batch even when the budget is used up
+     * by the first mark, so a slow painter still makes progress.
+     */
+    @Test
+    public void testAtLeastOneBatchPerFrame()
+    {
+        ProgressivePaint paint = new ProgressivePaint(200, index -> takeTime(), 1);
+        assertTrue(paint.paintFrame());
+        int firstFrame = paint.getPainted();
+        assertTrue(firstFrame > 1, "a whole batch is painted before the clock is checked");
+        assertTrue(firstFrame < 200);
+        assertTrue(paint.paintFrame());
+        assertEquals(2 * firstFrame, paint.getPainted());
+        assertEquals(2, paint.getFrames());
+    }
+
+    /**
+     * Tests that a paint cancelled half way paints no more marks.
+     */
+    @Test
+    public void testCancelMidPaint()
+    {
+        ProgressivePaint paint = new ProgressivePaint(200, index -> takeTime(), 1);
+        paint.paintFrame();
+        int painted = paint.getPainted();
+        paint.cancel();
+        assertTrue(paint.isCancelled());
+        assertFalse(paint.paintFrame());
+        assertEquals(painted, paint.getPainted());
+        assertFalse(paint.isFinished());
+        assertEquals(1, paint.getFrames());
+    }
+
+    /**
+     * Tests that a paint of no marks is finished straight away, and that the frame
+     * budget must be positive.
+     */
+    @Test
+    public void testNoMarks()
+    {
+        ProgressivePaint paint = new ProgressivePaint(0, index -> fail("nothing to paint"), 1000);
+        assertTrue(paint.isFinished());
+        assertThrows(IllegalArgumentException.class, () -> new ProgressivePaint(10, index -> {}, 0));
+    }
+
+    /**
+     * Take a little time, like painting a mark on a slow screen.
+     */
+    private static void takeTime()
+    {
+        long end = System.nanoTime() + 10_000;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
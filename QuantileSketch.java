@@ -0,0 +1,370 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A QuantileSketch answers percentile questions, such as the median or the value
+ * 95% of the data points are below, without keeping all the values.
+ *
+ * This is a KLL sketch. Values are kept in levels: a value on level h stands for
+ * 2^h of the original values. When a level gets full it is sorted and every other
+ * value moves up a level, starting at the first or second value at random, so the
+ * sketch never holds much more than 3k values however many are added. Levels
+ * further down hold fewer values, as they count for less. With the default k of
+ * 200 the rank of an answer is usually within 2% of the count, and data sets with
+ * fewer than 200 values are answered exactly.
+ *
+ * Sketches cannot be changed once built. Two sketches can be merged into one for
+ * all their values together, for example to combine cities or years. The random
+ * choices use a fixed seed, so the same values always give the same answers.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class QuantileSketch
+{
+    public static final int DEFAULT_K = 200;
+    public static final QuantileSketch EMPTY = new Builder().build();
+
+    // the smallest a level is ever allowed to be
+    private static final int MIN_CAPACITY = 8;
+    private static final long SEED = 0x5EEDL;
+
+    private final int k;
+    private final long count;
+    private final double min;
+    private final double max;
+    // the levels, kept for merging
+    private final double[][] levels;
+    // all kept values sorted, each with the number of original values it stands for
+    // added up; worked out the first time a quantile is asked for
+    private double[] sortedValues;
+    private long[] cumulativeWeights;
+
+    /**
+     * Constructor for sketches built by a Builder or by merging.
+     */
+    private QuantileSketch(int k, long count, double min, double max, double[][] levels)
+    {
+        this.k = k;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.levels = levels;
+    }
+
+    /**
+     * Merge the sorted levels into one sorted list of values, unless that was done already.
+     */
+    private synchronized void sort()
+    {
+        if (sortedValues != null) {
+            return;
+        }
+        // merge the sorted levels into one list of values, adding up their weights
+        int kept = 0;
+        double[][] sortedLevels = new double[levels.length][];
+        for (int h = 0; h < levels.length; h++) {
+            sortedLevels[h] = levels[h].clone();
+            Arrays.sort(sortedLevels[h]);
+            kept += levels[h].length;
+        }
+        double[] values = new double[kept];
+        long[] weights = new long[kept];
+        int[] next = new int[levels.length];
+        long total = 0;
+        for (int i = 0; i < kept; i++) {
+            int lowest = -1;
+            for (int h = 0; h < levels.length; h++) {
+                if (next[h] < sortedLevels[h].length
+                        && (lowest < 0 || sortedLevels[h][next[h]] < sortedLevels[lowest][next[lowest]])) {
+                    lowest = h;
+                }
+            }
+            values[i] = sortedLevels[lowest][next[lowest]++];
+            total += 1L << lowest;
+            weights[i] = total;
+        }
+        cumulativeWeights = weights;
+        sortedValues = values;
+    }
+
+    /**
+     * Return the number of values the sketch was built from.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Return true if the sketch was built from no values.
+     */
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    /**
+     * Return the lowest value, or NaN if there are no values.
+     */
+    public double getMin()
+    {
+        return min;
+    }
+
+    /**
+     * Return the highest value, or NaN if there are no values.
+     */
+    public double getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Return roughly the value that the given fraction of the values are at or below.
+     *
+     * @param fraction a number from 0 to 1, such as 0.5 for the median or 0.95 for the 95th percentile
+     * @return the value, or NaN if there are no values
+     * @throws IllegalArgumentException if the fraction is not between 0 and 1
+     */
+    public double quantile(double fraction)
+    {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("The fraction must be between 0 and 1");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction == 0) {
+            return min;
+        }
+        if (fraction == 1) {
+            return max;
+        }
+        sort();
+        // the first value whose weight brings the total to at least the wanted rank
+        long rank = (long) Math.ceil(fraction * count);
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] < rank) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return sortedValues[low];
+    }
+
+    /**
+     * Return roughly the given percentile of the values.
+     *
+     * @param percentile a number from 0 to 100, such as 95 for the 95th percentile
+     * @return the value, or NaN if there are no values
+     */
+    public double percentile(double percentile)
+    {
+        return quantile(percentile / 100);
+    }
+
+    /**
+     * Combine this sketch with another one.
+     *
+     * @return a sketch of the values of both sketches together
+     */
+    public QuantileSketch merge(QuantileSketch other)
+    {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        Builder builder = new Builder(Math.min(k, other.k));
+        builder.addLevels(levels);
+        builder.addLevels(other.levels);
+        builder.count = count + other.count;
+        builder.min = Math.min(min, other.min);
+        builder.max = Math.max(max, other.max);
+        builder.compress();
+        return builder.build();
+    }
+
+    /**
+     * Return the number of values the sketch keeps, which is at most about 3k.
+     */
+    public int getRetainedValues()
+    {
+        int kept = 0;
+        for (double[] level : levels) {
+            kept += level.length;
+        }
+        return kept;
+    }
+
+    /**
+     * Return roughly how many bytes of heap the sketch uses, counting the sorted
+     * copy of its values that is made for the first quantile asked for.
+     */
+    public long estimateBytes()
+    {
+        return (long) getRetainedValues() * (2 * Double.BYTES + Long.BYTES) + (levels.length + 2) * 16;
+    }
+
+    /**
+     * A Builder collects values one at a time and builds a sketch of them.
+     */
+    public static class Builder
+    {
+        private final int k;
+        private final Random random;
+        private double[][] levels;
+        private int[] sizes;
+        private long count;
+        private double min = Double.NaN;
+        private double max = Double.NaN;
+
+        /**
+         * Create a builder with the default accuracy.
+         */
+        public Builder()
+        {
+            this(DEFAULT_K);
+        }
+
+        /**
+         * Create a builder.
+         *
+         * @param k how many values the biggest level holds; higher is more accurate but uses more memory
+         */
+        public Builder(int k)
+        {
+            if (k < MIN_CAPACITY) {
+                throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY);
+            }
+            this.k = k;
+            random = new Random(SEED);
+            levels = new double[][] {new double[k]};
+            sizes = new int[1];
+        }
+
+        /**
+         * Add one value.
+         */
+        public void add(double value)
+        {
+            if (count == 0 || value < min) {
+                min = value;
+            }
+            if (count == 0 || value > max) {
+                max = value;
+            }
+            count++;
+            append(0, value);
+            if (sizes[0] >= capacity(0)) {
+                compress();
+            }
+        }
+
+        /**
+         * Return a sketch of the values added so far.
+         */
+        public QuantileSketch build()
+        {
+            double[][] kept = new double[levels.length][];
+            for (int h = 0; h < levels.length; h++) {
+                kept[h] = Arrays.copyOf(levels[h], sizes[h]);
+            }
+            return new QuantileSketch(k, count, min, max, kept);
+        }
+
+        /**
+         * Add the values of the levels of another sketch to the same levels here.
+         */
+        private void addLevels(double[][] otherLevels)
+        {
+            for (int h = 0; h < otherLevels.length; h++) {
+                for (double value : otherLevels[h]) {
+                    append(h, value);
+                }
+            }
+        }
+
+        /**
+         * Compact levels, lowest first, until every level is within its capacity.
+         */
+        private void compress()
+        {
+            boolean compacted = true;
+            while (compacted) {
+                compacted = false;
+                for (int h = 0; h < levels.length && !compacted; h++) {
+                    if (sizes[h] >= capacity(h)) {
+                        compact(h);
+                        compacted = true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sort a level and move every other value up to the next level. If the
+         * level holds an odd number of values, the highest one stays behind.
+         */
+        private void compact(int h)
+        {
+            if (h + 1 == levels.length) {
+                addLevel();
+            }
+            double[] level = levels[h];
+            int size = sizes[h];
+            Arrays.sort(level, 0, size);
+            int pairs = size / 2;
+            int offset = random.nextBoolean() ? 1 : 0;
+            for (int i = 0; i < pairs; i++) {
+                append(h + 1, level[2 * i + offset]);
+            }
+            if (size % 2 == 1) {
+                level[0] = level[size - 1];
+                sizes[h] = 1;
+            } else {
+                sizes[h] = 0;
+            }
+        }
+
+        /**
+         * Add a value to a level, adding levels and growing arrays when needed.
+         */
+        private void append(int h, double value)
+        {
+            while (h >= levels.length) {
+                addLevel();
+            }
+            if (sizes[h] == levels[h].length) {
+                levels[h] = Arrays.copyOf(levels[h], Math.max(MIN_CAPACITY, levels[h].length * 2));
+            }
+            levels[h][sizes[h]++] = value;
+        }
+
+        /**
+         * Add an empty level at the top.
+         */
+        private void addLevel()
+        {
+            levels = Arrays.copyOf(levels, levels.length + 1);
+            levels[levels.length - 1] = new double[MIN_CAPACITY];
+            sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        }
+
+        /**
+         * Return how many values a level may hold: k for the top level, two thirds
+         * of that for the one below, and so on.
+         */
+        private int capacity(int h)
+        {
+            int depth = levels.length - 1 - h;
+            return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test class for QuantileSketch.
+ * This class verifies that small data sets are answered exactly, that the rank of
+ * an answer stays within the error bound for a large data set, and that a merged
+ * sketch answers like one built from all the values together.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class QuantileSketchTest
+{
+    // the rank of an answer is usually within 2% of the count; allow a little more
+    private static final double RANK_ERROR = 0.03;
+
+    /**
+     * Default constructor for test class QuantileSketchTest
+     */
+    public QuantileSketchTest()
+    {
+    }
+
+    private static double[] randomValues(int count, long seed)
+    {
+        Random random = new Random(seed);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextDouble() * 100;
+        }
+        return values;
+    }
+
+    private static QuantileSketch sketch(double[] values)
+    {
+        QuantileSketch.Builder builder = new QuantileSketch.Builder();
+        for (double value : values) {
+            builder.add(value);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Assert that the answer for each fraction is a value whose rank among the
+     * sorted values is within the error bound of the wanted rank.
+     */
+    private static void assertRanks(QuantileSketch sketch, double[] sorted)
+    {
+        for (double fraction : new double[] {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99}) {
+            double answer = sketch.quantile(fraction);
+            int rank = Arrays.binarySearch(sorted, answer);
+            assertTrue(rank >= 0, "the answer is one of the values");
+            double error = Math.abs((rank + 1) - fraction * sorted.length) / sorted.length;
+            assertTrue(error <= RANK_ERROR, "rank error " + error + " at " + fraction);
+        }
+    }
+
+    /**
+     * Tests that a sketch of fewer values than k answers exactly.
+     */
+    @Test
+    public void testExactForSmallDataSets()
+    {
+        double[] values = {5, 1, 4, 2, 3};
+        QuantileSketch sketch = sketch(values);
+        assertEquals(5, sketch.getCount());
+        assertEquals(1.0, sketch.getMin());
+        assertEquals(5.0, sketch.getMax());
+        assertEquals(3.0, sketch.quantile(0.5));
+        assertEquals(1.0, sketch.quantile(0.2));
+        assertEquals(2.0, sketch.quantile(0.21));
+        assertEquals(5.0, sketch.percentile(100));
+        assertEquals(5, sketch.getRetainedValues());
+    }
+
+    /**
+     * Tests that the rank of every answer for a large data set is within the error
+     * bound, while the sketch keeps only a few of the values.
+     */
+    @Test
+    public void testRankErrorBound()
+    {
+        double[] values = randomValues(100_000, 1);
+        QuantileSketch sketch = sketch(values);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        assertEquals(100_000, sketch.getCount());
+        assertEquals(sorted[0], sketch.getMin());
+        assertEquals(sorted[sorted.length - 1], sketch.getMax());
+        assertTrue(sketch.getRetainedValues() < 4 * QuantileSketch.DEFAULT_K);
+        assertRanks(sketch, sorted);
+    }
+
+    /**
+     * Tests that merging two sketches gives the count, lowest and highest values of
+     * both, and answers within the error bound for all the values together.
+     */
+    @Test
+    public void testMerge()
+    {
+        double[] first = randomValues(30_000, 2);
+        double[] second = randomValues(50_000, 3);
+        for (int i = 0; i < second.length; i++) {
+            second[i] += 50;
+        }
+        QuantileSketch merged = sketch(first).merge(sketch(second));
+
+        double[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        Arrays.sort(all);
+
+        assertEquals(80_000, merged.getCount());
+        assertEquals(all[0], merged.getMin());
+        assertEquals(all[all.length - 1], merged.getMax());
+        assertTrue(merged.getRetainedValues() < 4 * QuantileSketch.DEFAULT_K);
+        assertRanks(merged, all);
+    }
+
+    /**
+     * Tests that merging with an empty sketch keeps the other one, and that an empty
+     * sketch has no answers.
+     */
+    @Test
+    public void testEmpty()
+    {
+        QuantileSketch sketch = sketch(new double[] {1, 2, 3});
+        assertSame(sketch, sketch.merge(QuantileSketch.EMPTY));
+        assertSame(sketch, QuantileSketch.EMPTY.merge(sketch));
+        assertTrue(QuantileSketch.EMPTY.isEmpty());
+        assertTrue(Double.isNaN(QuantileSketch.EMPTY.quantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch.Builder(2));
+    }
+}
@@ -0,0 +1,167 @@
+
+/**
+ * A RankIndex holds the data points of a dataset in order of their value, highest
+ * first, so the most polluted areas can be found without sorting or scanning.
+ *
+ * The order is stored as one int array of positions in the dataset. The N highest
+ * data points are simply the first N positions, and how a value ranks against the
+ * rest is found with a binary search. Data points with the same value keep the
+ * order they have in the dataset.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class RankIndex
+{
+    private final ColumnarDataSet points;
+    // order[rank] is the position in points of the data point with that rank
+    private final int[] order;
+
+    /**
+     * Build the index over the data points of a dataset.
+     */
+    public RankIndex(ColumnarDataSet points)
+    {
+        this.points = points;
+        order = new int[points.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        sort(order, new int[order.length], 0, order.length);
+    }
+
+    /**
+     * Return the number of data points.
+     */
+    public int size()
+    {
+        return order.length;
+    }
+
+    /**
+     * Return true if there are no data points.
+     */
+    public boolean isEmpty()
+    {
+        return order.length == 0;
+    }
+
+    /**
+     * Return the position in getPoints() of the data point with a given rank,
+     * where rank 0 is the highest value.
+     */
+    public int indexAt(int rank)
+    {
+        return order[rank];
+    }
+
+    /**
+     * Return the value of the data point with a given rank, where rank 0 is the highest value.
+     */
+    public double getValue(int rank)
+    {
+        return points.getValue(order[rank]);
+    }
+
+    /**
+     * Return the data point with a given rank, where rank 0 is the highest value.
+     */
+    public DataPoint getDataPoint(int rank)
+    {
+        return points.getDataPoint(order[rank]);
+    }
+
+    /**
+     * Return the data points with the highest values, highest first.
+     *
+     * @param n how many data points to return; fewer are returned if there are not that many
+     * @return the data points as primitive columns
+     */
+    public ColumnarDataSet top(int n)
+    {
+        int count = Math.max(0, Math.min(n, order.length));
+        ColumnarDataSet.Builder top = new ColumnarDataSet.Builder(count);
+        for (int rank = 0; rank < count; rank++) {
+            top.add(points, order[rank]);
+        }
+        return top.build();
+    }
+
+    /**
+     * Return how many data points have a higher value than the given one.
+     */
+    public int countAbove(double value)
+    {
+        // the values go down with the rank, so find the first rank that is not higher
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(getValue(middle), value) > 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Return the percentile rank of a value: the percentage of data points that
+     * have the same or a lower value.
+     *
+     * @return a percentage from 0 to 100, or NaN if there are no data points
+     */
+    public double percentileRank(double value)
+    {
+        if (order.length == 0) {
+            return Double.NaN;
+        }
+        return 100.0 * (order.length - countAbove(value)) / order.length;
+    }
+
+    /**
+     * Return the data points this index was built over.
+     */
+    public ColumnarDataSet getPoints()
+    {
+        return points;
+    }
+
+    /**
+     * Return roughly how many bytes of heap the index uses, not counting its points.
+     */
+    public long estimateBytes()
+    {
+        return (long) order.length * Integer.BYTES + 16;
+    }
+
+    /**
+     * Merge sort the positions from start up to end by value, highest first. The
+     * sort is stable, so data points with the same value stay in dataset order.
+     */
+    private void sort(int[] positions, int[] buffer, int start, int end)
+    {
+        if (end - start < 2) {
+            return;
+        }
+        int middle = (start + end) >>> 1;
+        sort(positions, buffer, start, middle);
+        sort(positions, buffer, middle, end);
+        if (Double.compare(points.getValue(positions[middle - 1]), points.getValue(positions[middle])) >= 0) {
+            // already in order
+            return;
+        }
+        System.arraycopy(positions, start, buffer, start, end - start);
+        int left = start;
+        int right = middle;
+        for (int i = start; i < end; i++) {
+            if (right >= end || (left < middle
+                    && Double.compare(points.getValue(buffer[left]), points.getValue(buffer[right])) >= 0)) {
+                positions[i] = buffer[left++];
+            } else {
+                positions[i] = buffer[right++];
+            }
+        }
+    }
+}
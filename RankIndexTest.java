@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for RankIndex.
+ * This class verifies that data points are ranked highest first, that data points
+ * with the same value keep their dataset order, and how values rank against them.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class RankIndexTest
+{
+    private RankIndex index;
+
+    /**
+     * Default constructor for test class RankIndexTest
+     */
+    public RankIndexTest()
+    {
+    }
+
+    /**
+     * Creates an index over values with ties.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp()
+    {
+        double[] values = {4, 9, 4, 1, 9, 4};
+        ColumnarDataSet.Builder builder = new ColumnarDataSet.Builder();
+        for (int i = 0; i < values.length; i++) {
+            builder.add(100 + i, 530000 + i, 180000, values[i]);
+        }
+        index = new RankIndex(builder.build());
+    }
+
+    /**
+     * Tests that the data points are ranked highest first, and ties stay in dataset order.
+     */
+    @Test
+    public void testOrderWithTies()
+    {
+        int[] expected = {1, 4, 0, 2, 5, 3};
+        assertEquals(expected.length, index.size());
+        for (int rank = 0; rank < expected.length; rank++) {
+            assertEquals(expected[rank], index.indexAt(rank), "rank " + rank);
+        }
+        assertEquals(9.0, index.getValue(0));
+        assertEquals(101, index.getDataPoint(0).gridCode());
+        assertEquals(1.0, index.getValue(5));
+    }
+
+    /**
+     * Tests that the top data points are the first ranks, and that asking for more
+     * than there are returns them all.
+     */
+    @Test
+    public void testTop()
+    {
+        ColumnarDataSet top = index.top(3);
+        assertEquals(3, top.size());
+        assertEquals(101, top.getGridCode(0));
+        assertEquals(104, top.getGridCode(1));
+        assertEquals(100, top.getGridCode(2));
+        assertEquals(6, index.top(100).size());
+        assertTrue(index.top(0).isEmpty());
+    }
+
+    /**
+     * Tests how many data points are above a value, and its percentile rank.
+     */
+    @Test
+    public void testCountAboveAndPercentileRank()
+    {
+        assertEquals(0, index.countAbove(9));
+        assertEquals(2, index.countAbove(4));
+        assertEquals(5, index.countAbove(1));
+        assertEquals(6, index.countAbove(0));
+        assertEquals(100.0, index.percentileRank(9));
+        assertEquals(100.0 * 4 / 6, index.percentileRank(4), 1e-9);
+        assertEquals(0.0, index.percentileRank(0.5));
+        assertTrue(Double.isNaN(new RankIndex(ColumnarDataSet.EMPTY).percentileRank(1)));
+    }
+}
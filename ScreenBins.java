@@ -0,0 +1,140 @@
+/**
+ * ScreenBins sums up the marks of a zoomed out map into square bins of screen
+ * pixels, so that the number of shapes drawn depends on the size of the screen
+ * and not on the number of data points.
+ *
+ * Each mark is counted in the bin its centre falls in, and a bin shows either the
+ * mean or the highest value of its marks. Marks outside the screen are left out.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class ScreenBins
+{
+    /**
+     * How the values of the marks in a bin are turned into the value of the bin.
+     */
+    public enum Reduction
+    {
+        MEAN("Mean"),
+        MAX("Highest");
+
+        private final String displayName;
+
+        Reduction(String displayName)
+        {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString()
+        {
+            return displayName;
+        }
+    }
+
+    private final double width;
+    private final double height;
+    private final double binSize;
+    private final int columns;
+    private final int rows;
+    private final Reduction reduction;
+    // the sum or the highest value of each bin, row by row
+    private final double[] values;
+    private final int[] counts;
+    private int filledBins;
+
+    /**
+     * Create empty bins covering a screen.
+     *
+     * @param width the width of the screen, in pixels
+     * @param height the height of the screen, in pixels
+     * @param binSize the width and height of a bin, in pixels
+     * @param reduction how the values in a bin are summed up
+     */
+    public ScreenBins(double width, double height, double binSize, Reduction reduction)
+    {
+        if (!(binSize > 0)) {
+            throw new IllegalArgumentException("The bin size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.binSize = binSize;
+        this.reduction = reduction;
+        columns = Math.max(0, (int) Math.ceil(width / binSize));
+        rows = Math.max(0, (int) Math.ceil(height / binSize));
+        values = new double[columns * rows];
+        counts = new int[columns * rows];
+    }
+
+    /**
+     * Count a mark in the bin its centre falls in. Marks outside the screen and
+     * NaN values are not counted.
+     *
+     * @param x the x of the centre of the mark on the screen
+     * @param y the y of the centre of the mark on the screen
+     * @param value the value of the mark
+     */
+    public void add(double x, double y, double value)
+    {
+        if (Double.isNaN(value) || !(x >= 0 && x < width && y >= 0 && y < height)) {
+            return;
+        }
+        int bin = (int) (y / binSize) * columns + (int) (x / binSize);
+        if (counts[bin] == 0) {
+            values[bin] = value;
+            filledBins++;
+        } else if (reduction == Reduction.MEAN) {
+            values[bin] += value;
+        } else {
+            values[bin] = Math.max(values[bin], value);
+        }
+        counts[bin]++;
+    }
+
+    public double getBinSize()
+    {
+        return binSize;
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * Return the number of bins with at least one mark, which is the number of
+     * shapes needed to draw them.
+     */
+    public int getFilledBins()
+    {
+        return filledBins;
+    }
+
+    /**
+     * Return how many marks are counted in a bin.
+     */
+    public int getCount(int column, int row)
+    {
+        return counts[row * columns + column];
+    }
+
+    /**
+     * Return the mean or highest value of the marks in a bin.
+     *
+     * @return the value, or NaN if the bin is empty
+     */
+    public double getValue(int column, int row)
+    {
+        int bin = row * columns + column;
+        if (counts[bin] == 0) {
+            return Double.NaN;
+        }
+        return reduction == Reduction.MEAN ? values[bin] / counts[bin] : values[bin];
+    }
+}
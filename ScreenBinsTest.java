@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for ScreenBins.
+ * This class verifies that marks are counted in the bin their centre falls in,
+ * that a bin shows the mean or highest value of its marks, and that marks off the
+ * screen are left out.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class ScreenBinsTest
+{
+    /**
+     * Default constructor for test class ScreenBinsTest
+     */
+    public ScreenBinsTest()
+    {
+    }
+
+    private static ScreenBins bins(ScreenBins.Reduction reduction)
+    {
+        ScreenBins bins = new ScreenBins(100, 50, 20, reduction);
+        bins.add(5, 5, 2);
+        bins.add(15, 19.9, 6);
+        bins.add(10, 10, 4);
+        bins.add(95, 45, 8);
+        return bins;
+    }
+
+    /**
+     * Tests that a bin covering part of the screen edge is still made, and that the
+     * marks are counted in the right bins.
+     */
+    @Test
+    public void testBins()
+    {
+        ScreenBins bins = bins(ScreenBins.Reduction.MEAN);
+        assertEquals(5, bins.getColumns());
+        assertEquals(3, bins.getRows());
+        assertEquals(20, bins.getBinSize());
+        assertEquals(2, bins.getFilledBins());
+        assertEquals(3, bins.getCount(0, 0));
+        assertEquals(1, bins.getCount(4, 2));
+        assertEquals(0, bins.getCount(1, 0));
+        assertTrue(Double.isNaN(bins.getValue(1, 0)));
+    }
+
+    /**
+     * Tests that the mean shows the average of the marks in a bin and the highest
+     * reduction shows the highest one.
+     */
+    @Test
+    public void testMeanAndMax()
+    {
+        ScreenBins mean = bins(ScreenBins.Reduction.MEAN);
+        ScreenBins max = bins(ScreenBins.Reduction.MAX);
+        assertEquals(4.0, mean.getValue(0, 0), 1e-9);
+        assertEquals(6.0, max.getValue(0, 0));
+        assertEquals(8.0, mean.getValue(4, 2));
+        assertEquals(8.0, max.getValue(4, 2));
+    }
+
+    /**
+     * Tests that marks off the screen, including just past its right and bottom
+     * edges inside the last bins, and NaN values are not counted.
+     */
+    @Test
+    public void testOffScreenMarks()
+    {
+        ScreenBins bins = new ScreenBins(90, 50, 20, ScreenBins.Reduction.MAX);
+        bins.add(-1, 10, 1);
+        bins.add(10, -0.5, 1);
+        bins.add(90, 10, 1);
+        bins.add(95, 10, 1);
+        bins.add(10, 50, 1);
+        bins.add(10, 10, Double.NaN);
+        assertEquals(0, bins.getFilledBins());
+
+        bins.add(89.9, 49.9, 3);
+        assertEquals(1, bins.getFilledBins());
+        assertEquals(1, bins.getCount(4, 2));
+    }
+
+    /**
+     * Tests that bins must have a size.
+     */
+    @Test
+    public void testBinSize()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new ScreenBins(100, 100, 0, ScreenBins.Reduction.MEAN));
+        assertThrows(IllegalArgumentException.class, () -> new ScreenBins(100, 100, Double.NaN, ScreenBins.Reduction.MEAN));
+    }
+}
@@ -1,8 +1,8 @@
 import java.util.List;
-import java.util.ArrayList;
 
 /**
  * The Simple Data Set is a simplified version of the Data Set containing only the information the rest of the classes will use.
+ * Like the Data Set, the data points are stored in primitive columns.
  * 
  * @author Michael Kölling
  * @version 1.0
@@ -11,7 +11,9 @@ public class SimpleDataSet
 {
     private String pollutant;
     private String year;
-    private List<DataPoint> data;
+    private String metric;
+    private ColumnarDataSet.Builder data;
+    private ColumnarDataSet columns;
 
     /**
      * Constructor for objects of class DataSet
@@ -20,8 +22,22 @@ public class SimpleDataSet
     {
         this.pollutant = pollutant;
         this.year = year;
+        this.metric = "";
         
-        data = new ArrayList<DataPoint>();
+        data = new ColumnarDataSet.Builder();
+    }
+    
+    /**
+     * Constructor for objects of class DataSet, holding existing columns
+     */
+    public SimpleDataSet(String pollutant, String year, String metric, ColumnarDataSet columns)
+    {
+        this.pollutant = pollutant;
+        this.year = year;
+        this.metric = metric;
+        
+        data = new ColumnarDataSet.Builder(columns);
+        this.columns = columns;
     }
 
     /**
@@ -41,14 +57,38 @@ public class SimpleDataSet
     }
     
     /**
-     * Return the data points of this dataset.
+     * Return the metric information for this dataset, or an empty String if it is not known.
+     */
+    public String getMetric()
+    {
+        return metric;
+    }
+    
+    /**
+     * Return the data points of this dataset as a read only list.
      */
     public List<DataPoint> getData()
     {
-        return data;
+        return getColumns().getData();
+    }
+    
+    /**
+     * Return the data points of this dataset as primitive columns.
+     */
+    public ColumnarDataSet getColumns()
+    {
+        if (columns == null) {
+            columns = data.build();
+        }
+        return columns;
     }
     
     public void addData(DataPoint dataPoint){
-        data.add(dataPoint);
+        addData(dataPoint.gridCode(), dataPoint.x(), dataPoint.y(), dataPoint.value());
+    }
+    
+    public void addData(int gridCode, int x, int y, double value){
+        data.add(gridCode, x, y, value);
+        columns = null;
     }
 }
@@ -0,0 +1,274 @@
+import java.util.Arrays;
+
+/**
+ * A SpatialIndex finds the data points of a dataset by their coordinates without
+ * looking at every point.
+ *
+ * The area covered by the points is divided into square buckets of a fixed size,
+ * and the indexes of the points in each bucket are stored next to each other in
+ * one array. A bounding box query only looks at the buckets that overlap the box,
+ * and a nearest neighbour query looks at rings of buckets around the query point,
+ * moving outwards until no closer point can be found.
+ *
+ * The index refers to the points by their position in the dataset, so the
+ * dataset's own accessors give the gridcode, coordinates and value of a result.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class SpatialIndex
+{
+    // two by two grid cells of the 1 km DEFRA grid per bucket
+    private static final int DEFAULT_BUCKET_SIZE = 2000;
+
+    private final ColumnarDataSet points;
+    private final int bucketSize;
+    private final int minX;
+    private final int minY;
+    private final int columns;
+    private final int rows;
+    // the entries of bucket b are entries[bucketStart[b]] up to entries[bucketStart[b + 1]]
+    private final int[] bucketStart;
+    private final int[] entries;
+
+    /**
+     * Build an index over the points of a dataset with the default bucket size.
+     */
+    public SpatialIndex(ColumnarDataSet points)
+    {
+        this(points, DEFAULT_BUCKET_SIZE);
+    }
+
+    /**
+     * Build an index over the points of a dataset.
+     *
+     * @param points the dataset to index
+     * @param bucketSize the width and height of a bucket, in metres
+     */
+    public SpatialIndex(ColumnarDataSet points, int bucketSize)
+    {
+        if (bucketSize <= 0) {
+            throw new IllegalArgumentException("The bucket size must be positive");
+        }
+        this.points = points;
+        this.bucketSize = bucketSize;
+
+        int lowX = Integer.MAX_VALUE;
+        int lowY = Integer.MAX_VALUE;
+        int highX = Integer.MIN_VALUE;
+        int highY = Integer.MIN_VALUE;
+        for (int i = 0; i < points.size(); i++) {
+            lowX = Math.min(lowX, points.getX(i));
+            lowY = Math.min(lowY, points.getY(i));
+            highX = Math.max(highX, points.getX(i));
+            highY = Math.max(highY, points.getY(i));
+        }
+        if (points.isEmpty()) {
+            lowX = lowY = highX = highY = 0;
+        }
+        minX = lowX;
+        minY = lowY;
+        columns = (int) (((long) highX - lowX) / bucketSize) + 1;
+        rows = (int) (((long) highY - lowY) / bucketSize) + 1;
+
+        // counting sort of the point indexes by bucket
+        bucketStart = new int[columns * rows + 1];
+        int[] pointBuckets = new int[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            pointBuckets[i] = bucketOf(points.getX(i), points.getY(i));
+            bucketStart[pointBuckets[i] + 1]++;
+        }
+        for (int b = 0; b < columns * rows; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        entries = new int[points.size()];
+        int[] next = Arrays.copyOf(bucketStart, columns * rows);
+        for (int i = 0; i < points.size(); i++) {
+            entries[next[pointBuckets[i]]++] = i;
+        }
+    }
+
+    /**
+     * Return the dataset this index was built over.
+     */
+    public ColumnarDataSet getPoints()
+    {
+        return points;
+    }
+
+    /**
+     * Return roughly how many bytes of heap the index uses, not counting its points.
+     */
+    public long estimateBytes()
+    {
+        return (long) (bucketStart.length + entries.length) * Integer.BYTES + 2 * 16;
+    }
+
+    /**
+     * Return the indexes of all the points inside a bounding box, edges included.
+     *
+     * @return the indexes of the points, in ascending order
+     */
+    public int[] query(int queryMinX, int queryMinY, int queryMaxX, int queryMaxY)
+    {
+        if (points.isEmpty() || queryMinX > queryMaxX || queryMinY > queryMaxY) {
+            return new int[0];
+        }
+        int firstColumn = clamp(column(queryMinX), columns);
+        int lastColumn = clamp(column(queryMaxX), columns);
+        int firstRow = clamp(row(queryMinY), rows);
+        int lastRow = clamp(row(queryMaxY), rows);
+
+        int[] found = new int[16];
+        int count = 0;
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int bucket = r * columns + c;
+                for (int e = bucketStart[bucket]; e < bucketStart[bucket + 1]; e++) {
+                    int i = entries[e];
+                    int x = points.getX(i);
+                    int y = points.getY(i);
+                    if (x >= queryMinX && x <= queryMaxX && y >= queryMinY && y <= queryMaxY) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = i;
+                    }
+                }
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * Return the index of the point closest to the given coordinates.
+     *
+     * @return the index of the closest point, or -1 if the dataset is empty
+     */
+    public int nearest(int x, int y)
+    {
+        int[] nearest = nearest(x, y, 1);
+        return nearest.length == 0 ? -1 : nearest[0];
+    }
+
+    /**
+     * Return the index of the point closest to the given coordinates, if it is
+     * no further away than the given distance.
+     *
+     * @param maxDistance the largest distance allowed, in metres
+     * @return the index of the closest point, or -1 if there is none close enough
+     */
+    public int nearestWithin(int x, int y, double maxDistance)
+    {
+        int nearest = nearest(x, y);
+        if (nearest < 0 || distanceSquared(nearest, x, y) > maxDistance * maxDistance) {
+            return -1;
+        }
+        return nearest;
+    }
+
+    /**
+     * Return the indexes of the k points closest to the given coordinates.
+     * Points at the same distance are ordered by index.
+     *
+     * @param k the number of points to find
+     * @return the indexes of the closest points, closest first; fewer than k if the dataset is smaller
+     */
+    public int[] nearest(int x, int y, int k)
+    {
+        k = Math.min(k, points.size());
+        if (k <= 0) {
+            return new int[0];
+        }
+        int[] best = new int[k];
+        long[] bestDistances = new long[k];
+        int found = 0;
+
+        int centreColumn = clamp(column(x), columns);
+        int centreRow = clamp(row(y), rows);
+        int maxRing = Math.max(Math.max(centreColumn, columns - 1 - centreColumn),
+                               Math.max(centreRow, rows - 1 - centreRow));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (found == k) {
+                // every bucket in this ring is at least (ring - 1) buckets away from the query point
+                long ringDistance = (long) (ring - 1) * bucketSize;
+                if (ringDistance > 0 && ringDistance * ringDistance > bestDistances[k - 1]) {
+                    break;
+                }
+            }
+            for (int r = centreRow - ring; r <= centreRow + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                boolean edgeRow = r == centreRow - ring || r == centreRow + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int c = centreColumn - ring; c <= centreColumn + ring; c += Math.max(step, 1)) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    int bucket = r * columns + c;
+                    for (int e = bucketStart[bucket]; e < bucketStart[bucket + 1]; e++) {
+                        found = offer(entries[e], distanceSquared(entries[e], x, y), best, bestDistances, found);
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(best, found);
+    }
+
+    /**
+     * Add a point to the sorted list of the closest points found so far, if it
+     * is closer than the furthest one in the list or the list is not full yet.
+     *
+     * @return the new number of points in the list
+     */
+    private int offer(int index, long distance, int[] best, long[] bestDistances, int found)
+    {
+        if (found == best.length && !closer(distance, index, bestDistances[found - 1], best[found - 1])) {
+            return found;
+        }
+        int position = found == best.length ? found - 1 : found;
+        while (position > 0 && closer(distance, index, bestDistances[position - 1], best[position - 1])) {
+            best[position] = best[position - 1];
+            bestDistances[position] = bestDistances[position - 1];
+            position--;
+        }
+        best[position] = index;
+        bestDistances[position] = distance;
+        return Math.min(found + 1, best.length);
+    }
+
+    private static boolean closer(long distance, int index, long otherDistance, int otherIndex)
+    {
+        return distance < otherDistance || (distance == otherDistance && index < otherIndex);
+    }
+
+    private long distanceSquared(int index, int x, int y)
+    {
+        long dx = (long) points.getX(index) - x;
+        long dy = (long) points.getY(index) - y;
+        return dx * dx + dy * dy;
+    }
+
+    private int bucketOf(int x, int y)
+    {
+        return row(y) * columns + column(x);
+    }
+
+    private int column(int x)
+    {
+        return (int) Math.floorDiv((long) x - minX, (long) bucketSize);
+    }
+
+    private int row(int y)
+    {
+        return (int) Math.floorDiv((long) y - minY, (long) bucketSize);
+    }
+
+    private static int clamp(int value, int count)
+    {
+        return Math.max(0, Math.min(count - 1, value));
+    }
+}
@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for SpatialIndex.
+ * This class verifies that bounding box queries and nearest point searches give
+ * the same answers as looking at every point.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class SpatialIndexTest
+{
+    private ColumnarDataSet points;
+    private SpatialIndex index;
+
+    /**
+     * Default constructor for test class SpatialIndexTest
+     */
+    public SpatialIndexTest()
+    {
+    }
+
+    /**
+     * Creates a grid of 20 by 20 points, 1 km apart, with small buckets so the
+     * searches have to go through several of them.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp()
+    {
+        ColumnarDataSet.Builder builder = new ColumnarDataSet.Builder();
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 20; column++) {
+                builder.add(row * 20 + column, 500000 + column * 1000, 180000 + row * 1000, row + column);
+            }
+        }
+        points = builder.build();
+        index = new SpatialIndex(points, 3000);
+    }
+
+    /**
+     * Tests that a query finds exactly the points inside the box, edges included,
+     * in ascending order.
+     */
+    @Test
+    public void testQuery()
+    {
+        int[] found = index.query(501000, 182000, 503000, 183000);
+        assertArrayEquals(new int[] {41, 42, 43, 61, 62, 63}, found);
+        assertEquals(400, index.query(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE).length);
+        assertEquals(0, index.query(0, 0, 1000, 1000).length);
+        assertEquals(0, index.query(503000, 183000, 501000, 182000).length);
+    }
+
+    /**
+     * Tests that the nearest point is the closest one, including from outside the grid.
+     */
+    @Test
+    public void testNearest()
+    {
+        assertEquals(42, index.nearest(502100, 181900));
+        assertEquals(0, index.nearest(0, 0));
+        assertEquals(399, index.nearest(900000, 900000));
+        assertEquals(-1, new SpatialIndex(ColumnarDataSet.EMPTY).nearest(0, 0));
+    }
+
+    /**
+     * Tests that the k nearest points come closest first, with ties broken by index.
+     */
+    @Test
+    public void testNearestK()
+    {
+        // the four points around the centre of a cell are all as far away
+        assertArrayEquals(new int[] {42, 43, 62, 63}, index.nearest(502500, 182500, 4));
+        int[] five = index.nearest(502000, 182000, 5);
+        assertEquals(42, five[0]);
+        assertArrayEquals(new int[] {22, 41, 43, 62}, java.util.Arrays.copyOfRange(five, 1, 5));
+        assertEquals(400, index.nearest(502000, 182000, 1000).length);
+    }
+
+    /**
+     * Tests that a point further away than the limit is not returned.
+     */
+    @Test
+    public void testNearestWithin()
+    {
+        assertEquals(42, index.nearestWithin(502300, 182000, 300));
+        assertEquals(-1, index.nearestWithin(502400, 182400, 500));
+        assertEquals(-1, index.nearestWithin(0, 0, 1000));
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.File;
+import java.util.List;
+
+/**
+ * Measures how long it takes to load all the pollution data files at startup,
+ * comparing the different ways DataLoader can read them:
+ *
+ *   - csv text:     BufferedReader and String.split (loadDataFile)
+ *   - csv mapped:   memory mapped byte parsing (loadDataFileMapped)
+ *   - csv parallel: memory mapped byte parsing on all cores (loadDataFileParallel)
+ *   - snapshot:     binary snapshots of the parsed files (loadDataFileCached)
+ *
+ * Create an object of this class and call run() to print the results.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class StartupBenchmark
+{
+    private static final String DATA_DIRECTORY = "UKAirPollutionData";
+
+    private List<String> files;
+    private DataLoader loader;
+
+    /**
+     * Constructor for objects of class StartupBenchmark
+     */
+    public StartupBenchmark()
+    {
+        files = new DataCatalog(new File(DATA_DIRECTORY)).getFileNames();
+        loader = new DataLoader();
+    }
+
+    /**
+     * Run the benchmark with three timed rounds for every loading method.
+     */
+    public void run()
+    {
+        run(3);
+    }
+
+    /**
+     * Run the benchmark and print the average time per round for every loading method.
+     * Every method gets one untimed warm up round first. The snapshots are written
+     * during the warm up of the snapshot method if they do not exist yet.
+     *
+     * @param rounds the number of timed rounds per loading method
+     */
+    public void run(int rounds)
+    {
+        System.out.println("Loading " + files.size() + " files, " + rounds + " rounds each");
+        double textMillis = time("csv text", rounds, file -> loader.loadDataFile(file));
+        double mappedMillis = time("csv mapped", rounds, file -> loader.loadDataFileMapped(file));
+        time("csv parallel", rounds, file -> loader.loadDataFileParallel(file));
+        double snapshotMillis = time("snapshot", rounds, file -> loader.loadDataFileCached(file));
+        System.out.println(String.format("snapshot is %.1fx faster than csv text and %.1fx faster than csv mapped",
+                                         textMillis / snapshotMillis, mappedMillis / snapshotMillis));
+    }
+
+    /**
+     * Time loading all files with one loading method.
+     *
+     * @return the average time of one round in milliseconds
+     */
+    private double time(String name, int rounds, FileLoader fileLoader)
+    {
+        long points = loadAll(fileLoader);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            loadAll(fileLoader);
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / rounds;
+        System.out.println(String.format("%-12s %9.1f ms per round (%d data points)", name, millis, points));
+        return millis;
+    }
+
+    /**
+     * Load every file once.
+     *
+     * @return the total number of data points loaded
+     */
+    private long loadAll(FileLoader fileLoader)
+    {
+        long points = 0;
+        for (String file : files) {
+            DataSet dataSet = fileLoader.load(file);
+            if (dataSet != null) {
+                points += dataSet.getColumns().size();
+            }
+        }
+        return points;
+    }
+
+    /**
+     * One way of loading a data file.
+     */
+    private interface FileLoader
+    {
+        DataSet load(String file);
+    }
+}
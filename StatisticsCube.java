@@ -0,0 +1,300 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The StatisticsCube holds ready made PollutionStatistics for every city, pollutant,
+ * year and metric, so the tables and charts can show averages and highest values
+ * with a lookup instead of going through the data points every time.
+ *
+ * The statistics of a data set are collected in a single pass over its data points
+ * when it is added, together with a QuantileSketch for percentiles and a
+ * ValueHistogram of every scale for the distribution, and merged with those of any
+ * other data set with the same pollutant, year and metric. Removing a data set merges the remaining ones again,
+ * so the cube always matches the data sets that are loaded. Missing values, stored
+ * as -1, are left out of all of them.
+ *
+ * @author Sara Ajdini
+ * @version 1.1
+ */
+public class StatisticsCube
+{
+    // the region part of the key for all the cities together
+    private static final String ALL = "all";
+    // the metric part of the key for the statistics of all metrics together
+    private static final String ANY_METRIC = "*";
+
+    private final Map<String, PollutionStatistics> cells;
+    private final Map<String, QuantileSketch> sketches;
+    // keyed by the key of the cell followed by the scale
+    private final Map<String, ValueHistogram> histograms;
+    // the statistics of every data set, per key, in the order the data sets were added
+    private final Map<String, List<Contribution>> contributions;
+
+    /**
+     * Create an empty cube.
+     */
+    public StatisticsCube()
+    {
+        cells = new ConcurrentHashMap<>();
+        sketches = new ConcurrentHashMap<>();
+        histograms = new ConcurrentHashMap<>();
+        contributions = new HashMap<>();
+    }
+
+    /**
+     * Return the statistics of a city, pollutant and year, over all metrics.
+     *
+     * @param location the name of a city, or any other name (such as "all") for all the cities together
+     * @return the statistics, or PollutionStatistics.EMPTY if there is no data
+     */
+    public PollutionStatistics get(String location, String pollutant, String year)
+    {
+        return get(location, pollutant, year, ANY_METRIC);
+    }
+
+    /**
+     * Return the statistics of a city, pollutant, year and metric.
+     *
+     * @param location the name of a city, or any other name (such as "all") for all the cities together
+     * @return the statistics, or PollutionStatistics.EMPTY if there is no data
+     */
+    public PollutionStatistics get(String location, String pollutant, String year, String metric)
+    {
+        PollutionStatistics statistics = cells.get(key(CityRegion.forName(location.trim()), pollutant, year, metric));
+        return statistics == null ? PollutionStatistics.EMPTY : statistics;
+    }
+
+    /**
+     * Return a sketch of the values of a city, pollutant and year, over all metrics,
+     * to find percentiles.
+     *
+     * @param location the name of a city, or any other name (such as "all") for all the cities together
+     * @return the sketch, or QuantileSketch.EMPTY if there is no data
+     */
+    public QuantileSketch getQuantiles(String location, String pollutant, String year)
+    {
+        return getQuantiles(location, pollutant, year, ANY_METRIC);
+    }
+
+    /**
+     * Return a sketch of the values of a city, pollutant, year and metric, to find percentiles.
+     *
+     * @param location the name of a city, or any other name (such as "all") for all the cities together
+     * @return the sketch, or QuantileSketch.EMPTY if there is no data
+     */
+    public QuantileSketch getQuantiles(String location, String pollutant, String year, String metric)
+    {
+        QuantileSketch sketch = sketches.get(key(CityRegion.forName(location.trim()), pollutant, year, metric));
+        return sketch == null ? QuantileSketch.EMPTY : sketch;
+    }
+
+    /**
+     * Return a histogram of the values of a city, pollutant and year, over all metrics.
+     *
+     * @param location the name of a city, or any other name (such as "all") for all the cities together
+     * @param scale how the bins of the histogram are spaced
+     * @return the histogram, or an empty one if there is no data
+     */
+    public ValueHistogram getHistogram(String location, String pollutant, String year, ValueHistogram.Scale scale)
+    {
+        String key = key(CityRegion.forName(location.trim()), pollutant, year, ANY_METRIC);
+        ValueHistogram histogram = histograms.get(key + "|" + scale);
+        return histogram == null ? ValueHistogram.empty(scale) : histogram;
+    }
+
+    /**
+     * Collect the statistics of a data set and add them to the cube.
+     */
+    public synchronized void add(SimpleDataSet dataSet)
+    {
+        CityRegion[] regions = CityRegion.values();
+        Collector[] regionCollectors = new Collector[regions.length];
+        for (int r = 0; r < regions.length; r++) {
+            regionCollectors[r] = new Collector();
+        }
+        Collector allCollector = new Collector();
+
+        ColumnarDataSet columns = dataSet.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            int x = columns.getX(i);
+            int y = columns.getY(i);
+            for (int r = 0; r < regions.length; r++) {
+                if (regions[r].contains(x, y)) {
+                    regionCollectors[r].add(columns.getGridCode(i), x, y, columns.getValue(i));
+                    allCollector.add(columns.getGridCode(i), x, y, columns.getValue(i));
+                    break;
+                }
+            }
+        }
+
+        for (int r = 0; r < regions.length; r++) {
+            contribute(regions[r], regionCollectors[r].build(dataSet));
+        }
+        contribute(null, allCollector.build(dataSet));
+    }
+
+    /**
+     * Take the statistics of a data set out of the cube again.
+     */
+    public synchronized void remove(SimpleDataSet dataSet)
+    {
+        for (CityRegion region : CityRegion.values()) {
+            withdraw(region, dataSet);
+        }
+        withdraw(null, dataSet);
+    }
+
+    /**
+     * Return roughly how many bytes of heap the sketches and histograms of a data
+     * set use in the cube, counting them once more for each of the two cells, of its
+     * metric and of all metrics, they are merged into.
+     */
+    public synchronized long estimateBytes(SimpleDataSet dataSet)
+    {
+        long bytes = 0;
+        for (Map.Entry<String, List<Contribution>> cell : contributions.entrySet()) {
+            if (!cell.getKey().endsWith("|" + ANY_METRIC)) {
+                // the same contributions are in the cell of their own metric
+                continue;
+            }
+            for (Contribution contribution : cell.getValue()) {
+                if (contribution.dataSet == dataSet) {
+                    bytes += contribution.sketch.estimateBytes();
+                    for (ValueHistogram histogram : contribution.histograms) {
+                        bytes += histogram.estimateBytes();
+                    }
+                }
+            }
+        }
+        return 3 * bytes;
+    }
+
+    /**
+     * Record the statistics of a data set for one region and merge them into the
+     * cells of its metric and of all metrics.
+     */
+    private void contribute(CityRegion region, Contribution contribution)
+    {
+        SimpleDataSet dataSet = contribution.dataSet;
+        for (String metric : new String[] {dataSet.getMetric(), ANY_METRIC}) {
+            String key = key(region, dataSet.getPollutant(), dataSet.getYear(), metric);
+            contributions.computeIfAbsent(key, k -> new ArrayList<>()).add(contribution);
+            merge(key);
+        }
+    }
+
+    /**
+     * Remove the statistics of a data set for one region and merge the cells again.
+     */
+    private void withdraw(CityRegion region, SimpleDataSet dataSet)
+    {
+        for (String metric : new String[] {dataSet.getMetric(), ANY_METRIC}) {
+            String key = key(region, dataSet.getPollutant(), dataSet.getYear(), metric);
+            List<Contribution> list = contributions.get(key);
+            if (list != null) {
+                list.removeIf(contribution -> contribution.dataSet == dataSet);
+                merge(key);
+            }
+        }
+    }
+
+    /**
+     * Merge all the contributions to a cell, in the order they were added.
+     */
+    private void merge(String key)
+    {
+        List<Contribution> list = contributions.get(key);
+        if (list.isEmpty()) {
+            contributions.remove(key);
+            cells.remove(key);
+            sketches.remove(key);
+            for (ValueHistogram.Scale scale : ValueHistogram.Scale.values()) {
+                histograms.remove(key + "|" + scale);
+            }
+            return;
+        }
+        PollutionStatistics merged = PollutionStatistics.EMPTY;
+        QuantileSketch mergedSketch = QuantileSketch.EMPTY;
+        ValueHistogram[] mergedHistograms = new ValueHistogram[ValueHistogram.Scale.values().length];
+        for (ValueHistogram.Scale scale : ValueHistogram.Scale.values()) {
+            mergedHistograms[scale.ordinal()] = ValueHistogram.empty(scale);
+        }
+        for (Contribution contribution : list) {
+            merged = merged.merge(contribution.statistics);
+            mergedSketch = mergedSketch.merge(contribution.sketch);
+            for (int h = 0; h < mergedHistograms.length; h++) {
+                mergedHistograms[h] = mergedHistograms[h].merge(contribution.histograms[h]);
+            }
+        }
+        cells.put(key, merged);
+        sketches.put(key, mergedSketch);
+        for (ValueHistogram histogram : mergedHistograms) {
+            histograms.put(key + "|" + histogram.getScale(), histogram);
+        }
+    }
+
+    /**
+     * Return the key of a cell.
+     *
+     * @param region the city, or null for all the cities together
+     */
+    private static String key(CityRegion region, String pollutant, String year, String metric)
+    {
+        String regionName = region == null ? ALL : region.name();
+        return regionName + "|" + DataCatalog.normalise(pollutant) + "|" + DataCatalog.normalise(year)
+               + "|" + DataCatalog.normalise(metric);
+    }
+
+    /**
+     * The statistics, sketch and histograms one data set adds to a cell. The
+     * histograms are in the order of ValueHistogram.Scale.
+     */
+    private record Contribution(SimpleDataSet dataSet, PollutionStatistics statistics, QuantileSketch sketch,
+                                ValueHistogram[] histograms)
+    {
+    }
+
+    /**
+     * A Collector collects everything a data set adds to one cell in a single pass.
+     */
+    private static class Collector
+    {
+        private final PollutionStatistics.Builder statistics = new PollutionStatistics.Builder();
+        private final QuantileSketch.Builder sketch = new QuantileSketch.Builder();
+        private final ValueHistogram.Builder[] histograms;
+
+        Collector()
+        {
+            ValueHistogram.Scale[] scales = ValueHistogram.Scale.values();
+            histograms = new ValueHistogram.Builder[scales.length];
+            for (int h = 0; h < scales.length; h++) {
+                histograms[h] = new ValueHistogram.Builder(scales[h]);
+            }
+        }
+
+        void add(int gridCode, int x, int y, double value)
+        {
+            // missing values are stored as -1 and are not a pollution level, so the mean,
+            // percentiles and histograms are all worked out over the same readings
+            if (value >= 0) {
+                statistics.add(gridCode, x, y, value);
+                sketch.add(value);
+                for (ValueHistogram.Builder histogram : histograms) {
+                    histogram.add(value);
+                }
+            }
+        }
+
+        Contribution build(SimpleDataSet dataSet)
+        {
+            ValueHistogram[] built = new ValueHistogram[histograms.length];
+            for (int h = 0; h < histograms.length; h++) {
+                built[h] = histograms[h].build();
+            }
+            return new Contribution(dataSet, statistics.build(), sketch.build(), built);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for StatisticsCube.
+ * This class verifies that the statistics, sketches and histograms of every city
+ * match the data points added, that data sets with the same pollutant and year are
+ * merged, and that removing one takes its statistics out again.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class StatisticsCubeTest
+{
+    private StatisticsCube cube;
+
+    /**
+     * Default constructor for test class StatisticsCubeTest
+     */
+    public StatisticsCubeTest()
+    {
+    }
+
+    /**
+     * Creates an empty cube.
+     *
+     * Called before every test case method.
+     */
+    @BeforeEach
+    public void setUp()
+    {
+        cube = new StatisticsCube();
+    }
+
+    /**
+     * Return a data set with one data point per value, in the middle of the given city.
+     */
+    private static SimpleDataSet dataSet(String metric, CityRegion region, double... values)
+    {
+        int x = (region.getMinX() + region.getMaxX()) / 2;
+        int y = (region.getMinY() + region.getMaxY()) / 2;
+        ColumnarDataSet.Builder columns = new ColumnarDataSet.Builder();
+        for (int i = 0; i < values.length; i++) {
+            columns.add(i, x, y, values[i]);
+        }
+        return new SimpleDataSet("NO2", "2019", metric, columns.build());
+    }
+
+    /**
+     * Tests that the statistics of each city and of all cities together match the
+     * data points that were added.
+     */
+    @Test
+    public void testStatistics()
+    {
+        cube.add(dataSet("annual mean", CityRegion.LONDON, 10, 20, 30));
+        PollutionStatistics london = cube.get("London", "no2", "2019");
+        assertEquals(3, london.count());
+        assertEquals(20.0, london.mean(), 1e-9);
+        assertEquals(10.0, london.min());
+        assertEquals(30.0, london.max());
+        assertEquals(2, london.getMaxDataPoint().gridCode());
+        assertTrue(cube.get("Leeds", "NO2", "2019").isEmpty());
+        assertEquals(3, cube.get("all", "NO2", "2019").count());
+        assertSame(PollutionStatistics.EMPTY, cube.get("London", "NO2", "2018"));
+
+        assertEquals(3, cube.getQuantiles("London", "NO2", "2019").getCount());
+        assertEquals(3, cube.getHistogram("London", "NO2", "2019", ValueHistogram.Scale.LINEAR).getTotal());
+        assertTrue(cube.getQuantiles("Oxford", "NO2", "2019").isEmpty());
+    }
+
+    /**
+     * Tests that data sets of the same pollutant and year are merged, per metric and
+     * over all metrics, and that removing one takes its statistics out.
+     */
+    @Test
+    public void testMergeAndRemove()
+    {
+        SimpleDataSet mean = dataSet("annual mean", CityRegion.LEEDS, 10, 20);
+        SimpleDataSet max = dataSet("max", CityRegion.LEEDS, 40);
+        cube.add(mean);
+        cube.add(max);
+        assertEquals(3, cube.get("Leeds", "NO2", "2019").count());
+        assertEquals(40.0, cube.get("Leeds", "NO2", "2019").max());
+        assertEquals(2, cube.get("Leeds", "NO2", "2019", "annual mean").count());
+        assertEquals(1, cube.get("Leeds", "NO2", "2019", "MAX").count());
+        assertEquals(3, cube.getHistogram("Leeds", "NO2", "2019", ValueHistogram.Scale.LINEAR).getTotal());
+
+        cube.remove(max);
+        assertEquals(2, cube.get("Leeds", "NO2", "2019").count());
+        assertEquals(20.0, cube.get("Leeds", "NO2", "2019").max());
+        assertTrue(cube.get("Leeds", "NO2", "2019", "max").isEmpty());
+        assertEquals(2, cube.getQuantiles("Leeds", "NO2", "2019").getCount());
+
+        cube.remove(mean);
+        assertTrue(cube.get("all", "NO2", "2019").isEmpty());
+        assertTrue(cube.getHistogram("Leeds", "NO2", "2019", ValueHistogram.Scale.LINEAR).isEmpty());
+    }
+
+    /**
+     * Tests that missing values, stored as -1, are left out of the statistics, the
+     * percentiles and the histograms alike, so the mean is never below the lowest reading.
+     */
+    @Test
+    public void testMissingValues()
+    {
+        cube.add(dataSet("annual mean", CityRegion.LONDON, -1, -1, -1, 10, 20));
+        QuantileSketch sketch = cube.getQuantiles("London", "NO2", "2019");
+        assertEquals(2, sketch.getCount());
+        assertEquals(10.0, sketch.getMin());
+        assertEquals(10.0, sketch.quantile(0.5));
+        PollutionStatistics statistics = cube.get("London", "NO2", "2019");
+        assertEquals(sketch.getCount(), statistics.count());
+        assertEquals(15.0, statistics.mean(), 1e-9);
+        assertEquals(10.0, statistics.min());
+        ValueHistogram histogram = cube.getHistogram("London", "NO2", "2019", ValueHistogram.Scale.LINEAR);
+        assertEquals(2, histogram.getTotal());
+        assertEquals(0, histogram.getCount(0));
+        assertEquals(10.5, histogram.quantile(0.25), 1e-9);
+    }
+
+    /**
+     * Tests that a data set counts something against the heap while it is in the
+     * cube, and nothing after it is removed.
+     */
+    @Test
+    public void testEstimateBytes()
+    {
+        SimpleDataSet dataSet = dataSet("annual mean", CityRegion.OXFORD, 1, 2, 3);
+        cube.add(dataSet);
+        assertTrue(cube.estimateBytes(dataSet) > 0);
+        cube.remove(dataSet);
+        assertEquals(0, cube.estimateBytes(dataSet));
+    }
+}
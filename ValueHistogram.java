@@ -0,0 +1,254 @@
+import java.util.Arrays;
+
+/**
+ * A ValueHistogram counts how many pollution levels fall in each of a fixed set of
+ * bins, so the distribution of a dataset can be drawn or summed up without going
+ * through its data points again.
+ *
+ * The bins are the same for every histogram of a scale: 1 unit wide from 0 to 100
+ * on the linear scale, and ten to a decade from 0.1 to 1000 on the log scale.
+ * Values below the first bin are counted in the first bin and values above the
+ * last bin in the last bin. Because the bins never change, histograms of the same
+ * scale can be merged by adding up their counts, and drawing one takes the same
+ * time however many data points it was built from.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class ValueHistogram
+{
+    /**
+     * How the bins of a histogram are spaced.
+     */
+    public enum Scale
+    {
+        LINEAR(100),
+        LOG(40);
+
+        // the bins of the linear scale
+        private static final double LINEAR_WIDTH = 1;
+        // the bins of the log scale
+        private static final double LOG_LOWEST = 0.1;
+        private static final int LOG_BINS_PER_DECADE = 10;
+
+        private final int binCount;
+
+        Scale(int binCount)
+        {
+            this.binCount = binCount;
+        }
+
+        /**
+         * Return the number of bins.
+         */
+        public int getBinCount()
+        {
+            return binCount;
+        }
+
+        /**
+         * Return the lowest value of a bin.
+         */
+        public double getLowerBound(int bin)
+        {
+            if (this == LINEAR) {
+                return bin * LINEAR_WIDTH;
+            }
+            return LOG_LOWEST * Math.pow(10, (double) bin / LOG_BINS_PER_DECADE);
+        }
+
+        /**
+         * Return the value a bin goes up to, which is the lowest value of the next bin.
+         */
+        public double getUpperBound(int bin)
+        {
+            return getLowerBound(bin + 1);
+        }
+
+        /**
+         * Return the bin a value is counted in.
+         */
+        public int binOf(double value)
+        {
+            double position;
+            if (this == LINEAR) {
+                position = value / LINEAR_WIDTH;
+            } else {
+                position = value <= 0 ? 0 : Math.log10(value / LOG_LOWEST) * LOG_BINS_PER_DECADE;
+            }
+            return (int) Math.max(0, Math.min(binCount - 1, Math.floor(position)));
+        }
+    }
+
+    private final Scale scale;
+    private final long[] counts;
+    private final long total;
+
+    /**
+     * Constructor for histograms built by a Builder or by merging.
+     * The counts are used as they are and must not be changed afterwards.
+     */
+    private ValueHistogram(Scale scale, long[] counts)
+    {
+        this.scale = scale;
+        this.counts = counts;
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        total = sum;
+    }
+
+    /**
+     * Return a histogram with no values.
+     */
+    public static ValueHistogram empty(Scale scale)
+    {
+        return new ValueHistogram(scale, new long[scale.getBinCount()]);
+    }
+
+    public Scale getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Return the number of bins.
+     */
+    public int getBinCount()
+    {
+        return counts.length;
+    }
+
+    /**
+     * Return how many values are counted in a bin.
+     */
+    public long getCount(int bin)
+    {
+        return counts[bin];
+    }
+
+    /**
+     * Return the lowest value of a bin.
+     */
+    public double getLowerBound(int bin)
+    {
+        return scale.getLowerBound(bin);
+    }
+
+    /**
+     * Return the value a bin goes up to.
+     */
+    public double getUpperBound(int bin)
+    {
+        return scale.getUpperBound(bin);
+    }
+
+    /**
+     * Return the number of values counted.
+     */
+    public long getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * Return roughly how many bytes of heap the histogram uses.
+     */
+    public long estimateBytes()
+    {
+        return (long) counts.length * Long.BYTES + 16;
+    }
+
+    /**
+     * Return true if no values were counted.
+     */
+    public boolean isEmpty()
+    {
+        return total == 0;
+    }
+
+    /**
+     * Return roughly the value that the given fraction of the values are at or
+     * below, assuming the values are spread evenly over their bin. The answer is
+     * never further off than the width of a bin.
+     *
+     * @param fraction a number from 0 to 1
+     * @return the value, or NaN if there are no values
+     */
+    public double quantile(double fraction)
+    {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double rank = Math.max(0, Math.min(1, fraction)) * total;
+        long below = 0;
+        for (int bin = 0; bin < counts.length; bin++) {
+            if (counts[bin] > 0 && below + counts[bin] >= rank) {
+                double part = (rank - below) / counts[bin];
+                double low = getLowerBound(bin);
+                double high = getUpperBound(bin);
+                if (scale == Scale.LOG) {
+                    return low * Math.pow(high / low, part);
+                }
+                return low + (high - low) * part;
+            }
+            below += counts[bin];
+        }
+        return getUpperBound(counts.length - 1);
+    }
+
+    /**
+     * Combine this histogram with another one of the same scale.
+     *
+     * @return a histogram of the values of both together
+     * @throws IllegalArgumentException if the histograms have different scales
+     */
+    public ValueHistogram merge(ValueHistogram other)
+    {
+        if (other.scale != scale) {
+            throw new IllegalArgumentException("Cannot merge a " + other.scale + " histogram into a " + scale + " one");
+        }
+        long[] merged = Arrays.copyOf(counts, counts.length);
+        for (int bin = 0; bin < merged.length; bin++) {
+            merged[bin] += other.counts[bin];
+        }
+        return new ValueHistogram(scale, merged);
+    }
+
+    /**
+     * A Builder counts values one at a time.
+     */
+    public static class Builder
+    {
+        private final Scale scale;
+        private final long[] counts;
+
+        /**
+         * Create a builder for a histogram of the given scale.
+         */
+        public Builder(Scale scale)
+        {
+            this.scale = scale;
+            counts = new long[scale.getBinCount()];
+        }
+
+        /**
+         * Count one value. NaN values are not counted.
+         */
+        public void add(double value)
+        {
+            if (!Double.isNaN(value)) {
+                counts[scale.binOf(value)]++;
+            }
+        }
+
+        /**
+         * Return a histogram of the values counted so far.
+         */
+        public ValueHistogram build()
+        {
+            return new ValueHistogram(scale, counts.clone());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for ValueHistogram.
+ * This class verifies which bin a value is counted in on each scale, including
+ * values on a bin edge and outside the bins, and that quantiles are worked out
+ * from the counts to within a bin.
+ *
+ * @author Sara Ajdini
+ * @version 1.0
+ */
+public class ValueHistogramTest
+{
+    /**
+     * Default constructor for test class ValueHistogramTest
+     */
+    public ValueHistogramTest()
+    {
+    }
+
+    private static ValueHistogram histogram(ValueHistogram.Scale scale, double... values)
+    {
+        ValueHistogram.Builder builder = new ValueHistogram.Builder(scale);
+        for (double value : values) {
+            builder.add(value);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Tests the bin edges of the linear scale: a value on an edge belongs to the
+     * bin above it, and values outside the bins go in the first or last bin.
+     */
+    @Test
+    public void testLinearBinEdges()
+    {
+        ValueHistogram.Scale scale = ValueHistogram.Scale.LINEAR;
+        assertEquals(100, scale.getBinCount());
+        assertEquals(0, scale.binOf(0));
+        assertEquals(0, scale.binOf(0.99));
+        assertEquals(1, scale.binOf(1));
+        assertEquals(42, scale.binOf(42.5));
+        assertEquals(0, scale.binOf(-5));
+        assertEquals(99, scale.binOf(100));
+        assertEquals(99, scale.binOf(1e6));
+        assertEquals(42.0, scale.getLowerBound(42));
+        assertEquals(43.0, scale.getUpperBound(42));
+    }
+
+    /**
+     * Tests the bin edges of the log scale, ten bins to a decade from 0.1.
+     */
+    @Test
+    public void testLogBinEdges()
+    {
+        ValueHistogram.Scale scale = ValueHistogram.Scale.LOG;
+        assertEquals(0.1, scale.getLowerBound(0), 1e-12);
+        assertEquals(1.0, scale.getLowerBound(10), 1e-12);
+        assertEquals(1000.0, scale.getUpperBound(39), 1e-9);
+        assertEquals(0, scale.binOf(0));
+        assertEquals(0, scale.binOf(0.05));
+        assertEquals(10, scale.binOf(1.0001));
+        assertEquals(20, scale.binOf(10.5));
+        assertEquals(39, scale.binOf(5000));
+        for (int bin = 0; bin < scale.getBinCount(); bin++) {
+            double middle = Math.sqrt(scale.getLowerBound(bin) * scale.getUpperBound(bin));
+            assertEquals(bin, scale.binOf(middle));
+        }
+    }
+
+    /**
+     * Tests that quantiles are interpolated within their bin and are never further
+     * off than one bin from the exact answer.
+     */
+    @Test
+    public void testQuantile()
+    {
+        ValueHistogram histogram = histogram(ValueHistogram.Scale.LINEAR, 10.2, 10.7, 20.1, 20.9);
+        assertEquals(4, histogram.getTotal());
+        assertEquals(2, histogram.getCount(10));
+        assertEquals(10.0, histogram.quantile(0), 1e-9);
+        assertEquals(10.5, histogram.quantile(0.25), 1e-9);
+        assertEquals(11.0, histogram.quantile(0.5), 1e-9);
+        assertEquals(21.0, histogram.quantile(1), 1e-9);
+
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 0.05;
+        }
+        ValueHistogram spread = histogram(ValueHistogram.Scale.LOG, values);
+        for (double fraction : new double[] {0.1, 0.5, 0.9}) {
+            double exact = values[(int) (fraction * values.length)];
+            int bin = ValueHistogram.Scale.LOG.binOf(exact);
+            double answer = spread.quantile(fraction);
+            assertTrue(answer >= spread.getLowerBound(Math.max(0, bin - 1)) && answer <= spread.getUpperBound(bin),
+                       "quantile " + fraction + " was " + answer + ", exactly " + exact);
+        }
+    }
+
+    /**
+     * Tests that NaN values are not counted, that merging adds up the counts of the
+     * same scale only, and that an empty histogram has no quantiles.
+     */
+    @Test
+    public void testMergeAndEmpty()
+    {
+        ValueHistogram first = histogram(ValueHistogram.Scale.LINEAR, 1, 2, Double.NaN);
+        ValueHistogram second = histogram(ValueHistogram.Scale.LINEAR, 2, 3);
+        assertEquals(2, first.getTotal());
+        ValueHistogram merged = first.merge(second);
+        assertEquals(4, merged.getTotal());
+        assertEquals(2, merged.getCount(2));
+        assertThrows(IllegalArgumentException.class, () -> first.merge(ValueHistogram.empty(ValueHistogram.Scale.LOG)));
+
+        ValueHistogram empty = ValueHistogram.empty(ValueHistogram.Scale.LINEAR);
+        assertTrue(empty.isEmpty());
+        assertTrue(Double.isNaN(empty.quantile(0.5)));
+    }
+}